@@ -0,0 +1,67 @@
+package digital.paisley.benchmarks;
+
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.enums.MinioMetadata;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the request parameters into storage metadata, paid on every storage request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBenchmark {
+
+    private Map<String, Object> metadata;
+    private StorageProfileRegistry profileRegistry;
+    private String bucketName;
+    private String folderName;
+
+    @Setup
+    public void setUp() {
+        // Same shape as the @RequestParam map of a download request
+        metadata = new HashMap<>();
+        metadata.put("file-name", "photo.jpg");
+        metadata.put("bucket-name", "gallery-service");
+        metadata.put("folder-name", "canvas-42");
+        profileRegistry = new StorageProfileRegistry(new StandardEnvironment());
+        bucketName = "gallery-service";
+        folderName = "canvas-42";
+    }
+
+    /**
+     * What StorageMetadataArgumentResolver does per request after reading the two parameters.
+     */
+    @Benchmark
+    public MinioMetadataDTO resolveMetadata() {
+        return profileRegistry.resolve(bucketName, folderName);
+    }
+
+    @Benchmark
+    public String objectName() {
+        return profileRegistry.resolve(bucketName, folderName).objectName("photo.jpg");
+    }
+
+    @Benchmark
+    public String getValue() {
+        return MinioMetadata.BUCKET_NAME.getValue(metadata);
+    }
+}
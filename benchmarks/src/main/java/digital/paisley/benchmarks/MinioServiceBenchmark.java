@@ -0,0 +1,155 @@
+package digital.paisley.benchmarks;
+
+import digital.paisley.storage.service.cache.DownloadCoalescer;
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.cache.ObjectStatCache;
+import digital.paisley.storage.service.cache.PresignedUrlCache;
+import digital.paisley.storage.service.cache.StorageLayoutCache;
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import digital.paisley.storage.service.service.ContentCompressor;
+import digital.paisley.storage.service.service.MinioService;
+import digital.paisley.storage.service.service.MinioUrlSigner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download through {@link MinioService} against an in-process S3 stand-in.
+ * <p>
+ * Every benchmark runs with the hot object cache off and on ({@code hotCache}). Off, every download goes
+ * through the MinIO client and the loopback HTTP connection; on, downloads after the first are served from
+ * memory, which measures the hit path of the cache. {@code downloadConcurrent} reads the same object from
+ * many threads at once, with and without sharing one fetch between them. File sizes range from 1 KB to 4 MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinioServiceBenchmark {
+
+    private static final String BUCKET = "gallery-service";
+
+    // The stand-in only takes single-part uploads, which the MinIO client uses up to 5 MiB
+    @Param({"1024", "65536", "1048576", "4194304"})
+    private int fileSize;
+
+    @Param({"false", "true"})
+    private boolean hotCache;
+
+    @Param({"false", "true"})
+    private boolean coalescing;
+
+    private S3StandIn s3;
+    private ThreadPoolTaskExecutor executor;
+    private MinioUrlSigner urlSigner;
+    private MinioService minioService;
+    private MinioMetadataDTO metadata;
+    private byte[] content;
+    private byte[] readBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        s3 = new S3StandIn(BUCKET);
+        executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        HotObjectCache hotObjectCache = new HotObjectCache(
+                DataSize.ofMegabytes(hotCache ? 64 : 0), DataSize.ofMegabytes(16),
+                false, System.getProperty("java.io.tmpdir"), DataSize.ofBytes(0), DataSize.ofBytes(0));
+        urlSigner = new MinioUrlSigner(s3.endpoint(), "us-east-1", "benchmark", "benchmark-secret",
+                Duration.ofMinutes(15), Duration.ofMinutes(15), hotObjectCache, new PresignedUrlCache(1024));
+        StorageProfileRegistry profileRegistry = new StorageProfileRegistry(new StandardEnvironment());
+        minioService = new MinioService(
+                s3.endpoint(), "benchmark", "benchmark-secret",
+                new StorageLayoutCache(Duration.ofMinutes(10), 1024),
+                hotObjectCache,
+                new ObjectStatCache(Duration.ofMinutes(5), Duration.ofSeconds(10), 10000, new SimpleMeterRegistry()),
+                new DownloadCoalescer(DataSize.ofMegabytes(coalescing ? 16 : 0), DataSize.ofMegabytes(256), new SimpleMeterRegistry()),
+                new ContentCompressor(false, new String[]{"text/*"}, DataSize.ofKilobytes(1), DataSize.ofMegabytes(16), 6, new SimpleMeterRegistry()),
+                urlSigner,
+                profileRegistry,
+                executor,
+                1000,
+                false,
+                new StorageMetrics(new SimpleMeterRegistry()));
+        metadata = profileRegistry.resolve(BUCKET, "benchmark");
+
+        content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        readBuffer = new byte[64 * 1024];
+        minioService.uploadFile(new ByteArrayInputStream(content), fileSize, "application/octet-stream", "download.bin", metadata);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        minioService.close();
+        urlSigner.close();
+        executor.shutdown();
+        s3.close();
+    }
+
+    @Benchmark
+    public UploadFileResponse upload() {
+        return minioService.uploadFile(new ByteArrayInputStream(content), fileSize, "application/octet-stream", "upload.bin", metadata);
+    }
+
+    @Benchmark
+    public void download(Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = minioService.downloadFile("download.bin", metadata)) {
+            int read;
+            while ((read = inputStream.read(readBuffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void downloadConcurrent(Blackhole blackhole) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = minioService.downloadFile("download.bin", metadata)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+
+    @Benchmark
+    public void downloadRange(Blackhole blackhole) throws IOException {
+        long length = Math.min(fileSize, 4096);
+        try (InputStream inputStream = minioService.downloadFile("download.bin", metadata, fileSize - length, length)) {
+            int read;
+            while ((read = inputStream.read(readBuffer)) != -1) {
+                blackhole.consume(read);
+            }
+        }
+    }
+}
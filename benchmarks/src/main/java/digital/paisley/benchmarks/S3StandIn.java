@@ -0,0 +1,177 @@
+package digital.paisley.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal in-process S3 server holding objects in memory.
+ * <p>
+ * It implements just what the MinIO client needs for the benchmarked paths: bucket location and existence,
+ * single-part PUT, GET with an optional byte range, HEAD and DELETE. Authentication is not checked, so the
+ * measured time is the client and service overhead plus loopback HTTP, not the cost of a real object store.
+ */
+public class S3StandIn implements AutoCloseable {
+
+    private static final String LAST_MODIFIED = DateTimeFormatter.RFC_1123_DATE_TIME
+            .format(ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
+
+    static {
+        // Without TCP_NODELAY small responses wait for delayed ACKs and every call takes tens of milliseconds
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public S3StandIn(String... buckets) throws IOException {
+        for (String bucket : buckets) {
+            objects.put(bucket, new byte[0]);
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // The connection is reset instead of reused when a request body is left unread
+            byte[] requestBody = readAll(exchange.getRequestBody());
+            String path = exchange.getRequestURI().getPath().substring(1);
+            String query = exchange.getRequestURI().getRawQuery();
+            String method = exchange.getRequestMethod();
+            int slash = path.indexOf('/');
+            String bucket = slash < 0 ? path : path.substring(0, slash);
+
+            if (!objects.containsKey(bucket)) {
+                sendError(exchange, 404, "NoSuchBucket", bucket, "");
+            } else if (slash < 0 || slash == path.length() - 1 && !"PUT".equals(method)) {
+                handleBucket(exchange, method, query);
+            } else {
+                handleObject(exchange, method, path, requestBody);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String method, String query) throws IOException {
+        if ("GET".equals(method) && query != null && query.startsWith("location")) {
+            byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<LocationConstraint xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"></LocationConstraint>")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } else {
+            // HEAD is used by bucketExists
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String method, String key, byte[] requestBody) throws IOException {
+        switch (method) {
+            case "PUT":
+                objects.put(key, requestBody);
+                exchange.getResponseHeaders().set("ETag", etag(requestBody));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            case "DELETE":
+                objects.remove(key);
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            case "HEAD":
+            case "GET":
+                break;
+            default:
+                exchange.sendResponseHeaders(405, -1);
+                return;
+        }
+
+        byte[] content = objects.get(key);
+        if (content == null) {
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                int slash = key.indexOf('/');
+                sendError(exchange, 404, "NoSuchKey", key.substring(0, slash), key.substring(slash + 1));
+            }
+            return;
+        }
+
+        int start = 0;
+        int end = content.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring(6).split("-", -1);
+            start = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+        int length = end - start + 1;
+        exchange.getResponseHeaders().set("ETag", etag(content));
+        exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        if ("HEAD".equals(method)) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(range != null ? 206 : 200, length);
+        OutputStream body = exchange.getResponseBody();
+        body.write(content, start, length);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String bucket, String key) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code>"
+                + "<Message>" + code + "</Message><BucketName>" + bucket + "</BucketName><Key>" + key + "</Key>"
+                + "<Resource>/" + bucket + "/" + key + "</Resource><RequestId>0</RequestId><HostId>0</HostId></Error>")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String etag(byte[] content) {
+        return "\"" + Integer.toHexString(content.length) + "\"";
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,43 @@
+package digital.paisley.gallery.service.config;
+
+import digital.paisley.gallery.service.entity.Canvas;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+/**
+ * Declares the indexes of the gallery collections once all beans are created, which is before the web server
+ * starts accepting requests. ensureIndex blocks until an index is built, so building a new index on
+ * a large collection delays startup; creating an index that already exists is a no-op.
+ */
+@Configuration
+@Slf4j
+public class MongoIndexConfig implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        IndexOperations canvasIndexes = mongoTemplate.indexOps(Canvas.class);
+        // Gallery of one owner, newest first; the id makes the order total for keyset pagination
+        canvasIndexes.ensureIndex(new Index()
+                .on("ownerId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("owner_created"));
+        // Galleries of all owners, newest first
+        canvasIndexes.ensureIndex(new Index()
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("created"));
+        log.info("Indexes of collection '{}' are in place.", Canvas.COLLECTION);
+    }
+}
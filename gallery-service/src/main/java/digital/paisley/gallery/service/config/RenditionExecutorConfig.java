@@ -0,0 +1,35 @@
+package digital.paisley.gallery.service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor generating image renditions in the background.
+ */
+@Configuration
+public class RenditionExecutorConfig {
+
+    /**
+     * Bounded executor for rendition generation. Image processing is CPU and memory bound, so the pool is
+     * small; when the queue is full new jobs are rejected rather than run by the uploading thread.
+     *
+     * @param poolSize      Number of images processed in parallel.
+     * @param queueCapacity Number of images waiting for a thread; each one holds its original in memory.
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor renditionTaskExecutor(
+            @Value("${gallery.renditions.pool-size:4}") int poolSize,
+            @Value("${gallery.renditions.queue-capacity:16}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("rendition-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,57 @@
+package digital.paisley.gallery.service.controller;
+
+import digital.paisley.gallery.service.dto.CanvasDTO;
+import digital.paisley.gallery.service.dto.CanvasPageDTO;
+import digital.paisley.gallery.service.service.ICanvasService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/v1/gallery")
+public class CanvasController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ICanvasService canvasService;
+
+    public CanvasController(ICanvasService canvasService) {
+        this.canvasService = canvasService;
+    }
+
+    // Upload an image as a new canvas; renditions follow in the background
+    @PostMapping(value = "/canvases", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CanvasDTO> createCanvas(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("owner-id") String ownerId,
+            @RequestParam("title") String title,
+            @RequestParam(value = "description", required = false) String description) {
+
+        CanvasDTO canvas = canvasService.createCanvas(file, ownerId, title, description);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(canvas);
+    }
+
+    // Get a canvas with all its details
+    @GetMapping(value = "/canvases/{id}")
+    public ResponseEntity<CanvasDTO> getCanvas(@PathVariable("id") String id) {
+
+        return ResponseEntity.ok(canvasService.getCanvas(id));
+    }
+
+    // List canvases newest first, one page per cursor
+    @GetMapping(value = "/canvases")
+    public ResponseEntity<CanvasPageDTO> listCanvases(
+            @RequestParam(value = "owner-id", required = false) String ownerId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "30") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        return ResponseEntity.ok(canvasService.listCanvases(ownerId, cursor, limit));
+    }
+}
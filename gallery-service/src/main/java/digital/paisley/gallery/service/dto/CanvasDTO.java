@@ -0,0 +1,33 @@
+package digital.paisley.gallery.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Canvas with all its details and the URLs of the original and the renditions.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CanvasDTO {
+    private String id;
+    private String ownerId;
+    private String title;
+    private String description;
+    private Instant createdAt;
+    private String contentType;
+    private long size;
+    private int width;
+    private int height;
+    private String originalUrl;
+    private RenditionStatus renditionStatus;
+    private List<RenditionDTO> renditions;
+    private String placeholder;
+}
@@ -0,0 +1,23 @@
+package digital.paisley.gallery.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a gallery listing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CanvasPageDTO {
+    private List<CanvasSummaryDTO> items;
+    /**
+     * Cursor of the next page, or null if this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,29 @@
+package digital.paisley.gallery.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Canvas as shown in gallery listings, without the fields only needed by the detail page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CanvasSummaryDTO {
+    private String id;
+    private String ownerId;
+    private String title;
+    private Instant createdAt;
+    private int width;
+    private int height;
+    private RenditionStatus renditionStatus;
+    private List<RenditionDTO> renditions;
+    private String placeholder;
+}
@@ -0,0 +1,20 @@
+package digital.paisley.gallery.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RenditionDTO {
+    private String name;
+    private int width;
+    private int height;
+    private long size;
+    private String contentType;
+    /**
+     * Download URL of the rendition, relative to the gateway.
+     */
+    private String url;
+}
@@ -1,4 +1,50 @@
 package digital.paisley.gallery.service.entity;
 
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Image of a gallery. The image files live in storage-service under the folder of the canvas;
+ * this document points to the original and to each rendition.
+ */
+@Data
+@NoArgsConstructor
+@Document(Canvas.COLLECTION)
 public class Canvas {
+
+    public static final String COLLECTION = "canvases";
+
+    @Id
+    private String id;
+    private String ownerId;
+    private String title;
+    /**
+     * Free text shown on the detail page only; not loaded by listings.
+     */
+    private String description;
+    private Instant createdAt;
+
+    /**
+     * Folder of the canvas files in the storage bucket.
+     */
+    private String folderName;
+    private String originalFileName;
+    private String contentType;
+    private long size;
+    private int width;
+    private int height;
+
+    private RenditionStatus renditionStatus;
+    private List<Rendition> renditions = new ArrayList<>();
+    /**
+     * Tiny blurred preview as a data URI, shown while the first rendition loads.
+     */
+    private String placeholder;
 }
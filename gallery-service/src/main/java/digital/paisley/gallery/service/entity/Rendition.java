@@ -0,0 +1,23 @@
+package digital.paisley.gallery.service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resized copy of a canvas image, stored next to the original in storage-service.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Rendition {
+    /**
+     * Name of the rendition size, e.g. thumbnail.
+     */
+    private String name;
+    private String fileName;
+    private String contentType;
+    private int width;
+    private int height;
+    private long size;
+}
@@ -0,0 +1,19 @@
+package digital.paisley.gallery.service.enums;
+
+/**
+ * State of the renditions of a canvas.
+ */
+public enum RenditionStatus {
+    /**
+     * The original is stored, renditions are being generated.
+     */
+    PENDING,
+    /**
+     * All renditions and the placeholder are available.
+     */
+    READY,
+    /**
+     * Renditions could not be generated; clients fall back to the original.
+     */
+    FAILED
+}
@@ -0,0 +1,11 @@
+package digital.paisley.gallery.service.exception;
+
+/**
+ * Thrown when a requested canvas does not exist.
+ */
+public class CanvasNotFoundException extends RuntimeException {
+
+    public CanvasNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,42 @@
+package digital.paisley.gallery.service.repository;
+
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by creation time and id, both descending.
+ * Cursors are passed to clients base64url-encoded, so they are opaque and safe in query strings.
+ */
+@Value
+public class CanvasCursor {
+    Instant createdAt;
+    String id;
+
+    public String encode() {
+        String value = createdAt.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Encoded cursor as returned by {@link #encode()}.
+     * @return Decoded cursor.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static CanvasCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+            String id = value.substring(separator + 1);
+            if (separator < 0 || !ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return new CanvasCursor(Instant.ofEpochMilli(Long.parseLong(value.substring(0, separator))), id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package digital.paisley.gallery.service.repository;
+
+import digital.paisley.gallery.service.entity.Canvas;
+import digital.paisley.gallery.service.entity.Rendition;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+
+import java.util.List;
+
+/**
+ * Canvas queries beyond the derived repository methods.
+ */
+public interface CanvasQueryRepository {
+
+    /**
+     * Reads one page of canvases, newest first, seeking to the cursor through the index instead of skipping
+     * documents. Only the fields needed for listings are loaded; description is left null.
+     *
+     * @param ownerId Owner of the canvases, or null for the canvases of all owners.
+     * @param after   Position after which the page starts, or null for the first page.
+     * @param limit   Maximum number of canvases.
+     * @return Canvases in listing order.
+     */
+    List<Canvas> findPage(String ownerId, CanvasCursor after, int limit);
+
+    /**
+     * Records generated renditions without rewriting the rest of the canvas.
+     *
+     * @param id          Id of the canvas.
+     * @param renditions  Generated renditions.
+     * @param placeholder Placeholder data URI.
+     */
+    void completeRenditions(String id, List<Rendition> renditions, String placeholder);
+
+    /**
+     * @param id     Id of the canvas.
+     * @param status New rendition status.
+     */
+    void updateRenditionStatus(String id, RenditionStatus status);
+}
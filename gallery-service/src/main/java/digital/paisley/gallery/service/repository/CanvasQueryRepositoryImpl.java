@@ -0,0 +1,65 @@
+package digital.paisley.gallery.service.repository;
+
+import digital.paisley.gallery.service.entity.Canvas;
+import digital.paisley.gallery.service.entity.Rendition;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+class CanvasQueryRepositoryImpl implements CanvasQueryRepository {
+
+    // Fields of listing entries; everything else stays in the database
+    private static final String[] SUMMARY_FIELDS = {
+            "ownerId", "title", "createdAt", "width", "height", "folderName", "renditionStatus", "renditions", "placeholder"
+    };
+
+    private final MongoTemplate mongoTemplate;
+
+    CanvasQueryRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Canvas> findPage(String ownerId, CanvasCursor after, int limit) {
+        Query query = new Query();
+        if (ownerId != null) {
+            query.addCriteria(Criteria.where("ownerId").is(ownerId));
+        }
+        if (after != null) {
+            // Keyset condition matching the sort order, so the index seeks straight to the page
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.getCreatedAt()),
+                    Criteria.where("createdAt").is(after.getCreatedAt()).and("id").lt(after.getId())
+            ));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt", "id")).limit(limit);
+        query.fields().include(SUMMARY_FIELDS);
+        return mongoTemplate.find(query, Canvas.class);
+    }
+
+    @Override
+    public void completeRenditions(String id, List<Rendition> renditions, String placeholder) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(id)),
+                new Update()
+                        .set("renditions", renditions)
+                        .set("placeholder", placeholder)
+                        .set("renditionStatus", RenditionStatus.READY),
+                Canvas.class
+        );
+    }
+
+    @Override
+    public void updateRenditionStatus(String id, RenditionStatus status) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(id)),
+                Update.update("renditionStatus", status),
+                Canvas.class
+        );
+    }
+}
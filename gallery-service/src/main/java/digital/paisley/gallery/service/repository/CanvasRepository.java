@@ -1,6 +1,7 @@
 package digital.paisley.gallery.service.repository;
 
+import digital.paisley.gallery.service.entity.Canvas;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CanvasRepository extends MongoRepository<Canvas, String> {
+public interface CanvasRepository extends MongoRepository<Canvas, String>, CanvasQueryRepository {
 }
@@ -0,0 +1,133 @@
+package digital.paisley.gallery.service.service;
+
+import digital.paisley.gallery.service.dto.CanvasDTO;
+import digital.paisley.gallery.service.dto.CanvasPageDTO;
+import digital.paisley.gallery.service.dto.CanvasSummaryDTO;
+import digital.paisley.gallery.service.dto.RenditionDTO;
+import digital.paisley.gallery.service.entity.Canvas;
+import digital.paisley.gallery.service.entity.Rendition;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import digital.paisley.gallery.service.exception.CanvasNotFoundException;
+import digital.paisley.gallery.service.repository.CanvasCursor;
+import digital.paisley.gallery.service.repository.CanvasRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canvas service storing the images in storage-service and the canvas documents in MongoDB.
+ * Each canvas gets its own storage folder, {@code <owner>/<canvas id>}, holding the original and the renditions.
+ */
+@Service
+@Slf4j
+public class CanvasService implements ICanvasService {
+
+    private final CanvasRepository canvasRepository;
+    private final StorageClient storageClient;
+    private final RenditionService renditionService;
+
+    public CanvasService(CanvasRepository canvasRepository, StorageClient storageClient, RenditionService renditionService) {
+        this.canvasRepository = canvasRepository;
+        this.storageClient = storageClient;
+        this.renditionService = renditionService;
+    }
+
+    @Override
+    public CanvasDTO createCanvas(MultipartFile file, String ownerId, String title, String description) {
+        if (ownerId == null || ownerId.isBlank() || ownerId.contains("/") || ownerId.contains("..")) {
+            throw new IllegalArgumentException("Invalid owner id.");
+        }
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new IllegalArgumentException("Only images can be uploaded.");
+        }
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading upload: " + e.getMessage(), e);
+        }
+        int[] dimensions = renditionService.probe(content);
+
+        Canvas canvas = new Canvas();
+        canvas.setId(new ObjectId().toHexString());
+        canvas.setOwnerId(ownerId);
+        canvas.setTitle(title);
+        canvas.setDescription(description);
+        // Millisecond precision, as stored by MongoDB and encoded in cursors
+        canvas.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        canvas.setFolderName(ownerId + "/" + canvas.getId());
+        canvas.setOriginalFileName("original" + extension(file.getOriginalFilename()));
+        canvas.setContentType(contentType);
+        canvas.setSize(content.length);
+        canvas.setWidth(dimensions[0]);
+        canvas.setHeight(dimensions[1]);
+        canvas.setRenditionStatus(RenditionStatus.PENDING);
+
+        storageClient.upload(canvas.getFolderName(), canvas.getOriginalFileName(), contentType, content);
+        canvasRepository.save(canvas);
+        renditionService.generateAsync(canvas, content);
+        log.debug("Canvas '{}' created for owner '{}'.", canvas.getId(), ownerId);
+        return toDTO(canvas);
+    }
+
+    @Override
+    public CanvasDTO getCanvas(String id) {
+        return canvasRepository.findById(id)
+                .map(this::toDTO)
+                .orElseThrow(() -> new CanvasNotFoundException("Canvas '" + id + "' does not exist."));
+    }
+
+    @Override
+    public CanvasPageDTO listCanvases(String ownerId, String cursor, int limit) {
+        CanvasCursor after = cursor != null ? CanvasCursor.decode(cursor) : null;
+        // One canvas beyond the limit tells whether there is a next page
+        List<Canvas> canvases = canvasRepository.findPage(ownerId, after, limit + 1);
+        boolean hasNext = canvases.size() > limit;
+        List<CanvasSummaryDTO> items = new ArrayList<>(Math.min(canvases.size(), limit));
+        for (Canvas canvas : canvases.subList(0, Math.min(canvases.size(), limit))) {
+            items.add(new CanvasSummaryDTO(canvas.getId(), canvas.getOwnerId(), canvas.getTitle(), canvas.getCreatedAt(),
+                    canvas.getWidth(), canvas.getHeight(), canvas.getRenditionStatus(), renditions(canvas), canvas.getPlaceholder()));
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            CanvasSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = new CanvasCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CanvasPageDTO(items, nextCursor);
+    }
+
+    private CanvasDTO toDTO(Canvas canvas) {
+        return new CanvasDTO(canvas.getId(), canvas.getOwnerId(), canvas.getTitle(), canvas.getDescription(),
+                canvas.getCreatedAt(), canvas.getContentType(), canvas.getSize(), canvas.getWidth(), canvas.getHeight(),
+                storageClient.downloadUrl(canvas.getFolderName(), canvas.getOriginalFileName()),
+                canvas.getRenditionStatus(), renditions(canvas), canvas.getPlaceholder());
+    }
+
+    private List<RenditionDTO> renditions(Canvas canvas) {
+        List<RenditionDTO> renditions = new ArrayList<>();
+        if (canvas.getRenditions() != null) {
+            for (Rendition rendition : canvas.getRenditions()) {
+                renditions.add(new RenditionDTO(rendition.getName(), rendition.getWidth(), rendition.getHeight(),
+                        rendition.getSize(), rendition.getContentType(),
+                        storageClient.downloadUrl(canvas.getFolderName(), rendition.getFileName())));
+            }
+        }
+        return renditions;
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = fileName.substring(fileName.lastIndexOf('.'));
+        return extension.matches("\\.[A-Za-z0-9]{1,5}") ? extension.toLowerCase() : "";
+    }
+}
@@ -0,0 +1,41 @@
+package digital.paisley.gallery.service.service;
+
+import digital.paisley.gallery.service.dto.CanvasDTO;
+import digital.paisley.gallery.service.dto.CanvasPageDTO;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Interface for managing the canvases of galleries.
+ */
+public interface ICanvasService {
+
+    /**
+     * Stores an uploaded image as a new canvas. The renditions are generated afterwards in the background;
+     * until then the canvas is reported with status PENDING.
+     *
+     * @param file        Uploaded image.
+     * @param ownerId     Owner of the gallery.
+     * @param title       Title of the canvas.
+     * @param description Optional description.
+     * @return The created canvas.
+     */
+    CanvasDTO createCanvas(MultipartFile file, String ownerId, String title, String description);
+
+    /**
+     * Reads a canvas with all its details.
+     *
+     * @param id Id of the canvas.
+     * @return The canvas.
+     */
+    CanvasDTO getCanvas(String id);
+
+    /**
+     * Lists canvases, newest first.
+     *
+     * @param ownerId Owner of the gallery, or null for all galleries.
+     * @param cursor  Cursor returned with the previous page, or null for the first page.
+     * @param limit   Maximum number of canvases.
+     * @return One page of canvases.
+     */
+    CanvasPageDTO listCanvases(String ownerId, String cursor, int limit);
+}
@@ -0,0 +1,222 @@
+package digital.paisley.gallery.service.service;
+
+import digital.paisley.gallery.service.entity.Canvas;
+import digital.paisley.gallery.service.entity.Rendition;
+import digital.paisley.gallery.service.enums.RenditionStatus;
+import digital.paisley.gallery.service.repository.CanvasRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the renditions of uploaded canvas images in the background.
+ * <p>
+ * Every configured size gets one rendition, scaled to the configured width (never enlarged) and stored next to
+ * the original. Images with transparency are stored as PNG, all others as JPEG. A tiny, strongly compressed
+ * placeholder is kept inline in the canvas document. Renditions are scaled from the next larger rendition
+ * instead of the original, halving the size in steps so downscaling stays smooth.
+ */
+@Service
+@Slf4j
+public class RenditionService {
+
+    private static final String JPEG = "image/jpeg";
+    private static final String PNG = "image/png";
+
+    private final StorageClient storageClient;
+    private final CanvasRepository canvasRepository;
+    private final ThreadPoolTaskExecutor executor;
+    private final Map<String, Integer> sizes;
+    private final int placeholderWidth;
+    private final float quality;
+    private final long maxPixels;
+
+    /**
+     * Constructor for RenditionService.
+     *
+     * @param storageClient    Client storing the rendition files.
+     * @param canvasRepository Repository updated once the renditions are stored.
+     * @param executor         Bounded executor generating the renditions.
+     * @param sizes            Rendition sizes as name:width pairs.
+     * @param placeholderWidth Width of the inline placeholder.
+     * @param quality          JPEG quality of the renditions, from 0 to 1.
+     * @param maxPixels        Largest image accepted, in pixels, as decoding needs 4 bytes per pixel.
+     */
+    public RenditionService(
+            StorageClient storageClient,
+            CanvasRepository canvasRepository,
+            @Qualifier("renditionTaskExecutor") ThreadPoolTaskExecutor executor,
+            @Value("${gallery.renditions.sizes:thumbnail:160,small:480,medium:1280}") String[] sizes,
+            @Value("${gallery.renditions.placeholder-width:16}") int placeholderWidth,
+            @Value("${gallery.renditions.quality:0.8}") float quality,
+            @Value("${gallery.renditions.max-pixels:50000000}") long maxPixels
+    ) {
+        this.storageClient = storageClient;
+        this.canvasRepository = canvasRepository;
+        this.executor = executor;
+        this.sizes = new LinkedHashMap<>();
+        for (String size : sizes) {
+            String[] parts = size.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Rendition sizes must be given as name:width, got '" + size + "'.");
+            }
+            this.sizes.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        this.placeholderWidth = placeholderWidth;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Reads the dimensions of an image without decoding it.
+     *
+     * @param content Image file.
+     * @return Width and height.
+     * @throws IllegalArgumentException if the content is not a supported image or too large.
+     */
+    public int[] probe(byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format.");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Image exceeds the maximum of " + maxPixels + " pixels.");
+                }
+                return new int[]{width, height};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable image: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queues the generation of the renditions of a canvas. Never blocks: when the executor is saturated
+     * the canvas is marked as failed and keeps being served from its original.
+     *
+     * @param canvas   Stored canvas.
+     * @param original Content of the original image.
+     */
+    public void generateAsync(Canvas canvas, byte[] original) {
+        try {
+            executor.execute(() -> generate(canvas, original));
+        } catch (TaskRejectedException e) {
+            log.warn("Rendition queue is full, canvas '{}' is served without renditions.", canvas.getId());
+            canvasRepository.updateRenditionStatus(canvas.getId(), RenditionStatus.FAILED);
+        }
+    }
+
+    private void generate(Canvas canvas, byte[] original) {
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(original));
+            if (image == null) {
+                throw new IOException("Unsupported image format.");
+            }
+            boolean transparent = image.getColorModel().hasAlpha();
+            String contentType = transparent ? PNG : JPEG;
+            String extension = transparent ? "png" : "jpg";
+
+            List<Map.Entry<String, Integer>> largestFirst = new ArrayList<>(sizes.entrySet());
+            largestFirst.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()));
+            List<Rendition> renditions = new ArrayList<>();
+            BufferedImage source = image;
+            for (Map.Entry<String, Integer> size : largestFirst) {
+                source = resize(source, size.getValue(), transparent);
+                byte[] encoded = encode(source, transparent, quality);
+                String fileName = size.getKey() + "." + extension;
+                storageClient.upload(canvas.getFolderName(), fileName, contentType, encoded);
+                renditions.add(new Rendition(size.getKey(), fileName, contentType, source.getWidth(), source.getHeight(), encoded.length));
+            }
+            renditions.sort(Comparator.comparingInt(Rendition::getWidth));
+
+            BufferedImage placeholder = resize(source, placeholderWidth, transparent);
+            String placeholderUri = "data:" + contentType + ";base64,"
+                    + Base64.getEncoder().encodeToString(encode(placeholder, transparent, 0.3f));
+
+            canvasRepository.completeRenditions(canvas.getId(), renditions, placeholderUri);
+            log.debug("Generated {} renditions of canvas '{}' in {} ms.", renditions.size(), canvas.getId(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Error generating renditions of canvas '{}': {}", canvas.getId(), e.getMessage());
+            canvasRepository.updateRenditionStatus(canvas.getId(), RenditionStatus.FAILED);
+        }
+    }
+
+    /**
+     * Scales an image down to a width, keeping the aspect ratio, in steps of at most half the size.
+     */
+    static BufferedImage resize(BufferedImage image, int maxWidth, boolean transparent) {
+        int targetWidth = Math.min(maxWidth, image.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * targetWidth / image.getWidth()));
+        int type = transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean transparent, float quality) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (transparent) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,69 @@
+package digital.paisley.gallery.service.service;
+
+import digital.paisley.storage.client.IStorageClient;
+import digital.paisley.storage.client.exception.StorageClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Stores gallery files in storage-service.
+ */
+@Component
+@Slf4j
+public class StorageClient {
+
+    private static final String DOWNLOAD_PATH = "/api/v1/storage/files/download";
+
+    private final IStorageClient storageClient;
+    private final String bucketName;
+
+    /**
+     * Constructor for StorageClient.
+     *
+     * @param storageClient Client of storage-service.
+     * @param bucketName    Bucket holding the gallery files.
+     */
+    public StorageClient(
+            IStorageClient storageClient,
+            @Value("${gallery.storage.bucket-name:gallery-service}") String bucketName
+    ) {
+        this.storageClient = storageClient;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Uploads a file, replacing an existing file of the same name.
+     *
+     * @param folderName  Folder of the file.
+     * @param fileName    Name of the file.
+     * @param contentType Content type of the file.
+     * @param content     Content of the file.
+     */
+    public void upload(String folderName, String fileName, String contentType, byte[] content) {
+        try {
+            storageClient.upload(bucketName, folderName, fileName, contentType, content);
+            log.debug("File '{}' stored in '{}/{}'.", fileName, bucketName, folderName);
+        } catch (StorageClientException e) {
+            log.error("Error storing file '{}' in '{}/{}': {}", fileName, bucketName, folderName, e.getMessage());
+            throw new RuntimeException("Error storing file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the download URL of a file as reachable through the gateway.
+     *
+     * @param folderName Folder of the file.
+     * @param fileName   Name of the file.
+     * @return URL relative to the gateway.
+     */
+    public String downloadUrl(String folderName, String fileName) {
+        return UriComponentsBuilder.fromPath(DOWNLOAD_PATH)
+                .queryParam("bucket-name", bucketName)
+                .queryParam("folder-name", folderName)
+                .queryParam("file-name", fileName)
+                .encode()
+                .toUriString();
+    }
+}
@@ -0,0 +1,42 @@
+package digital.paisley.gallery.service.repository;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CanvasCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        CanvasCursor cursor = new CanvasCursor(Instant.ofEpochMilli(1_700_000_000_123L), new ObjectId().toHexString());
+
+        assertThat(CanvasCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodingIsSafeInQueryStrings() {
+        CanvasCursor cursor = new CanvasCursor(Instant.ofEpochMilli(1_700_000_000_123L), new ObjectId().toHexString());
+
+        assertThat(cursor.encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> CanvasCursor.decode("not base64!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CanvasCursor.decode(encode("1700000000123"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CanvasCursor.decode(encode("1700000000123:not-an-id"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CanvasCursor.decode(encode("yesterday:" + new ObjectId().toHexString())))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor.");
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package digital.paisley.gateway.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory store of cached responses shared by all routes, bounded by the total size of the
+ * cached bodies and evicting the least recently used responses first.
+ */
+@Component
+@Slf4j
+public class ResponseCacheStore {
+
+    // Rough size of an entry besides its body, for the byte budget
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * A cached response. The body and headers never change; the freshness is renewed whenever
+     * the origin confirms that the response is still current.
+     */
+    public static final class CachedResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final String etag;
+        private volatile long freshUntil;
+
+        public CachedResponse(HttpHeaders headers, byte[] body, String etag, long freshUntil) {
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+            this.etag = etag;
+            this.freshUntil = freshUntil;
+        }
+
+        /**
+         * @return Headers of the origin response, without hop-by-hop headers.
+         */
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return Entity tag of the response, including the quotes.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @param now Current {@link System#nanoTime()}.
+         * @return True if the response may be served without asking the origin.
+         */
+        public boolean isFresh(long now) {
+            return now - freshUntil < 0;
+        }
+
+        /**
+         * @param freshUntil {@link System#nanoTime()} until which the response may be served without asking the origin.
+         */
+        public void renew(long freshUntil) {
+            this.freshUntil = freshUntil;
+        }
+
+        private long weight(String key) {
+            return body.length + 2L * key.length() + ENTRY_OVERHEAD;
+        }
+    }
+
+    public ResponseCacheStore(@Value("${gateway.response-cache.max-bytes:64MB}") DataSize maxBytes) {
+        this.maxBytes = maxBytes.toBytes();
+    }
+
+    /**
+     * @return The cached response, or null if there is none.
+     */
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches a response, evicting the least recently used responses until the cache fits its budget.
+     * Responses larger than the whole budget are not cached.
+     */
+    public synchronized void put(String key, CachedResponse response) {
+        long weight = response.weight(key);
+        if (weight > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            totalBytes -= previous.weight(key);
+        }
+        totalBytes += weight;
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = eldest.next();
+            totalBytes -= entry.getValue().weight(entry.getKey());
+            eldest.remove();
+            log.debug("Evicted cached response '{}'.", entry.getKey());
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.weight(key);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package digital.paisley.gateway.service.filter;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Limits the number of requests of a route that are in flight at the same time.
+ * <p>
+ * Requests beyond {@code max-concurrent} wait in a FIFO queue of at most {@code max-queued} requests for
+ * up to {@code queue-timeout}. Requests finding the queue full, or still waiting when the timeout expires,
+ * are answered with 503 Service Unavailable and a {@code Retry-After} header without reaching the service.
+ * The permit is taken where the filter is listed on the route, so requests refused by filters listed before it,
+ * such as {@code RequestRateLimiter}, never occupy one. It is held until the response has been written, so
+ * streamed transfers count for their whole duration; {@link PermitRelease} returns it around the response writer.
+ * Limits apply per gateway instance.
+ * <pre>
+ * spring.cloud.gateway.routes[0].filters[1].name=ConcurrencyLimit
+ * spring.cloud.gateway.routes[0].filters[1].args.max-concurrent=64
+ * spring.cloud.gateway.routes[0].filters[1].args.max-queued=128
+ * spring.cloud.gateway.routes[0].filters[1].args.queue-timeout=2s
+ * </pre>
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+    static final String PERMITS_ATTRIBUTE = ConcurrencyLimitGatewayFilterFactory.class.getName() + ".permits";
+
+    /**
+     * Limits of a route.
+     */
+    @Data
+    public static class Config {
+        /**
+         * Maximum number of requests forwarded at the same time.
+         */
+        private int maxConcurrent = 64;
+        /**
+         * Maximum number of requests waiting for a permit; 0 rejects excess requests immediately.
+         */
+        private int maxQueued = 0;
+        /**
+         * Longest time a request waits for a permit.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(1);
+        /**
+         * Value of the Retry-After header sent with rejections, in seconds.
+         */
+        private int retryAfter = 1;
+    }
+
+    public ConcurrencyLimitGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getMaxConcurrent() < 1 || config.getMaxQueued() < 0) {
+            throw new IllegalArgumentException("ConcurrencyLimit needs max-concurrent >= 1 and max-queued >= 0.");
+        }
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(config.getMaxConcurrent(), config.getMaxQueued());
+        return (exchange, chain) -> limiter.acquire(config.getQueueTimeout())
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        log.debug("Rejected request to '{}', concurrency limit of {} reached.", exchange.getRequest().getPath(), config.getMaxConcurrent());
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                        response.getHeaders().set(RETRY_AFTER_HEADER, Integer.toString(config.getRetryAfter()));
+                        return response.setComplete();
+                    }
+                    Runnable release = limiter::release;
+                    exchange.getAttributes().merge(PERMITS_ATTRIBUTE, release, (held, added) -> (Runnable) () -> {
+                        ((Runnable) held).run();
+                        ((Runnable) added).run();
+                    });
+                    return chain.filter(exchange);
+                });
+    }
+
+    /**
+     * Returns the permits taken for an exchange once its response has been written.
+     */
+    @Component
+    public static class PermitRelease implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            // Wraps the response writer, which only completes once the body has been sent
+            return chain.filter(exchange).doFinally(signal -> {
+                Object permits = exchange.getAttributes().remove(PERMITS_ATTRIBUTE);
+                if (permits != null) {
+                    ((Runnable) permits).run();
+                }
+            });
+        }
+
+        @Override
+        public int getOrder() {
+            return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+        }
+    }
+
+    /**
+     * Counting semaphore with a bounded FIFO queue of waiting requests. A released permit is handed
+     * directly to the oldest waiting request, so queued requests are not overtaken by new ones.
+     */
+    static final class ConcurrencyLimiter {
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final Deque<Sinks.One<Boolean>> waiting = new ArrayDeque<>();
+        private int inFlight;
+
+        ConcurrencyLimiter(int maxConcurrent, int maxQueued) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+        }
+
+        /**
+         * Waits for a permit.
+         *
+         * @param timeout Longest time to wait in the queue.
+         * @return True once a permit is held, which must then be released, or false if the request is rejected.
+         */
+        Mono<Boolean> acquire(Duration timeout) {
+            return Mono.defer(() -> {
+                Sinks.One<Boolean> waiter = Sinks.one();
+                synchronized (this) {
+                    if (inFlight < maxConcurrent) {
+                        inFlight++;
+                        return Mono.just(true);
+                    }
+                    if (waiting.size() >= maxQueued) {
+                        return Mono.just(false);
+                    }
+                    waiting.add(waiter);
+                }
+                return waiter.asMono()
+                        .timeout(timeout, Mono.fromSupplier(() -> !leaveQueue(waiter)))
+                        .doOnCancel(() -> {
+                            if (!leaveQueue(waiter)) {
+                                // The permit was handed over while the client went away
+                                release();
+                            }
+                        });
+            });
+        }
+
+        /**
+         * Returns a permit, handing it to the oldest waiting request if there is one.
+         */
+        void release() {
+            Sinks.One<Boolean> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+            }
+            next.tryEmitValue(true);
+        }
+
+        /**
+         * Removes a request from the queue.
+         *
+         * @return True if it was still waiting, false if a permit has already been handed to it.
+         */
+        private synchronized boolean leaveQueue(Sinks.One<Boolean> waiter) {
+            return waiting.remove(waiter);
+        }
+    }
+}
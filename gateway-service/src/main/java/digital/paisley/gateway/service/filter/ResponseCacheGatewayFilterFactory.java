@@ -0,0 +1,298 @@
+package digital.paisley.gateway.service.filter;
+
+import digital.paisley.gateway.service.cache.ResponseCacheStore;
+import digital.paisley.gateway.service.cache.ResponseCacheStore.CachedResponse;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Caches responses of GET requests in the gateway, so repeated downloads of the same file are served
+ * without a backend hop.
+ * <p>
+ * Only complete 200 responses with an ETag and a Content-Length up to {@code max-entry-size} are cached,
+ * in the byte-budgeted {@link ResponseCacheStore}. A cached response is served as is for {@code time-to-live}
+ * (or the shorter max-age of the origin); after that the origin is asked with {@code If-None-Match} and a 304
+ * renews the cached response, anything else replaces or drops it. Clients sending a matching
+ * {@code If-None-Match} get 304 from the gateway. Responses carry {@code X-Cache: HIT}, {@code REVALIDATED}
+ * or {@code MISS}. Range requests, responses that are private, set cookies or vary on headers outside the
+ * key are passed through.
+ * <p>
+ * The cache key consists of the route, the path, the query parameters in {@code key-query-params} (all of
+ * them if empty) and the request headers in {@code key-headers}. If {@code cache-control} is set, it replaces
+ * the Cache-Control header sent to clients. Cache hits skip the filters ordered after this one, so it should
+ * come first on its route.
+ */
+@Component
+@Slf4j
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    // Hop-by-hop and per-response headers that are not stored with a cached response
+    private static final List<String> UNCACHED_HEADERS = Arrays.asList(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE, CACHE_STATUS_HEADER);
+
+    private final ResponseCacheStore store;
+
+    /**
+     * Caching rules of a route.
+     */
+    @Data
+    public static class Config {
+        /**
+         * How long a cached response is served without asking the origin.
+         */
+        private Duration timeToLive = Duration.ofMinutes(1);
+        /**
+         * Largest response body that is cached.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+        /**
+         * Query parameters forming the cache key; all parameters if empty.
+         */
+        private List<String> keyQueryParams = new ArrayList<>();
+        /**
+         * Request headers forming the cache key; responses varying on other headers are not cached.
+         */
+        private List<String> keyHeaders = new ArrayList<>(List.of(HttpHeaders.ACCEPT_ENCODING));
+        /**
+         * Cache-Control header sent to clients instead of the one of the origin, if set.
+         */
+        private String cacheControl;
+    }
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store) {
+        super(Config.class);
+        this.store = store;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Decorating the response only works ahead of the response writer
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || request.getHeaders().containsKey(HttpHeaders.RANGE)) {
+                return chain.filter(exchange);
+            }
+            String key = cacheKey(exchange, config);
+            CachedResponse cached = store.get(key);
+            if (cached != null && cached.isFresh(System.nanoTime())) {
+                return serve(exchange, exchange.getResponse(), cached, config, "HIT");
+            }
+
+            ServerWebExchange originExchange = exchange;
+            if (cached != null) {
+                // Revalidate with our own validator; the client's one is checked against the cached response
+                originExchange = exchange.mutate().request(request.mutate().headers(headers -> {
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    headers.set(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+                }).build()).build();
+            }
+            CachingResponse response = new CachingResponse(exchange, key, cached, config);
+            return chain.filter(originExchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, ServerHttpResponse response, CachedResponse cached,
+                             Config config, String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        headers.clear();
+        headers.putAll(cached.getHeaders());
+        applyCacheControl(headers, config);
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.getEtag())) {
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private static void applyCacheControl(HttpHeaders headers, Config config) {
+        if (config.getCacheControl() != null && !config.getCacheControl().isEmpty()) {
+            headers.setCacheControl(config.getCacheControl());
+        }
+    }
+
+    private static String cacheKey(ServerWebExchange exchange, Config config) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder();
+        key.append(route != null ? route.getId() : "").append(' ').append(request.getPath().value()).append('?');
+        MultiValueMap<String, String> queryParams = request.getQueryParams();
+        if (config.getKeyQueryParams().isEmpty()) {
+            new TreeMap<>(queryParams).forEach((name, values) -> key.append(name).append('=').append(values).append('&'));
+        } else {
+            for (String name : config.getKeyQueryParams()) {
+                key.append(name).append('=').append(queryParams.get(name)).append('&');
+            }
+        }
+        for (String name : config.getKeyHeaders()) {
+            key.append(' ').append(name.toLowerCase(Locale.ROOT)).append(':').append(request.getHeaders().get(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Weak comparison of entity tags as used for If-None-Match.
+     */
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || weak(candidate).equals(weak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Captures cacheable origin responses while they are sent to the client, and answers
+     * successful revalidations from the cached response.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final CachedResponse cached;
+        private final Config config;
+
+        private CachingResponse(ServerWebExchange exchange, String key, CachedResponse cached, Config config) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.cached = cached;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (cached != null && HttpStatus.NOT_MODIFIED.equals(getStatusCode())) {
+                cached.renew(freshUntil(headers));
+                log.debug("Revalidated cached response '{}'.", key);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> serve(exchange, getDelegate(), cached, config, "REVALIDATED")));
+            }
+            if (cached != null) {
+                store.invalidate(key);
+            }
+            if (!isCacheable(headers)) {
+                return super.writeWith(body);
+            }
+
+            String etag = headers.getETag();
+            long freshUntil = freshUntil(headers);
+            HttpHeaders cachedHeaders = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                    cachedHeaders.put(name, new ArrayList<>(values));
+                }
+            });
+            byte[] content = new byte[(int) headers.getContentLength()];
+            int[] position = {0};
+            Flux<DataBuffer> captured = Flux.from(body)
+                    .map(buffer -> {
+                        int length = buffer.readableByteCount();
+                        if (position[0] >= 0 && position[0] + length <= content.length) {
+                            buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(content), position[0], length);
+                            position[0] += length;
+                        } else {
+                            // More content than announced, do not cache it
+                            position[0] = -1;
+                        }
+                        return (DataBuffer) buffer;
+                    })
+                    .doOnComplete(() -> {
+                        if (position[0] == content.length) {
+                            store.put(key, new CachedResponse(cachedHeaders, content, etag, freshUntil));
+                            log.debug("Cached response '{}' ({} bytes).", key, content.length);
+                        }
+                    });
+            applyCacheControl(headers, config);
+            headers.set(CACHE_STATUS_HEADER, "MISS");
+            return super.writeWith(captured);
+        }
+
+        private boolean isCacheable(HttpHeaders headers) {
+            if (!HttpStatus.OK.equals(getStatusCode()) || headers.getETag() == null
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return false;
+            }
+            long length = headers.getContentLength();
+            if (length < 0 || length > config.getMaxEntrySize().toBytes()) {
+                return false;
+            }
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null) {
+                String directives = cacheControl.toLowerCase(Locale.ROOT);
+                if (directives.contains("no-store") || directives.contains("private")) {
+                    return false;
+                }
+            }
+            for (String vary : headers.getVary()) {
+                if (config.getKeyHeaders().stream().noneMatch(vary::equalsIgnoreCase)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Freshness of a response: the configured time to live, shortened by the max-age of the origin
+         * and zero if the origin requires revalidation.
+         */
+        private long freshUntil(HttpHeaders headers) {
+            long timeToLive = config.getTimeToLive().toNanos();
+            String cacheControl = headers.getCacheControl();
+            if (cacheControl != null) {
+                for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                    directive = directive.trim();
+                    if (directive.equals("no-cache")) {
+                        timeToLive = 0;
+                    } else if (directive.startsWith("max-age=")) {
+                        try {
+                            timeToLive = Math.min(timeToLive, Duration.ofSeconds(Long.parseLong(directive.substring(8))).toNanos());
+                        } catch (NumberFormatException e) {
+                            timeToLive = 0;
+                        }
+                    }
+                }
+            }
+            return System.nanoTime() + timeToLive;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package digital.paisley.gateway.service.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Identifies clients for rate limiting by their IP address.
+ * <p>
+ * The address of the connection is used unless the gateway runs behind a trusted proxy
+ * ({@code gateway.rate-limit.trust-forwarded-for}), in which case the first {@code X-Forwarded-For}
+ * entry is used; clients could otherwise pick their own key by sending the header.
+ */
+@Component("clientAddressKeyResolver")
+public class ClientAddressKeyResolver implements KeyResolver {
+
+    static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final boolean trustForwardedFor;
+
+    public ClientAddressKeyResolver(@Value("${gateway.rate-limit.trust-forwarded-for:false}") boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        if (trustForwardedFor) {
+            String forwardedFor = exchange.getRequest().getHeaders().getFirst(FORWARDED_FOR_HEADER);
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                int comma = forwardedFor.indexOf(',');
+                return Mono.just((comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim());
+            }
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        if (remoteAddress == null) {
+            return Mono.empty();
+        }
+        return Mono.just(remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : remoteAddress.getHostString());
+    }
+}
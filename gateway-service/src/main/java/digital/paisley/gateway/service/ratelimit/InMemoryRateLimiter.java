@@ -0,0 +1,223 @@
+package digital.paisley.gateway.service.ratelimit;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter for the {@code RequestRateLimiter} filter that keeps its buckets in memory,
+ * so no Redis is needed.
+ * <p>
+ * Every client gets one bucket per route, holding up to {@code burst-capacity} tokens and refilled with
+ * {@code replenish-rate} tokens per second; a request takes {@code requested-tokens} tokens. Routes configure
+ * the limiter with {@code in-memory-rate-limiter.*} filter arguments, routes without them use the defaults.
+ * Limits apply per gateway instance. Buckets that have been refilled completely are dropped once the number
+ * of buckets exceeds {@code gateway.rate-limit.max-buckets}, since they are equivalent to new ones. Dropping
+ * them scans all buckets, so it runs in the background and at most once per second, not with every request.
+ */
+@Component
+@Slf4j
+public class InMemoryRateLimiter extends AbstractRateLimiter<InMemoryRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "in-memory-rate-limiter";
+
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Config defaultConfig;
+    private final int maxBuckets;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong nextEvictionAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * Limits of a route.
+     */
+    @Data
+    @Validated
+    public static class Config {
+        /**
+         * Tokens added to a bucket per second.
+         */
+        @Min(1)
+        private int replenishRate;
+        /**
+         * Maximum number of tokens in a bucket, i.e. the largest burst allowed.
+         */
+        @Min(0)
+        private int burstCapacity;
+        /**
+         * Tokens taken by one request.
+         */
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+
+    /**
+     * Constructor for InMemoryRateLimiter.
+     *
+     * @param configurationService  Binds the filter arguments of the routes.
+     * @param defaultReplenishRate  Tokens per second of routes without own limits.
+     * @param defaultBurstCapacity  Bucket size of routes without own limits.
+     * @param maxBuckets            Number of buckets above which completely refilled buckets are dropped.
+     */
+    public InMemoryRateLimiter(
+            ConfigurationService configurationService,
+            @Value("${gateway.rate-limit.default-replenish-rate:50}") int defaultReplenishRate,
+            @Value("${gateway.rate-limit.default-burst-capacity:100}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limit.max-buckets:100000}") int maxBuckets
+    ) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(defaultReplenishRate);
+        this.defaultConfig.setBurstCapacity(defaultBurstCapacity);
+        this.maxBuckets = maxBuckets;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config.getRequestedTokens() > config.getBurstCapacity()) {
+            // Such a route can never be served; refuse instead of waiting forever
+            log.warn("Route '{}' requests {} tokens but its burst capacity is only {}.",
+                    routeId, config.getRequestedTokens(), config.getBurstCapacity());
+            return Mono.just(new Response(false, headers(config, 0, -1)));
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket;
+        long waitNanos;
+        do {
+            // A bucket dropped after the lookup is replaced by a new one
+            bucket = buckets.computeIfAbsent(routeId + "\n" + id, key -> new TokenBucket(config.getBurstCapacity(), now));
+            waitNanos = bucket.tryConsume(config, now);
+        } while (waitNanos == TokenBucket.EVICTED);
+        if (buckets.size() > maxBuckets) {
+            scheduleEviction(now);
+        }
+        Map<String, String> headers = headers(config, bucket.remaining(), waitNanos);
+        return Mono.just(new Response(waitNanos == 0, headers));
+    }
+
+    private static Map<String, String> headers(Config config, long remaining, long waitNanos) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, Long.toString(remaining));
+        headers.put(REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+        if (waitNanos > 0) {
+            headers.put(RETRY_AFTER_HEADER, Long.toString(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        }
+        return headers;
+    }
+
+    /**
+     * Starts a sweep in the background unless one is running or the last one started less than
+     * {@link #EVICTION_INTERVAL_NANOS} ago; while all buckets are in use, the sweeps would find nothing to drop.
+     */
+    private void scheduleEviction(long now) {
+        long next = nextEvictionAt.get();
+        if (now - next < 0 || evicting.get() || !nextEvictionAt.compareAndSet(next, now + EVICTION_INTERVAL_NANOS)) {
+            return;
+        }
+        evicting.set(true);
+        Schedulers.boundedElastic().schedule(this::evictRefilledBuckets);
+    }
+
+    /**
+     * Drops the buckets that are full again.
+     */
+    private void evictRefilledBuckets() {
+        try {
+            long now = System.nanoTime();
+            int before = buckets.size();
+            for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+                entry.getValue().evictIfRefilled(now, () -> buckets.remove(entry.getKey(), entry.getValue()));
+            }
+            log.debug("Dropped {} refilled rate limit buckets.", before - buckets.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Token bucket refilled lazily from the time elapsed since the last request.
+     * Tokens are tracked as fractions, so low rates refill smoothly.
+     */
+    private static final class TokenBucket {
+        private static final long EVICTED = -1;
+
+        private boolean evicted;
+        private double tokens;
+        private double capacity;
+        private double replenishPerNano;
+        private long updatedAt;
+
+        private TokenBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.capacity = capacity;
+            this.updatedAt = now;
+        }
+
+        /**
+         * Takes the tokens of a request if the bucket holds enough of them.
+         *
+         * @return 0 if the request is allowed, {@link #EVICTED} if the bucket has been dropped,
+         * otherwise the nanoseconds until enough tokens are available.
+         */
+        private synchronized long tryConsume(Config config, long now) {
+            if (evicted) {
+                return EVICTED;
+            }
+            capacity = config.getBurstCapacity();
+            replenishPerNano = config.getReplenishRate() / (double) TimeUnit.SECONDS.toNanos(1);
+            refill(now);
+            int requested = config.getRequestedTokens();
+            if (tokens >= requested) {
+                tokens -= requested;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((requested - tokens) / replenishPerNano));
+        }
+
+        private synchronized long remaining() {
+            return (long) tokens;
+        }
+
+        /**
+         * Drops the bucket if it is full again. Checked and removed under the bucket's lock, so no request
+         * takes tokens from a bucket that is no longer in the map.
+         */
+        private synchronized void evictIfRefilled(long now, Runnable remove) {
+            refill(now);
+            if (tokens >= capacity) {
+                evicted = true;
+                remove.run();
+            }
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * replenishPerNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package digital.paisley.gateway.service.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheStoreTest {
+
+    // Each response below weighs 1000 body bytes, 4 key bytes and 512 bytes overhead
+    private final ResponseCacheStore store = new ResponseCacheStore(DataSize.ofBytes(4000));
+
+    @Test
+    void evictsTheLeastRecentlyUsedResponsesBeyondTheBudget() {
+        store.put("k1", response(1000));
+        store.put("k2", response(1000));
+        // Reading k1 makes k2 the least recently used
+        store.get("k1");
+        store.put("k3", response(1000));
+
+        assertThat(store.get("k1")).isNotNull();
+        assertThat(store.get("k2")).isNull();
+        assertThat(store.get("k3")).isNotNull();
+    }
+
+    @Test
+    void replacingAResponseReleasesItsBudget() {
+        store.put("k1", response(1000));
+        store.put("k2", response(1000));
+        store.put("k2", response(1000));
+
+        assertThat(store.get("k1")).isNotNull();
+        assertThat(store.get("k2")).isNotNull();
+    }
+
+    @Test
+    void invalidationReleasesItsBudget() {
+        store.put("k1", response(1000));
+        store.put("k2", response(1000));
+        store.invalidate("k1");
+        store.put("k3", response(1000));
+
+        assertThat(store.get("k2")).isNotNull();
+        assertThat(store.get("k3")).isNotNull();
+    }
+
+    @Test
+    void doesNotCacheResponsesLargerThanTheBudget() {
+        store.put("k1", response(1000));
+        store.put("k2", response(4000));
+
+        assertThat(store.get("k2")).isNull();
+        assertThat(store.get("k1")).isNotNull();
+    }
+
+    @Test
+    void freshnessIsRenewed() {
+        long now = System.nanoTime();
+        ResponseCacheStore.CachedResponse response = new ResponseCacheStore.CachedResponse(new HttpHeaders(), new byte[0], "\"v1\"", now);
+
+        assertThat(response.isFresh(now)).isFalse();
+        response.renew(now + 1_000_000);
+        assertThat(response.isFresh(now)).isTrue();
+    }
+
+    private static ResponseCacheStore.CachedResponse response(int size) {
+        return new ResponseCacheStore.CachedResponse(new HttpHeaders(), new byte[size], "\"etag\"", System.nanoTime() + 1_000_000_000L);
+    }
+}
@@ -0,0 +1,176 @@
+package digital.paisley.gateway.service.filter;
+
+import digital.paisley.gateway.service.cache.ResponseCacheStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String PATH = "/api/v1/storage/files/download?file-name=a.txt";
+
+    private final ResponseCacheGatewayFilterFactory factory =
+            new ResponseCacheGatewayFilterFactory(new ResponseCacheStore(DataSize.ofMegabytes(1)));
+    private final ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+
+    @Test
+    void missIsCapturedAndServedFromTheCacheAfterwards() {
+        Origin origin = new Origin().respond("\"v1\"", "first", headers -> {
+        });
+        GatewayFilter filter = factory.apply(config);
+
+        MockServerWebExchange miss = get(filter, origin, MockServerHttpRequest.get(PATH));
+        assertThat(miss.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(miss.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(miss.getResponse().getBodyAsString().block()).isEqualTo("first");
+
+        MockServerWebExchange hit = get(filter, origin, MockServerHttpRequest.get(PATH));
+        assertThat(hit.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(hit.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(hit.getResponse().getHeaders().getETag()).isEqualTo("\"v1\"");
+        assertThat(hit.getResponse().getBodyAsString().block()).isEqualTo("first");
+        assertThat(origin.requests).hasSize(1);
+    }
+
+    @Test
+    void clientValidatorMatchingTheCachedResponseGets304() {
+        Origin origin = new Origin().respond("\"v1\"", "first", headers -> {
+        });
+        GatewayFilter filter = factory.apply(config);
+        get(filter, origin, MockServerHttpRequest.get(PATH)).getResponse().getBodyAsString().block();
+
+        MockServerWebExchange notModified = get(filter, origin, MockServerHttpRequest.get(PATH).ifNoneMatch("\"v1\""));
+        assertThat(notModified.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(origin.requests).hasSize(1);
+    }
+
+    @Test
+    void staleResponseIsRevalidatedWithItsETag() {
+        config.setTimeToLive(Duration.ZERO);
+        Origin origin = new Origin().respond("\"v1\"", "first", headers -> {
+        });
+        GatewayFilter filter = factory.apply(config);
+        get(filter, origin, MockServerHttpRequest.get(PATH)).getResponse().getBodyAsString().block();
+
+        origin.notModified();
+        MockServerWebExchange revalidated = get(filter, origin, MockServerHttpRequest.get(PATH));
+        assertThat(origin.requests.get(1).getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(revalidated.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("REVALIDATED");
+        assertThat(revalidated.getResponse().getBodyAsString().block()).isEqualTo("first");
+    }
+
+    @Test
+    void changedResponseReplacesTheStaleOne() {
+        config.setTimeToLive(Duration.ZERO);
+        Origin origin = new Origin().respond("\"v1\"", "first", headers -> {
+        });
+        GatewayFilter filter = factory.apply(config);
+        get(filter, origin, MockServerHttpRequest.get(PATH)).getResponse().getBodyAsString().block();
+
+        origin.respond("\"v2\"", "second", headers -> {
+        });
+        MockServerWebExchange changed = get(filter, origin, MockServerHttpRequest.get(PATH));
+        assertThat(changed.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("MISS");
+        assertThat(changed.getResponse().getBodyAsString().block()).isEqualTo("second");
+
+        // The next revalidation asks with the ETag of the replacing response
+        origin.notModified();
+        MockServerWebExchange revalidated = get(filter, origin, MockServerHttpRequest.get(PATH));
+        assertThat(origin.requests.get(2).getIfNoneMatch()).containsExactly("\"v2\"");
+        assertThat(revalidated.getResponse().getBodyAsString().block()).isEqualTo("second");
+    }
+
+    @Test
+    void responsesSettingCookiesAreNotCached() {
+        assertNotCached("small", headers -> headers.add(HttpHeaders.SET_COOKIE, "session=1"));
+    }
+
+    @Test
+    void noStoreResponsesAreNotCached() {
+        assertNotCached("small", headers -> headers.setCacheControl("no-store"));
+    }
+
+    @Test
+    void responsesAboveTheEntrySizeAreNotCached() {
+        config.setMaxEntrySize(DataSize.ofBytes(4));
+        assertNotCached("too large", headers -> {
+        });
+    }
+
+    private void assertNotCached(String body, Consumer<HttpHeaders> headers) {
+        Origin origin = new Origin().respond("\"v1\"", body, headers);
+        GatewayFilter filter = factory.apply(config);
+
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = get(filter, origin, MockServerHttpRequest.get(PATH));
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isNull();
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo(body);
+        }
+        assertThat(origin.requests).hasSize(2);
+    }
+
+    private static MockServerWebExchange get(GatewayFilter filter, Origin origin, MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, origin).block();
+        return exchange;
+    }
+
+    /**
+     * Stands in for the rest of the filter chain, writing the response of the origin like the response writer does.
+     */
+    private static final class Origin implements GatewayFilterChain {
+        private final List<HttpHeaders> requests = new ArrayList<>();
+        private HttpStatus status;
+        private String etag;
+        private byte[] body;
+        private Consumer<HttpHeaders> headers;
+
+        private Origin respond(String etag, String body, Consumer<HttpHeaders> headers) {
+            this.status = HttpStatus.OK;
+            this.etag = etag;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+            this.headers = headers;
+            return this;
+        }
+
+        private void notModified() {
+            this.status = HttpStatus.NOT_MODIFIED;
+            this.body = new byte[0];
+            this.headers = headers -> {
+            };
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            requests.add(exchange.getRequest().getHeaders());
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            response.getHeaders().setETag(etag);
+            if (status == HttpStatus.OK) {
+                response.getHeaders().setContentLength(body.length);
+            }
+            headers.accept(response.getHeaders());
+            return response.writeWith(Flux.just(response.bufferFactory().wrap(body)));
+        }
+    }
+}
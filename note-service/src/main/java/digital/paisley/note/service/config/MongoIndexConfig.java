@@ -0,0 +1,60 @@
+package digital.paisley.note.service.config;
+
+import digital.paisley.note.service.entity.Note;
+import digital.paisley.note.service.entity.NoteRevision;
+import digital.paisley.note.service.entity.NoteTombstone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.time.Duration;
+
+/**
+ * Declares the indexes of the note collections once all beans are created, which is before the web server
+ * starts accepting requests. ensureIndex blocks until an index is built, so building a new index on
+ * a large collection delays startup; creating an index that already exists is a no-op.
+ */
+@Configuration
+@Slf4j
+public class MongoIndexConfig implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${note.search.tombstone-ttl:P1D}")
+    private Duration tombstoneTtl;
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        IndexOperations noteIndexes = mongoTemplate.indexOps(Note.class);
+        // Notes of one owner, most recently edited first
+        noteIndexes.ensureIndex(new Index()
+                .on("ownerId", Sort.Direction.ASC)
+                .on("updatedAt", Sort.Direction.DESC)
+                .named("owner_updated"));
+        // Notes changed since the search index snapshot
+        noteIndexes.ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.DESC)
+                .named("updated"));
+        // One document per revision; serves snapshot lookups, edit replay and history
+        mongoTemplate.indexOps(NoteRevision.class).ensureIndex(new Index()
+                .on("noteId", Sort.Direction.ASC)
+                .on("revision", Sort.Direction.DESC)
+                .unique()
+                .named("note_revision"));
+        // Deletions since the last catch-up of the search index; MongoDB removes them once expired
+        mongoTemplate.indexOps(NoteTombstone.class).ensureIndex(new Index()
+                .on("deletedAt", Sort.Direction.ASC)
+                .expire(tombstoneTtl)
+                .named("deleted"));
+        log.info("Indexes of collections '{}', '{}' and '{}' are in place.", Note.COLLECTION, NoteRevision.COLLECTION, NoteTombstone.COLLECTION);
+    }
+}
@@ -0,0 +1,12 @@
+package digital.paisley.note.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled maintenance tasks, e.g. snapshots of the search index.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,94 @@
+package digital.paisley.note.service.controller;
+
+import digital.paisley.note.service.dto.CreateNoteRequest;
+import digital.paisley.note.service.dto.NoteDTO;
+import digital.paisley.note.service.dto.NoteRevisionDTO;
+import digital.paisley.note.service.dto.NoteSearchResultDTO;
+import digital.paisley.note.service.dto.SaveNoteRequest;
+import digital.paisley.note.service.service.INoteSearchService;
+import digital.paisley.note.service.service.INoteService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/notes")
+public class NoteController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final INoteService noteService;
+    private final INoteSearchService searchService;
+
+    public NoteController(INoteService noteService, INoteSearchService searchService) {
+        this.noteService = noteService;
+        this.searchService = searchService;
+    }
+
+    // Create a note at revision 1
+    @PostMapping
+    public ResponseEntity<NoteDTO> createNote(@RequestBody CreateNoteRequest request) {
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(noteService.createNote(request));
+    }
+
+    // Search notes by words of their title and text, most relevant first
+    @GetMapping(value = "/search")
+    public ResponseEntity<List<NoteSearchResultDTO>> searchNotes(
+            @RequestParam("q") String query,
+            @RequestParam(value = "owner-id", required = false) String ownerId,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        return ResponseEntity.ok(searchService.search(query, ownerId, limit));
+    }
+
+    // Get the latest revision of a note
+    @GetMapping(value = "/{id}")
+    public ResponseEntity<NoteDTO> getNote(@PathVariable("id") String id) {
+
+        return ResponseEntity.ok(noteService.getNote(id));
+    }
+
+    // Save the edited ranges of a note as a new revision; 409 if the base revision is outdated
+    @PatchMapping(value = "/{id}")
+    public ResponseEntity<NoteRevisionDTO> saveNote(@PathVariable("id") String id, @RequestBody SaveNoteRequest request) {
+
+        return ResponseEntity.ok(noteService.saveNote(id, request));
+    }
+
+    // Delete a note with its history
+    @DeleteMapping(value = "/{id}")
+    public ResponseEntity<Void> deleteNote(@PathVariable("id") String id) {
+
+        noteService.deleteNote(id);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    // List the revisions of a note, newest first
+    @GetMapping(value = "/{id}/revisions")
+    public ResponseEntity<List<NoteRevisionDTO>> listRevisions(
+            @PathVariable("id") String id,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "limit", defaultValue = "30") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        return ResponseEntity.ok(noteService.listRevisions(id, before, limit));
+    }
+
+    // Get a note as it was at a given revision
+    @GetMapping(value = "/{id}/revisions/{revision}")
+    public ResponseEntity<NoteDTO> getNoteAtRevision(@PathVariable("id") String id, @PathVariable("revision") long revision) {
+
+        return ResponseEntity.ok(noteService.getNoteAtRevision(id, revision));
+    }
+}
@@ -0,0 +1,13 @@
+package digital.paisley.note.service.dto;
+
+import lombok.Data;
+
+@Data
+public class CreateNoteRequest {
+    private String ownerId;
+    private String title;
+    /**
+     * Initial HTML content; empty if omitted.
+     */
+    private String content;
+}
@@ -0,0 +1,18 @@
+package digital.paisley.note.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NoteDTO {
+    private String id;
+    private String ownerId;
+    private String title;
+    private String content;
+    private long revision;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
@@ -0,0 +1,20 @@
+package digital.paisley.note.service.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class NoteRevisionDTO {
+    private String noteId;
+    private long revision;
+    /**
+     * Length of the content of the revision.
+     */
+    private int length;
+    /**
+     * Whether the whole content was stored with the revision.
+     */
+    private boolean snapshot;
+    private Instant createdAt;
+}
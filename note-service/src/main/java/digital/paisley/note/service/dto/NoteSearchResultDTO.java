@@ -0,0 +1,18 @@
+package digital.paisley.note.service.dto;
+
+import lombok.Data;
+
+@Data
+public class NoteSearchResultDTO {
+    private String id;
+    private String ownerId;
+    private String title;
+    /**
+     * Revision the match was found in.
+     */
+    private long revision;
+    /**
+     * Relevance of the note to the query; only meaningful relative to the other results.
+     */
+    private double score;
+}
@@ -0,0 +1,25 @@
+package digital.paisley.note.service.dto;
+
+import digital.paisley.note.service.entity.TextEdit;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Changes of a note since the revision the client last read.
+ */
+@Data
+public class SaveNoteRequest {
+    /**
+     * Revision the edits refer to; the save is rejected if the note has moved on since.
+     */
+    private Long baseRevision;
+    /**
+     * Sorted, non-overlapping range replacements, with offsets in the base revision.
+     */
+    private List<TextEdit> edits;
+    /**
+     * New title, or null to keep the current one.
+     */
+    private String title;
+}
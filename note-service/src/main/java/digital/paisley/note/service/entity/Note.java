@@ -0,0 +1,44 @@
+package digital.paisley.note.service.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * HTML document with its latest revision materialized, so reading it never replays edits.
+ * The history of the document is kept as {@link NoteRevision}s.
+ */
+@Data
+@NoArgsConstructor
+@Document(Note.COLLECTION)
+public class Note {
+
+    public static final String COLLECTION = "notes";
+
+    @Id
+    private String id;
+    private String ownerId;
+    private String title;
+    /**
+     * HTML content of the latest revision.
+     */
+    private String content;
+    /**
+     * Number of the latest revision, starting at 1.
+     */
+    private long revision;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    /**
+     * Revisions stored as edits since the last snapshot.
+     */
+    private int revisionsSinceSnapshot;
+    /**
+     * Size of the edits stored since the last snapshot, in characters.
+     */
+    private long editSizeSinceSnapshot;
+}
@@ -0,0 +1,43 @@
+package digital.paisley.note.service.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One revision of a note: either the edits turning the previous revision into this one,
+ * or, for snapshot revisions, the whole content as well.
+ */
+@Data
+@NoArgsConstructor
+@Document(NoteRevision.COLLECTION)
+public class NoteRevision {
+
+    public static final String COLLECTION = "note_revisions";
+
+    @Id
+    private String id;
+    private String noteId;
+    private long revision;
+    /**
+     * Edits applied to the previous revision; empty for the first revision.
+     */
+    private List<TextEdit> edits;
+    /**
+     * Whether the whole content of this revision is stored, so rebuilding can start here.
+     */
+    private boolean snapshot;
+    /**
+     * Content of snapshot revisions, null otherwise.
+     */
+    private String content;
+    /**
+     * Length of the content of this revision.
+     */
+    private int length;
+    private Instant createdAt;
+}
@@ -0,0 +1,29 @@
+package digital.paisley.note.service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Marks a deleted note, so search indexes of other instances can drop it as well.
+ * Tombstones expire once every index has caught up with them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(NoteTombstone.COLLECTION)
+public class NoteTombstone {
+
+    public static final String COLLECTION = "note_tombstones";
+
+    /**
+     * Id of the deleted note.
+     */
+    @Id
+    private String id;
+    private Instant deletedAt;
+}
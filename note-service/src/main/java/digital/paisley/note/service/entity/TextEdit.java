@@ -0,0 +1,27 @@
+package digital.paisley.note.service.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Replacement of a range of a document. Offsets count UTF-16 code units, like JavaScript string indices,
+ * and refer to the document the edit is applied to.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TextEdit {
+    /**
+     * First replaced position.
+     */
+    private int start;
+    /**
+     * Position after the last replaced character; equal to start for pure insertions.
+     */
+    private int end;
+    /**
+     * Inserted text, empty for pure deletions.
+     */
+    private String text;
+}
@@ -0,0 +1,18 @@
+package digital.paisley.note.service.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when edits refer to a revision that is no longer the latest one.
+ * The client has to reload the note, or rebase its edits, and save again.
+ */
+@Getter
+public class NoteConflictException extends RuntimeException {
+
+    private final long currentRevision;
+
+    public NoteConflictException(String message, long currentRevision) {
+        super(message);
+        this.currentRevision = currentRevision;
+    }
+}
@@ -0,0 +1,11 @@
+package digital.paisley.note.service.exception;
+
+/**
+ * Thrown when a requested note or revision does not exist.
+ */
+public class NoteNotFoundException extends RuntimeException {
+
+    public NoteNotFoundException(String message) {
+        super(message);
+    }
+}
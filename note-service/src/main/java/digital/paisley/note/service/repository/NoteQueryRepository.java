@@ -0,0 +1,18 @@
+package digital.paisley.note.service.repository;
+
+import digital.paisley.note.service.entity.Note;
+
+/**
+ * Conditional updates of notes, beyond the derived queries of {@link NoteRepository}.
+ */
+public interface NoteQueryRepository {
+
+    /**
+     * Replaces the latest revision of a note, provided it is still at the given base revision.
+     *
+     * @param note         Note holding the new revision, content and snapshot counters.
+     * @param baseRevision Revision the note must be at.
+     * @return True if the note was updated, false if it is missing or at another revision.
+     */
+    boolean advance(Note note, long baseRevision);
+}
@@ -0,0 +1,31 @@
+package digital.paisley.note.service.repository;
+
+import digital.paisley.note.service.entity.Note;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+class NoteQueryRepositoryImpl implements NoteQueryRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    NoteQueryRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean advance(Note note, long baseRevision) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(note.getId()).and("revision").is(baseRevision)),
+                new Update()
+                        .set("title", note.getTitle())
+                        .set("content", note.getContent())
+                        .set("revision", note.getRevision())
+                        .set("updatedAt", note.getUpdatedAt())
+                        .set("revisionsSinceSnapshot", note.getRevisionsSinceSnapshot())
+                        .set("editSizeSinceSnapshot", note.getEditSizeSinceSnapshot()),
+                Note.class
+        ).getModifiedCount() == 1;
+    }
+}
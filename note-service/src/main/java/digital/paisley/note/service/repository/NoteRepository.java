@@ -0,0 +1,7 @@
+package digital.paisley.note.service.repository;
+
+import digital.paisley.note.service.entity.Note;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface NoteRepository extends MongoRepository<Note, String>, NoteQueryRepository {
+}
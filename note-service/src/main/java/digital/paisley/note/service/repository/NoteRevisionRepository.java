@@ -0,0 +1,29 @@
+package digital.paisley.note.service.repository;
+
+import digital.paisley.note.service.entity.NoteRevision;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface NoteRevisionRepository extends MongoRepository<NoteRevision, String> {
+
+    // Closest snapshot at or before a revision, where rebuilding starts
+    Optional<NoteRevision> findFirstByNoteIdAndRevisionLessThanEqualAndSnapshotTrueOrderByRevisionDesc(String noteId, long revision);
+
+    // Edits to replay on top of a snapshot
+    @Query(value = "{ 'noteId': ?0, 'revision': { $gt: ?1, $lte: ?2 } }", fields = "{ 'content': 0 }", sort = "{ 'revision': 1 }")
+    List<NoteRevision> findEdits(String noteId, long afterRevision, long toRevision);
+
+    // History of a note, newest first, without contents
+    @Query(value = "{ 'noteId': ?0, 'revision': { $lt: ?1 } }", fields = "{ 'content': 0, 'edits': 0 }", sort = "{ 'revision': -1 }")
+    List<NoteRevision> findHistory(String noteId, long beforeRevision, Pageable pageable);
+
+    void deleteByNoteId(String noteId);
+
+    // Revision left behind by a save that failed before advancing the note
+    long deleteByNoteIdAndRevisionAndCreatedAtBefore(String noteId, long revision, Instant before);
+}
@@ -0,0 +1,7 @@
+package digital.paisley.note.service.repository;
+
+import digital.paisley.note.service.entity.NoteTombstone;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface NoteTombstoneRepository extends MongoRepository<NoteTombstone, String> {
+}
@@ -0,0 +1,312 @@
+package digital.paisley.note.service.search;
+
+import lombok.Value;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index ranking documents with BM25.
+ * <p>
+ * Next to the postings (term to documents), the index keeps the terms of every document, so a document
+ * can be replaced or removed without scanning the postings, and so snapshots only need the documents.
+ * Readers run concurrently; updates take an exclusive lock for the few postings they touch.
+ */
+public class InvertedIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x4E544958;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // BM25 parameters: saturation of term frequencies and strength of the length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    /**
+     * Indexed document.
+     */
+    @Value
+    public static class Document {
+        String id;
+        /**
+         * Owner, used to filter results.
+         */
+        String ownerId;
+        /**
+         * Title returned with results.
+         */
+        String title;
+        /**
+         * Revision the terms were extracted from.
+         */
+        long revision;
+        /**
+         * Number of terms.
+         */
+        int length;
+        /**
+         * Occurrences of each term.
+         */
+        Map<String, Integer> terms;
+    }
+
+    /**
+     * Ranked search result.
+     */
+    @Value
+    public static class Hit {
+        Document document;
+        double score;
+    }
+
+    /**
+     * Adds a document, replacing an earlier revision of it.
+     *
+     * @param document Document to add.
+     * @return False if a newer or the same revision is already indexed.
+     */
+    public boolean put(Document document) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.get(document.getId());
+            if (previous != null) {
+                if (previous.getRevision() >= document.getRevision()) {
+                    return false;
+                }
+                unlink(previous);
+            }
+            documents.put(document.getId(), document);
+            totalLength += document.getLength();
+            document.getTerms().forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(document.getId(), frequency));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param id Id of the document.
+     * @return True if the document was indexed.
+     */
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            unlink(previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the documents containing any of the terms.
+     *
+     * @param terms   Distinct query terms.
+     * @param ownerId Only rank documents of this owner, or null for all documents.
+     * @param limit   Maximum number of results.
+     * @return The best results, best first.
+     */
+    public List<Hit> search(Collection<String> terms, String ownerId, int limit) {
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            if (count == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = Math.max(1.0, (double) totalLength / count);
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<String, Integer> matches = postings.get(term);
+                if (matches == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (count - matches.size() + 0.5) / (matches.size() + 0.5));
+                for (Map.Entry<String, Integer> match : matches.entrySet()) {
+                    Document document = documents.get(match.getKey());
+                    if (ownerId != null && !ownerId.equals(document.getOwnerId())) {
+                        continue;
+                    }
+                    int frequency = match.getValue();
+                    double norm = K1 * (1 - B + B * document.getLength() / averageLength);
+                    scores.merge(match.getKey(), idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                }
+            }
+
+            // Keep the best results only, instead of sorting all matches
+            PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::getScore));
+            scores.forEach((id, score) -> {
+                if (best.size() < limit) {
+                    best.add(new Hit(documents.get(id), score));
+                } else if (best.peek().getScore() < score) {
+                    best.poll();
+                    best.add(new Hit(documents.get(id), score));
+                }
+            });
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Comparator.comparingDouble(Hit::getScore).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Ids of the indexed documents.
+     */
+    public Set<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of indexed documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the documents of the index as they are when the method is called. Documents are never
+     * changed once indexed, so updates only wait while the documents are collected, not while they are written.
+     *
+     * @param output    Stream to write to; not closed.
+     * @param timestamp Time the snapshot reflects, returned by {@link #read}.
+     */
+    public void write(OutputStream output, long timestamp) throws IOException {
+        List<Document> snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = new ArrayList<>(documents.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(SNAPSHOT_MAGIC);
+        data.writeInt(SNAPSHOT_VERSION);
+        data.writeLong(timestamp);
+        data.writeInt(snapshot.size());
+        for (Document document : snapshot) {
+            writeString(data, document.getId());
+            writeString(data, document.getOwnerId());
+            writeString(data, document.getTitle());
+            data.writeLong(document.getRevision());
+            data.writeInt(document.getLength());
+            data.writeInt(document.getTerms().size());
+            for (Map.Entry<String, Integer> term : document.getTerms().entrySet()) {
+                writeString(data, term.getKey());
+                data.writeInt(term.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Replaces the content of the index with a snapshot written by {@link #write}.
+     *
+     * @param input Stream to read from; not closed.
+     * @return The timestamp of the snapshot.
+     * @throws IOException If the snapshot cannot be read or has another format.
+     */
+    public long read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != SNAPSHOT_MAGIC || data.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported index snapshot format.");
+        }
+        long timestamp = data.readLong();
+        int count = data.readInt();
+        List<Document> loaded = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(data);
+            String ownerId = readString(data);
+            String title = readString(data);
+            long revision = data.readLong();
+            int length = data.readInt();
+            int termCount = data.readInt();
+            Map<String, Integer> terms = new HashMap<>(termCount * 4 / 3 + 1);
+            for (int j = 0; j < termCount; j++) {
+                terms.put(readString(data).intern(), data.readInt());
+            }
+            loaded.add(new Document(id, ownerId, title, revision, length, terms));
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            loaded.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return timestamp;
+    }
+
+    private void unlink(Document document) {
+        totalLength -= document.getLength();
+        for (String term : document.getTerms().keySet()) {
+            Map<String, Integer> matches = postings.get(term);
+            if (matches != null) {
+                matches.remove(document.getId());
+                if (matches.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package digital.paisley.note.service.service;
+
+import digital.paisley.note.service.dto.NoteSearchResultDTO;
+import digital.paisley.note.service.entity.Note;
+
+import java.util.List;
+
+/**
+ * Interface for the full-text search of notes.
+ */
+public interface INoteSearchService {
+
+    /**
+     * Adds the latest revision of a note to the index, replacing the earlier one.
+     *
+     * @param note Note with its content.
+     */
+    void indexNote(Note note);
+
+    /**
+     * Removes a note from the index.
+     *
+     * @param id Id of the note.
+     */
+    void removeNote(String id);
+
+    /**
+     * Finds the notes containing the words of a query, most relevant first.
+     *
+     * @param query   Words to look for.
+     * @param ownerId Only search the notes of this owner, or null for all notes.
+     * @param limit   Maximum number of results.
+     * @return The matching notes.
+     */
+    List<NoteSearchResultDTO> search(String query, String ownerId, int limit);
+}
@@ -0,0 +1,66 @@
+package digital.paisley.note.service.service;
+
+import digital.paisley.note.service.dto.CreateNoteRequest;
+import digital.paisley.note.service.dto.NoteDTO;
+import digital.paisley.note.service.dto.NoteRevisionDTO;
+import digital.paisley.note.service.dto.SaveNoteRequest;
+
+import java.util.List;
+
+/**
+ * Interface for managing notes and their revisions.
+ */
+public interface INoteService {
+
+    /**
+     * Creates a note at revision 1.
+     *
+     * @param request Owner, title and initial content.
+     * @return The created note.
+     */
+    NoteDTO createNote(CreateNoteRequest request);
+
+    /**
+     * Reads the latest revision of a note.
+     *
+     * @param id Id of the note.
+     * @return The note with its content.
+     */
+    NoteDTO getNote(String id);
+
+    /**
+     * Rebuilds an earlier revision of a note from the closest snapshot and the edits stored after it.
+     *
+     * @param id       Id of the note.
+     * @param revision Revision to rebuild.
+     * @return The note as it was at that revision.
+     */
+    NoteDTO getNoteAtRevision(String id, long revision);
+
+    /**
+     * Saves the changes of a note as a new revision. Only the edited ranges are stored,
+     * and the whole content every now and then, so that rebuilding a revision stays cheap.
+     *
+     * @param id      Id of the note.
+     * @param request Base revision and edits relative to it.
+     * @return The new revision, or the current one if nothing changed.
+     */
+    NoteRevisionDTO saveNote(String id, SaveNoteRequest request);
+
+    /**
+     * Lists the revisions of a note, newest first.
+     *
+     * @param id     Id of the note.
+     * @param before Only list revisions older than this one, or null to start at the latest.
+     * @param limit  Maximum number of revisions.
+     * @return Revisions without their content.
+     */
+    List<NoteRevisionDTO> listRevisions(String id, Long before, int limit);
+
+    /**
+     * Deletes a note with all its revisions.
+     *
+     * @param id Id of the note.
+     */
+    void deleteNote(String id);
+}
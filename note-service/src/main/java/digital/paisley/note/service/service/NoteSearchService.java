@@ -0,0 +1,231 @@
+package digital.paisley.note.service.service;
+
+import digital.paisley.note.service.dto.NoteSearchResultDTO;
+import digital.paisley.note.service.entity.Note;
+import digital.paisley.note.service.entity.NoteTombstone;
+import digital.paisley.note.service.search.InvertedIndex;
+import digital.paisley.note.service.util.HtmlText;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Search service keeping an in-memory inverted index of all notes, updated with every save.
+ * <p>
+ * The index is written to local disk periodically and on shutdown. At startup it is loaded from there,
+ * and only the notes changed since the snapshot are read from MongoDB; without a snapshot, all notes are indexed.
+ * <p>
+ * Every instance keeps its own index. Saves and deletes made by other instances are picked up by a periodic
+ * catch-up reading the notes whose {@code updatedAt} and the {@link NoteTombstone}s whose {@code deletedAt}
+ * is newer than the previous catch-up, so all indexes converge within {@code note.search.catch-up-interval}.
+ */
+@Service
+@Slf4j
+public class NoteSearchService implements INoteSearchService, SmartInitializingSingleton {
+
+    // Saves that were in flight while a snapshot was written or a catch-up ran, or whose instance's clock
+    // runs behind, are picked up again by the next catch-up
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(1);
+
+    private static final String[] INDEXED_FIELDS = {"ownerId", "title", "content", "revision"};
+
+    private final MongoTemplate mongoTemplate;
+    private final InvertedIndex index = new InvertedIndex();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Start of the last successful catch-up, null until the index is loaded
+    private volatile Instant caughtUpAt;
+
+    @Value("${note.search.snapshot-path:data/note-index.snapshot}")
+    private Path snapshotPath;
+
+    public NoteSearchService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Loads the index once all beans are created. This runs before the web server starts,
+     * so no search is answered from a partially loaded index; startup takes as long as the loading.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        loadIndex();
+    }
+
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        Instant loadStart = Instant.now();
+        Instant snapshotTime = readSnapshot();
+        Query changed = new Query();
+        if (snapshotTime != null) {
+            changed.addCriteria(Criteria.where("updatedAt").gte(snapshotTime.minus(CATCH_UP_MARGIN)));
+        }
+        changed.fields().include(INDEXED_FIELDS);
+        int indexed = 0;
+        try (Stream<Note> notes = mongoTemplate.stream(changed, Note.class)) {
+            for (Note note : (Iterable<Note>) notes::iterator) {
+                indexNote(note);
+                indexed++;
+            }
+        }
+        int removed = 0;
+        if (snapshotTime != null) {
+            // Notes deleted since the snapshot
+            Set<String> stale = index.ids();
+            Query ids = new Query();
+            ids.fields().include("id");
+            try (Stream<Note> notes = mongoTemplate.stream(ids, Note.class)) {
+                notes.forEach(note -> stale.remove(note.getId()));
+            }
+            stale.forEach(this::removeNote);
+            removed = stale.size();
+        }
+        caughtUpAt = loadStart;
+        log.info("Search index of {} notes loaded in {} ms ({} notes indexed, {} removed since the snapshot).",
+                index.size(), System.currentTimeMillis() - start, indexed, removed);
+    }
+
+    /**
+     * Applies the saves and deletes made since the previous catch-up, including those of other instances.
+     * Notes are read before tombstones, so a note deleted while it was being read is removed again.
+     */
+    @Scheduled(fixedDelayString = "${note.search.catch-up-interval:PT30S}", initialDelayString = "${note.search.catch-up-interval:PT30S}")
+    public void catchUp() {
+        Instant previous = caughtUpAt;
+        if (previous == null) {
+            return;
+        }
+        Instant start = Instant.now();
+        Instant since = previous.minus(CATCH_UP_MARGIN);
+        try {
+            Query changed = new Query(Criteria.where("updatedAt").gte(since));
+            changed.fields().include(INDEXED_FIELDS);
+            int indexed = 0;
+            try (Stream<Note> notes = mongoTemplate.stream(changed, Note.class)) {
+                for (Note note : (Iterable<Note>) notes::iterator) {
+                    indexNote(note);
+                    indexed++;
+                }
+            }
+            int removed = 0;
+            Query deleted = new Query(Criteria.where("deletedAt").gte(since));
+            try (Stream<NoteTombstone> tombstones = mongoTemplate.stream(deleted, NoteTombstone.class)) {
+                for (NoteTombstone tombstone : (Iterable<NoteTombstone>) tombstones::iterator) {
+                    removeNote(tombstone.getId());
+                    removed++;
+                }
+            }
+            caughtUpAt = start;
+            log.debug("Search index caught up ({} notes changed, {} deleted since {}).", indexed, removed, since);
+        } catch (RuntimeException e) {
+            // Retried from the same point with the next catch-up
+            log.warn("Could not catch up the search index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void indexNote(Note note) {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = 0;
+        if (note.getTitle() != null) {
+            length += HtmlText.addTerms(note.getTitle(), terms);
+        }
+        length += HtmlText.addTerms(HtmlText.toText(note.getContent()), terms);
+        if (index.put(new InvertedIndex.Document(note.getId(), note.getOwnerId(), note.getTitle(), note.getRevision(), length, terms))) {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public void removeNote(String id) {
+        if (index.remove(id)) {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public List<NoteSearchResultDTO> search(String query, String ownerId, int limit) {
+        return index.search(HtmlText.terms(query), ownerId, limit).stream()
+                .map(hit -> {
+                    NoteSearchResultDTO dto = new NoteSearchResultDTO();
+                    dto.setId(hit.getDocument().getId());
+                    dto.setOwnerId(hit.getDocument().getOwnerId());
+                    dto.setTitle(hit.getDocument().getTitle());
+                    dto.setRevision(hit.getDocument().getRevision());
+                    dto.setScore(hit.getScore());
+                    return dto;
+                })
+                .toList();
+    }
+
+    /**
+     * Writes the index to disk if it changed since the last snapshot.
+     */
+    @Scheduled(fixedDelayString = "${note.search.snapshot-interval:PT5M}", initialDelayString = "${note.search.snapshot-interval:PT5M}")
+    public void writeSnapshot() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Instant timestamp = Instant.now();
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Written aside and moved in place, so a crash never leaves a truncated snapshot behind
+            Path temp = Files.createTempFile(directory, ".note-index-", ".tmp");
+            try {
+                try (OutputStream output = new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)))) {
+                    index.write(output, timestamp.toEpochMilli());
+                }
+                Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.debug("Search index snapshot written to '{}'.", snapshotPath);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Could not write the search index snapshot to '{}': {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writeSnapshot();
+    }
+
+    private Instant readSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            log.info("No search index snapshot at '{}', indexing all notes.", snapshotPath);
+            return null;
+        }
+        try (InputStream input = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(snapshotPath)))) {
+            return Instant.ofEpochMilli(index.read(input));
+        } catch (IOException e) {
+            log.warn("Could not read the search index snapshot '{}', indexing all notes: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+}
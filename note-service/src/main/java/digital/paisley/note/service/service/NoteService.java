@@ -0,0 +1,287 @@
+package digital.paisley.note.service.service;
+
+import digital.paisley.note.service.dto.CreateNoteRequest;
+import digital.paisley.note.service.dto.NoteDTO;
+import digital.paisley.note.service.dto.NoteRevisionDTO;
+import digital.paisley.note.service.dto.SaveNoteRequest;
+import digital.paisley.note.service.entity.Note;
+import digital.paisley.note.service.entity.NoteRevision;
+import digital.paisley.note.service.entity.NoteTombstone;
+import digital.paisley.note.service.entity.TextEdit;
+import digital.paisley.note.service.exception.NoteConflictException;
+import digital.paisley.note.service.exception.NoteNotFoundException;
+import digital.paisley.note.service.repository.NoteRepository;
+import digital.paisley.note.service.repository.NoteRevisionRepository;
+import digital.paisley.note.service.repository.NoteTombstoneRepository;
+import digital.paisley.note.service.util.TextEdits;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Note service keeping the latest content of each note materialized in its document and the history
+ * as one document per revision. Revisions hold the edited ranges only; every now and then a revision
+ * also holds the whole content, so rebuilding an old revision replays a bounded number of edits.
+ * <p>
+ * A snapshot is taken when the edits stored since the last one add up to a share of the document size,
+ * which keeps the storage of a note proportional to the size of its edits, or when they become too many
+ * to replay quickly.
+ * <p>
+ * Notes and revisions live in MongoDB rather than in storage-service. Its objects are only written whole,
+ * so persisting a range edit there would still mean uploading a whole object per save, and it offers no
+ * conditional write to reject saves made against an outdated base revision, nor queries for the closest
+ * snapshot or a page of history. MongoDB, which note-service already depends on, covers all three with
+ * small documents, a conditional update and the unique index on note and revision.
+ */
+@Service
+@Slf4j
+public class NoteService implements INoteService {
+
+    // A revision this old whose note was never advanced to it belongs to a failed save
+    private static final Duration ORPHANED_REVISION_AGE = Duration.ofMinutes(1);
+
+    private final NoteRepository noteRepository;
+    private final NoteRevisionRepository revisionRepository;
+    private final NoteTombstoneRepository tombstoneRepository;
+    private final INoteSearchService searchService;
+
+    @Value("${note.revisions.snapshot-edit-ratio:0.5}")
+    private double snapshotEditRatio;
+
+    @Value("${note.revisions.max-edits-between-snapshots:100}")
+    private int maxEditsBetweenSnapshots;
+
+    @Value("${note.max-content-length:2000000}")
+    private int maxContentLength;
+
+    public NoteService(NoteRepository noteRepository, NoteRevisionRepository revisionRepository,
+                       NoteTombstoneRepository tombstoneRepository, INoteSearchService searchService) {
+        this.noteRepository = noteRepository;
+        this.revisionRepository = revisionRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.searchService = searchService;
+    }
+
+    @Override
+    public NoteDTO createNote(CreateNoteRequest request) {
+        if (request.getOwnerId() == null || request.getOwnerId().isBlank()) {
+            throw new IllegalArgumentException("Owner id is required.");
+        }
+        String content = request.getContent() == null ? "" : request.getContent();
+        checkLength(content.length());
+
+        Note note = new Note();
+        note.setId(new ObjectId().toHexString());
+        note.setOwnerId(request.getOwnerId());
+        note.setTitle(request.getTitle());
+        note.setContent(content);
+        note.setRevision(1);
+        // Millisecond precision, as stored by MongoDB
+        note.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        note.setUpdatedAt(note.getCreatedAt());
+
+        // The first revision is written before the note, so a note is never visible without its history
+        NoteRevision first = revisionRepository.insert(revision(note, List.of(), true));
+        try {
+            noteRepository.insert(note);
+        } catch (RuntimeException e) {
+            revisionRepository.delete(first);
+            throw e;
+        }
+        searchService.indexNote(note);
+        log.debug("Note '{}' created for owner '{}'.", note.getId(), note.getOwnerId());
+        return toDTO(note);
+    }
+
+    @Override
+    public NoteDTO getNote(String id) {
+        return toDTO(findNote(id));
+    }
+
+    @Override
+    public NoteDTO getNoteAtRevision(String id, long revision) {
+        Note note = findNote(id);
+        if (revision < 1 || revision > note.getRevision()) {
+            throw new NoteNotFoundException("Revision " + revision + " of note '" + id + "' does not exist.");
+        }
+        NoteDTO dto = toDTO(note);
+        if (revision == note.getRevision()) {
+            return dto;
+        }
+
+        NoteRevision snapshot = revisionRepository
+                .findFirstByNoteIdAndRevisionLessThanEqualAndSnapshotTrueOrderByRevisionDesc(id, revision)
+                .orElseThrow(() -> new IllegalStateException("No snapshot found for revision " + revision + " of note '" + id + "'."));
+        String content = snapshot.getContent();
+        long expected = snapshot.getRevision() + 1;
+        for (NoteRevision edits : revisionRepository.findEdits(id, snapshot.getRevision(), revision)) {
+            if (edits.getRevision() != expected) {
+                throw new IllegalStateException("Revision " + expected + " of note '" + id + "' is missing.");
+            }
+            content = TextEdits.apply(content, edits.getEdits());
+            expected++;
+        }
+        if (expected != revision + 1) {
+            throw new IllegalStateException("Revision " + expected + " of note '" + id + "' is missing.");
+        }
+
+        dto.setContent(content);
+        dto.setRevision(revision);
+        dto.setUpdatedAt(null);
+        return dto;
+    }
+
+    @Override
+    public NoteRevisionDTO saveNote(String id, SaveNoteRequest request) {
+        if (request.getBaseRevision() == null) {
+            throw new IllegalArgumentException("Base revision is required.");
+        }
+        long baseRevision = request.getBaseRevision();
+        List<TextEdit> edits = request.getEdits() == null ? List.of() : request.getEdits();
+
+        Note note = findNote(id);
+        if (note.getRevision() != baseRevision) {
+            throw conflict(id, baseRevision, note.getRevision());
+        }
+        TextEdits.validate(edits, note.getContent().length());
+        int length = TextEdits.length(note.getContent().length(), edits);
+        checkLength(length);
+        String title = request.getTitle() == null ? note.getTitle() : request.getTitle();
+        if (edits.isEmpty() && Objects.equals(title, note.getTitle())) {
+            // Autosave without changes
+            return toDTO(revision(note, edits, false));
+        }
+
+        long editSize = TextEdits.size(edits);
+        boolean snapshot = note.getRevisionsSinceSnapshot() + 1 >= maxEditsBetweenSnapshots
+                || note.getEditSizeSinceSnapshot() + editSize >= snapshotEditRatio * length;
+
+        note.setContent(TextEdits.apply(note.getContent(), edits));
+        note.setTitle(title);
+        note.setRevision(baseRevision + 1);
+        note.setUpdatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        note.setRevisionsSinceSnapshot(snapshot ? 0 : note.getRevisionsSinceSnapshot() + 1);
+        note.setEditSizeSinceSnapshot(snapshot ? 0 : note.getEditSizeSinceSnapshot() + editSize);
+
+        // The revision is written first: the unique index on note and revision lets only one of concurrent saves
+        // claim the next revision, and the note never points at a revision missing from the history
+        NoteRevision revision = revision(note, edits, snapshot);
+        if (!insertRevision(revision, baseRevision)) {
+            throw conflict(id, baseRevision, Math.max(findNote(id).getRevision(), note.getRevision()));
+        }
+        if (!noteRepository.advance(note, baseRevision)) {
+            // The note was deleted or replaced in the meantime, so the claimed revision is given up
+            revisionRepository.delete(revision);
+            throw conflict(id, baseRevision, findNote(id).getRevision());
+        }
+        searchService.indexNote(note);
+        log.debug("Note '{}' saved at revision {} ({} edits, snapshot: {}).", id, note.getRevision(), edits.size(), snapshot);
+        return toDTO(revision);
+    }
+
+    @Override
+    public List<NoteRevisionDTO> listRevisions(String id, Long before, int limit) {
+        Note note = findNote(id);
+        long beforeRevision = before == null ? note.getRevision() + 1 : before;
+        return revisionRepository.findHistory(id, beforeRevision, PageRequest.of(0, limit)).stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    @Override
+    public void deleteNote(String id) {
+        Note note = findNote(id);
+        noteRepository.delete(note);
+        revisionRepository.deleteByNoteId(id);
+        // Other instances drop the note from their search index when they catch up
+        tombstoneRepository.save(new NoteTombstone(id, Instant.now().truncatedTo(ChronoUnit.MILLIS)));
+        searchService.removeNote(id);
+        log.debug("Note '{}' deleted with {} revisions.", id, note.getRevision());
+    }
+
+    private Note findNote(String id) {
+        return noteRepository.findById(id)
+                .orElseThrow(() -> new NoteNotFoundException("Note '" + id + "' not found."));
+    }
+
+    /**
+     * Claims the revision following the base revision by inserting it.
+     * A save that failed between inserting its revision and advancing the note leaves the revision behind;
+     * it is replaced once it is too old to belong to a save still in progress.
+     *
+     * @return False if another save claimed the revision.
+     */
+    private boolean insertRevision(NoteRevision revision, long baseRevision) {
+        try {
+            revisionRepository.insert(revision);
+            return true;
+        } catch (DuplicateKeyException e) {
+            if (findNote(revision.getNoteId()).getRevision() != baseRevision
+                    || revisionRepository.deleteByNoteIdAndRevisionAndCreatedAtBefore(revision.getNoteId(), revision.getRevision(),
+                    revision.getCreatedAt().minus(ORPHANED_REVISION_AGE)) == 0) {
+                return false;
+            }
+            log.warn("Orphaned revision {} of note '{}' replaced.", revision.getRevision(), revision.getNoteId());
+        }
+        try {
+            revisionRepository.insert(revision);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length > maxContentLength) {
+            throw new IllegalArgumentException("Note content exceeds the maximum length of " + maxContentLength + " characters.");
+        }
+    }
+
+    private static NoteConflictException conflict(String id, long baseRevision, long currentRevision) {
+        return new NoteConflictException("Note '" + id + "' is at revision " + currentRevision
+                + ", edits refer to revision " + baseRevision + ".", currentRevision);
+    }
+
+    private static NoteRevision revision(Note note, List<TextEdit> edits, boolean snapshot) {
+        NoteRevision revision = new NoteRevision();
+        revision.setNoteId(note.getId());
+        revision.setRevision(note.getRevision());
+        revision.setEdits(edits);
+        revision.setSnapshot(snapshot);
+        revision.setContent(snapshot ? note.getContent() : null);
+        revision.setLength(note.getContent().length());
+        revision.setCreatedAt(note.getUpdatedAt());
+        return revision;
+    }
+
+    private NoteDTO toDTO(Note note) {
+        NoteDTO dto = new NoteDTO();
+        dto.setId(note.getId());
+        dto.setOwnerId(note.getOwnerId());
+        dto.setTitle(note.getTitle());
+        dto.setContent(note.getContent());
+        dto.setRevision(note.getRevision());
+        dto.setCreatedAt(note.getCreatedAt());
+        dto.setUpdatedAt(note.getUpdatedAt());
+        return dto;
+    }
+
+    private NoteRevisionDTO toDTO(NoteRevision revision) {
+        NoteRevisionDTO dto = new NoteRevisionDTO();
+        dto.setNoteId(revision.getNoteId());
+        dto.setRevision(revision.getRevision());
+        dto.setLength(revision.getLength());
+        dto.setSnapshot(revision.isSnapshot());
+        dto.setCreatedAt(revision.getCreatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,148 @@
+package digital.paisley.note.service.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts the searchable text of HTML documents and splits it into terms.
+ */
+public final class HtmlText {
+
+    /**
+     * Longer runs of letters and digits (e.g. embedded data) are not indexed.
+     */
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private static final Map<String, String> ENTITIES = Map.of(
+            "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'", "nbsp", " "
+    );
+
+    private HtmlText() {
+    }
+
+    /**
+     * Strips tags, comments and the content of script and style elements, and decodes character references.
+     * Tags are replaced by a space, so words in adjacent elements stay apart.
+     *
+     * @param html HTML document or fragment.
+     * @return The text of the document.
+     */
+    public static String toText(String html) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder(html.length());
+        int i = 0;
+        int length = html.length();
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                i = skipMarkup(html, i);
+                text.append(' ');
+            } else if (c == '&') {
+                int end = html.indexOf(';', i);
+                String decoded = end > i && end - i <= 10 ? decode(html.substring(i + 1, end)) : null;
+                if (decoded != null) {
+                    text.append(decoded);
+                    i = end + 1;
+                } else {
+                    text.append(c);
+                    i++;
+                }
+            } else {
+                text.append(c);
+                i++;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Splits text into lower-case terms made of letters and digits, counting the occurrences of each term.
+     *
+     * @param text        Text to split.
+     * @param frequencies Map the occurrences are added to.
+     * @return The number of terms found.
+     */
+    public static int addTerms(String text, Map<String, Integer> frequencies) {
+        int count = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            if (i > start && i - start <= MAX_TERM_LENGTH) {
+                frequencies.merge(text.substring(start, i).toLowerCase(Locale.ROOT), 1, Integer::sum);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Splits text into its distinct terms.
+     *
+     * @param text Text to split.
+     * @return The distinct terms.
+     */
+    public static Set<String> terms(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(text, frequencies);
+        return frequencies.keySet();
+    }
+
+    private static int skipMarkup(String html, int start) {
+        if (html.startsWith("<!--", start)) {
+            int end = html.indexOf("-->", start + 4);
+            return end < 0 ? html.length() : end + 3;
+        }
+        int end = html.indexOf('>', start);
+        if (end < 0) {
+            return html.length();
+        }
+        // The content of script and style elements is not text
+        String tag = html.substring(start + 1, Math.min(end, start + 7)).toLowerCase(Locale.ROOT);
+        for (String element : new String[]{"script", "style"}) {
+            if (tag.startsWith(element)) {
+                int close = indexOfIgnoreCase(html, "</" + element, end);
+                if (close < 0) {
+                    return html.length();
+                }
+                int closeEnd = html.indexOf('>', close);
+                return closeEnd < 0 ? html.length() : closeEnd + 1;
+            }
+        }
+        return end + 1;
+    }
+
+    private static int indexOfIgnoreCase(String text, String part, int from) {
+        for (int i = from; i <= text.length() - part.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(String reference) {
+        if (reference.startsWith("#")) {
+            try {
+                int codePoint = reference.startsWith("#x") || reference.startsWith("#X")
+                        ? Integer.parseInt(reference.substring(2), 16)
+                        : Integer.parseInt(reference.substring(1));
+                return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        // Editors write other characters as they are; an unknown name only separates words
+        return reference.chars().allMatch(Character::isLetterOrDigit) ? ENTITIES.getOrDefault(reference, " ") : null;
+    }
+}
@@ -0,0 +1,94 @@
+package digital.paisley.note.service.util;
+
+import digital.paisley.note.service.entity.TextEdit;
+
+import java.util.List;
+
+/**
+ * Applies range edits to documents.
+ */
+public final class TextEdits {
+
+    private TextEdits() {
+    }
+
+    /**
+     * Checks that edits can be applied to a document: every range lies inside the document,
+     * and the ranges are sorted and do not overlap.
+     *
+     * @param edits  Edits to check.
+     * @param length Length of the document the edits refer to.
+     * @throws IllegalArgumentException If the edits are invalid.
+     */
+    public static void validate(List<TextEdit> edits, int length) {
+        int position = 0;
+        for (TextEdit edit : edits) {
+            if (edit == null) {
+                throw new IllegalArgumentException("Edits must not be null.");
+            }
+            if (edit.getStart() < position || edit.getEnd() < edit.getStart() || edit.getEnd() > length) {
+                throw new IllegalArgumentException("Invalid edit range [" + edit.getStart() + ", " + edit.getEnd()
+                        + "): ranges must be sorted, must not overlap and must lie within the document of length " + length + ".");
+            }
+            position = edit.getEnd();
+        }
+    }
+
+    /**
+     * Applies validated edits to a document.
+     *
+     * @param content Document the edits refer to.
+     * @param edits   Sorted, non-overlapping edits.
+     * @return The edited document.
+     */
+    public static String apply(String content, List<TextEdit> edits) {
+        if (edits == null || edits.isEmpty()) {
+            return content;
+        }
+        StringBuilder result = new StringBuilder(length(content.length(), edits));
+        int position = 0;
+        for (TextEdit edit : edits) {
+            result.append(content, position, edit.getStart());
+            if (edit.getText() != null) {
+                result.append(edit.getText());
+            }
+            position = edit.getEnd();
+        }
+        result.append(content, position, content.length());
+        return result.toString();
+    }
+
+    /**
+     * Computes the length of a document after edits, without applying them.
+     *
+     * @param length Length of the document the edits refer to.
+     * @param edits  Sorted, non-overlapping edits.
+     * @return The length of the edited document.
+     */
+    public static int length(int length, List<TextEdit> edits) {
+        long result = length;
+        for (TextEdit edit : edits) {
+            result += textLength(edit) - (edit.getEnd() - edit.getStart());
+        }
+        return Math.toIntExact(result);
+    }
+
+    /**
+     * Size of edits as stored: the inserted text plus a constant per range.
+     *
+     * @param edits Edits.
+     * @return The size in characters.
+     */
+    public static long size(List<TextEdit> edits) {
+        long size = 0;
+        for (TextEdit edit : edits) {
+            // Two offsets, roughly as large as a short text
+            size += textLength(edit) + 16;
+        }
+        return size;
+    }
+
+    private static int textLength(TextEdit edit) {
+        return edit.getText() == null ? 0 : edit.getText().length();
+    }
+}
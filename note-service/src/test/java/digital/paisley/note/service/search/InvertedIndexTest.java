@@ -0,0 +1,88 @@
+package digital.paisley.note.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvertedIndexTest {
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    @Test
+    void ranksDocumentsWithMoreOccurrencesFirst() {
+        index.put(document("a", "alice", 1, Map.of("cat", 1, "dog", 3)));
+        index.put(document("b", "alice", 1, Map.of("cat", 3, "dog", 1)));
+        index.put(document("c", "alice", 1, Map.of("bird", 4)));
+
+        assertThat(ids(index.search(Set.of("cat"), null, 10))).containsExactly("b", "a");
+        assertThat(ids(index.search(Set.of("cat", "bird"), null, 1))).hasSize(1);
+    }
+
+    @Test
+    void filtersByOwner() {
+        index.put(document("a", "alice", 1, Map.of("cat", 1)));
+        index.put(document("b", "bob", 1, Map.of("cat", 1)));
+
+        assertThat(ids(index.search(Set.of("cat"), "bob", 10))).containsExactly("b");
+    }
+
+    @Test
+    void replacesOlderRevisionsOnly() {
+        index.put(document("a", "alice", 2, Map.of("new", 1)));
+
+        assertThat(index.put(document("a", "alice", 1, Map.of("old", 1)))).isFalse();
+        assertThat(index.put(document("a", "alice", 3, Map.of("newer", 1)))).isTrue();
+        assertThat(index.search(Set.of("new"), null, 10)).isEmpty();
+        assertThat(ids(index.search(Set.of("newer"), null, 10))).containsExactly("a");
+    }
+
+    @Test
+    void removesDocumentsFromThePostings() {
+        index.put(document("a", "alice", 1, Map.of("cat", 1)));
+
+        assertThat(index.remove("a")).isTrue();
+        assertThat(index.remove("a")).isFalse();
+        assertThat(index.search(Set.of("cat"), null, 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void snapshotRestoresTheIndex() throws IOException {
+        index.put(document("a", "alice", 4, Map.of("cat", 2)));
+        index.put(new InvertedIndex.Document("b", "bob", null, 1, 1, Map.of("dog", 1)));
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        index.write(snapshot, 42);
+
+        InvertedIndex restored = new InvertedIndex();
+        restored.put(document("stale", "carol", 1, Map.of("cat", 1)));
+
+        assertThat(restored.read(new ByteArrayInputStream(snapshot.toByteArray()))).isEqualTo(42);
+        assertThat(restored.ids()).containsExactlyInAnyOrder("a", "b");
+        assertThat(restored.search(Set.of("cat"), null, 10)).singleElement()
+                .satisfies(hit -> assertThat(hit.getDocument()).isEqualTo(document("a", "alice", 4, Map.of("cat", 2))));
+        assertThat(restored.search(Set.of("dog"), null, 10).get(0).getDocument().getTitle()).isNull();
+    }
+
+    @Test
+    void rejectsForeignSnapshots() {
+        assertThatThrownBy(() -> index.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static InvertedIndex.Document document(String id, String ownerId, long revision, Map<String, Integer> terms) {
+        int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+        return new InvertedIndex.Document(id, ownerId, "Title of " + id, revision, length, terms);
+    }
+
+    private static List<String> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.getDocument().getId()).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package digital.paisley.note.service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlTextTest {
+
+    @Test
+    void stripsTagsAndKeepsWordsOfAdjacentElementsApart() {
+        assertThat(HtmlText.terms(HtmlText.toText("<p>first</p><p>second <b>bold</b>word</p>")))
+                .containsExactlyInAnyOrder("first", "second", "bold", "word");
+    }
+
+    @Test
+    void dropsCommentsScriptsAndStyles() {
+        String html = "<!-- hidden --><script type=\"text/javascript\">var secret = 1;</script>"
+                + "<STYLE>.invisible { color: red }</STYLE>visible";
+
+        assertThat(HtmlText.terms(HtmlText.toText(html))).containsExactly("visible");
+    }
+
+    @Test
+    void decodesCharacterReferences() {
+        assertThat(HtmlText.toText("Tom&nbsp;&amp;&#32;Jerry &#x263A; &lt;3")).isEqualTo("Tom & Jerry \u263A <3");
+        // Unknown names separate words, text that is not a reference is kept
+        assertThat(HtmlText.toText("a&unknown;b &copy 1 & 2")).isEqualTo("a b &copy 1 & 2");
+    }
+
+    @Test
+    void countsLowerCaseTerms() {
+        Map<String, Integer> frequencies = new HashMap<>();
+
+        int count = HtmlText.addTerms("Apple, apple; PEAR-2 \u00FCmlaut", frequencies);
+
+        assertThat(count).isEqualTo(5);
+        assertThat(frequencies).containsExactlyInAnyOrderEntriesOf(Map.of("apple", 2, "pear", 1, "2", 1, "\u00FCmlaut", 1));
+    }
+
+    @Test
+    void skipsOverlongTerms() {
+        String data = "x".repeat(HtmlText.MAX_TERM_LENGTH + 1);
+
+        assertThat(HtmlText.terms("short " + data)).containsExactly("short");
+    }
+
+    @Test
+    void handlesUnterminatedMarkup() {
+        assertThat(HtmlText.toText("text <p unterminated")).isEqualTo("text  ");
+        assertThat(HtmlText.toText("text <script>never closed")).isEqualTo("text  ");
+        assertThat(HtmlText.toText(null)).isEmpty();
+    }
+}
@@ -0,0 +1,68 @@
+package digital.paisley.note.service.util;
+
+import digital.paisley.note.service.entity.TextEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextEditsTest {
+
+    @Test
+    void appliesInsertionsReplacementsAndDeletions() {
+        List<TextEdit> edits = List.of(
+                new TextEdit(0, 0, "Dear "),
+                new TextEdit(6, 11, "friends"),
+                new TextEdit(12, 18, null)
+        );
+
+        String edited = TextEdits.apply("hello world, again", edits);
+
+        assertThat(edited).isEqualTo("Dear hello friends,");
+        assertThat(TextEdits.length("hello world, again".length(), edits)).isEqualTo(edited.length());
+    }
+
+    @Test
+    void keepsContentWithoutEdits() {
+        assertThat(TextEdits.apply("unchanged", List.of())).isEqualTo("unchanged");
+        assertThat(TextEdits.apply("unchanged", null)).isEqualTo("unchanged");
+    }
+
+    @Test
+    void countsOffsetsInUtf16CodeUnits() {
+        // The emoji takes two code units, as in JavaScript
+        String content = "a\uD83D\uDE00b";
+
+        assertThat(TextEdits.apply(content, List.of(new TextEdit(1, 3, "-")))).isEqualTo("a-b");
+    }
+
+    @Test
+    void acceptsAdjacentRanges() {
+        List<TextEdit> edits = List.of(new TextEdit(0, 2, "x"), new TextEdit(2, 2, "y"), new TextEdit(2, 4, "z"));
+
+        TextEdits.validate(edits, 4);
+        assertThat(TextEdits.apply("abcd", edits)).isEqualTo("xyz");
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        assertThatThrownBy(() -> TextEdits.validate(List.of(new TextEdit(2, 1, "")), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TextEdits.validate(List.of(new TextEdit(3, 6, "")), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TextEdits.validate(List.of(new TextEdit(2, 4, ""), new TextEdit(3, 5, "")), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TextEdits.validate(List.of(new TextEdit(3, 4, ""), new TextEdit(0, 1, "")), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TextEdits.validate(Arrays.asList(new TextEdit(0, 1, ""), null), 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sizeCountsInsertedTextAndRanges() {
+        assertThat(TextEdits.size(List.of(new TextEdit(0, 3, "abcd"), new TextEdit(5, 9, null)))).isEqualTo(4 + 16 + 16);
+    }
+}
@@ -0,0 +1,93 @@
+package digital.paisley.storage.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Decides when a download is repeated on a second instance.
+ * <p>
+ * The delay follows a percentile of the recently observed response times, so only the slowest requests
+ * are hedged. A budget caps the extra requests at a share of all requests, so hedging cannot multiply
+ * the load when every instance is slow.
+ */
+public class HedgePolicy {
+
+    // The percentile is recomputed after this many samples, not for every request
+    private static final int RECOMPUTE_INTERVAL = 32;
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_BUDGET = 10;
+
+    private final long[] samples;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long initialDelayNanos;
+    private final double budgetPerRequest;
+
+    private long count;
+    private int next;
+    private double budget = MAX_BUDGET;
+    private volatile long delayNanos;
+
+    /**
+     * Constructor for HedgePolicy.
+     *
+     * @param windowSize   Number of recent response times the percentile is computed from.
+     * @param percentile   Percentile of the response times after which a request is hedged, e.g. 0.95.
+     * @param minDelay     Lower bound of the delay.
+     * @param initialDelay Delay until enough response times are observed.
+     * @param maxRatio     Maximum share of requests that are hedged, e.g. 0.1.
+     */
+    public HedgePolicy(int windowSize, double percentile, Duration minDelay, Duration initialDelay, double maxRatio) {
+        this.samples = new long[windowSize];
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.budgetPerRequest = maxRatio;
+        this.delayNanos = Math.max(minDelayNanos, initialDelayNanos);
+    }
+
+    /**
+     * Records the time a request took until the response headers arrived, or until it was cancelled
+     * because another attempt answered first.
+     *
+     * @param nanos Response time in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count++;
+        if (count >= MIN_SAMPLES && count % RECOMPUTE_INTERVAL == 0 || count == MIN_SAMPLES) {
+            long[] window = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile * window.length) - 1;
+            delayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * @return Time after which a request should be hedged.
+     */
+    public Duration delay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    /**
+     * Counts a request towards the hedging budget.
+     */
+    public synchronized void requested() {
+        budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return False if the budget is exhausted and the request must not be hedged.
+     */
+    public synchronized boolean tryHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+}
@@ -0,0 +1,498 @@
+package digital.paisley.storage.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import digital.paisley.storage.client.dto.BatchItemResult;
+import digital.paisley.storage.client.dto.FileEntryDTO;
+import digital.paisley.storage.client.dto.PresignedUrlDTO;
+import digital.paisley.storage.client.exception.StorageClientException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Storage client on top of the JDK HTTP client, which keeps connections to every instance open
+ * and multiplexes requests over HTTP/2 where storage-service offers it.
+ * Request and response bodies are streamed, never buffered as a whole.
+ * <p>
+ * Requests with a body are sent over HTTP/1.1: over cleartext, HTTP/2 is negotiated with an upgrade
+ * of the first request, which Tomcat refuses for requests with larger bodies.
+ */
+@Slf4j
+public class HttpStorageClient implements IStorageClient {
+
+    private static final String FILES_PATH = "/api/v1/storage/files/";
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final int MAX_ERROR_BODY = 8192;
+    private static final TypeReference<List<BatchItemResult>> BATCH_RESULTS = new TypeReference<>() {
+    };
+
+    private final HttpClient httpClient;
+    private final StorageInstanceResolver instances;
+    private final ObjectMapper objectMapper;
+    private final HedgePolicy hedgePolicy;
+    private final Duration requestTimeout;
+
+    /**
+     * Constructor for HttpStorageClient.
+     *
+     * @param httpClient     HTTP client shared by all requests.
+     * @param instances      Resolver of storage-service instances.
+     * @param objectMapper   Mapper of JSON answers.
+     * @param hedgePolicy    Policy for hedged downloads, or null to never hedge.
+     * @param requestTimeout Maximum time until the response headers arrive.
+     */
+    public HttpStorageClient(HttpClient httpClient, StorageInstanceResolver instances, ObjectMapper objectMapper,
+                             HedgePolicy hedgePolicy, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.instances = instances;
+        this.objectMapper = objectMapper;
+        this.hedgePolicy = hedgePolicy;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public String upload(String bucketName, String folderName, String fileName, String contentType, long contentLength, InputStream content) {
+        URI uri = uri(instances.choose(1).get(0), "upload-stream",
+                "bucket-name", bucketName, "folder-name", folderName, "file-name", fileName);
+        // The stream is handed over as is; the caller closes it
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new NonClosingInputStream(content)), contentLength);
+        HttpRequest request = request(uri)
+                .version(HttpClient.Version.HTTP_1_1)
+                .header("Content-Type", contentType != null ? contentType : "application/octet-stream")
+                .POST(body)
+                .build();
+        String answer = checked(send(request, HttpResponse.BodyHandlers.ofString())).body();
+        log.debug("File '{}' uploaded to '{}/{}'.", fileName, bucketName, folderName);
+        return answer;
+    }
+
+    @Override
+    public String upload(String bucketName, String folderName, String fileName, String contentType, byte[] content) {
+        return upload(bucketName, folderName, fileName, contentType, content.length, new ByteArrayInputStream(content));
+    }
+
+    @Override
+    public boolean uploadExisting(String bucketName, String folderName, String fileName, String contentDigest, String contentType) {
+        URI uri = uri(instances.choose(1).get(0), "upload-existing",
+                "bucket-name", bucketName, "folder-name", folderName, "file-name", fileName,
+                "content-sha256", contentDigest, "content-type", contentType);
+        HttpResponse<String> response = send(request(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        checked(response);
+        return true;
+    }
+
+    @Override
+    public StorageDownload download(String bucketName, String folderName, String fileName) {
+        return download(bucketName, folderName, fileName, null);
+    }
+
+    @Override
+    public StorageDownload download(String bucketName, String folderName, String fileName, long start, long end) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid byte range " + start + "-" + end + ".");
+        }
+        return download(bucketName, folderName, fileName, "bytes=" + start + "-" + end);
+    }
+
+    @Override
+    public boolean exists(String bucketName, String folderName, String fileName) {
+        URI uri = uri(instances.choose(1).get(0), "exists",
+                "bucket-name", bucketName, "folder-name", folderName, "file-name", fileName);
+        return readJson(send(request(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream()), Boolean.class);
+    }
+
+    @Override
+    public List<BatchItemResult> exist(String bucketName, String folderName, List<String> fileNames) {
+        List<String> params = new ArrayList<>(List.of("bucket-name", bucketName, "folder-name", folderName));
+        for (String fileName : fileNames) {
+            params.add("file-name");
+            params.add(fileName);
+        }
+        URI uri = uri(instances.choose(1).get(0), "exists-batch", params.toArray(new String[0]));
+        return readJson(send(request(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream()), BATCH_RESULTS);
+    }
+
+    @Override
+    public void delete(String bucketName, String folderName, String fileName) {
+        delete("delete", bucketName, folderName, List.of(fileName), HttpResponse.BodyHandlers.ofString());
+        log.debug("File '{}' deleted from '{}/{}'.", fileName, bucketName, folderName);
+    }
+
+    @Override
+    public List<BatchItemResult> delete(String bucketName, String folderName, List<String> fileNames) {
+        return readJson(delete("delete-batch", bucketName, folderName, fileNames, HttpResponse.BodyHandlers.ofInputStream()),
+                BATCH_RESULTS);
+    }
+
+    @Override
+    public Stream<FileEntryDTO> list(String bucketName, String folderName, String prefix) {
+        FileListIterator iterator = new FileListIterator(bucketName, folderName, prefix);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public PresignedUrlDTO presignDownload(String bucketName, String folderName, String fileName) {
+        URI uri = uri(instances.choose(1).get(0), "presigned-download",
+                "bucket-name", bucketName, "folder-name", folderName, "file-name", fileName);
+        return readJson(send(request(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream()), PresignedUrlDTO.class);
+    }
+
+    private StorageDownload download(String bucketName, String folderName, String fileName, String range) {
+        HttpResponse<InputStream> response = sendHedged(base -> {
+            HttpRequest.Builder request = request(uri(base, "download",
+                    "bucket-name", bucketName, "folder-name", folderName, "file-name", fileName));
+            if (range != null) {
+                request.header("Range", range);
+            }
+            return request.GET().build();
+        });
+        checked(response);
+        return new StorageDownload(
+                response.statusCode(),
+                response.headers().firstValue("Content-Type").orElse(null),
+                response.headers().firstValueAsLong("Content-Length").orElse(-1),
+                response.headers().firstValue("ETag").orElse(null),
+                response.body()
+        );
+    }
+
+    /**
+     * Sends a request to one instance and, if it has not answered within the hedge delay or fails,
+     * once more to another instance. The first answer is used; the other request is cancelled.
+     * Error answers of 5xx count as failures, any other answer as success.
+     */
+    private HttpResponse<InputStream> sendHedged(Function<URI, HttpRequest> requestFactory) {
+        List<URI> targets = instances.choose(hedgePolicy != null ? 2 : 1);
+        CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<InputStream>>> attempts = new ArrayList<>(2);
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean hedged = new AtomicBoolean(targets.size() < 2);
+
+        Runnable hedge = () -> {
+            if (!result.isDone() && hedged.compareAndSet(false, true)) {
+                pending.incrementAndGet();
+                log.debug("Hedging request to {}.", targets.get(1));
+                attempt(requestFactory.apply(targets.get(1)), result, pending, null, attempts);
+            }
+        };
+        if (hedgePolicy != null) {
+            hedgePolicy.requested();
+        }
+        attempt(requestFactory.apply(targets.get(0)), result, pending, hedge, attempts);
+        if (!hedged.get()) {
+            CompletableFuture.delayedExecutor(hedgePolicy.delay().toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (!result.isDone() && !hedged.get() && hedgePolicy.tryHedge()) {
+                    hedge.run();
+                }
+            });
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageClientException("Interrupted while waiting for storage-service.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StorageClientException storageClientException) {
+                throw storageClientException;
+            }
+            throw new StorageClientException("Error calling storage-service: " + cause.getMessage(), cause);
+        } finally {
+            synchronized (attempts) {
+                attempts.forEach(attempt -> attempt.cancel(true));
+            }
+        }
+    }
+
+    private void attempt(HttpRequest request, CompletableFuture<HttpResponse<InputStream>> result, AtomicInteger pending,
+                         Runnable onFailure, List<CompletableFuture<HttpResponse<InputStream>>> attempts) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> attempt = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        synchronized (attempts) {
+            attempts.add(attempt);
+        }
+        attempt.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                // Lost to a faster attempt; its time so far still counts, or the percentile would only see fast answers
+                if (hedgePolicy != null) {
+                    hedgePolicy.record(System.nanoTime() - start);
+                }
+                return;
+            }
+            if (error == null && response.statusCode() < 500) {
+                if (hedgePolicy != null) {
+                    hedgePolicy.record(System.nanoTime() - start);
+                }
+                if (!result.complete(response)) {
+                    closeQuietly(response.body());
+                }
+                return;
+            }
+            // Failed attempts are replaced by the hedge right away
+            if (onFailure != null) {
+                onFailure.run();
+            }
+            if (pending.decrementAndGet() == 0) {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else if (!result.complete(response)) {
+                    closeQuietly(response.body());
+                }
+            } else if (response != null) {
+                closeQuietly(response.body());
+            }
+        });
+    }
+
+    private <T> HttpResponse<T> delete(String endpoint, String bucketName, String folderName, List<String> fileNames,
+                                       HttpResponse.BodyHandler<T> bodyHandler) {
+        // The delete endpoints take their file names as multipart form fields
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream form = new ByteArrayOutputStream();
+        for (String fileName : fileNames) {
+            form.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file-name\"\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            form.writeBytes(fileName.getBytes(StandardCharsets.UTF_8));
+            form.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        form.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        URI uri = uri(instances.choose(1).get(0), endpoint, "bucket-name", bucketName, "folder-name", folderName);
+        HttpRequest request = request(uri)
+                .version(HttpClient.Version.HTTP_1_1)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .method("DELETE", HttpRequest.BodyPublishers.ofByteArray(form.toByteArray()))
+                .build();
+        return checked(send(request, bodyHandler));
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(requestTimeout);
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return httpClient.send(request, bodyHandler);
+        } catch (IOException e) {
+            throw new StorageClientException("Error calling storage-service: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageClientException("Interrupted while waiting for storage-service.", e);
+        }
+    }
+
+    /**
+     * Turns error answers into exceptions, with the message reported by storage-service.
+     */
+    private <T> HttpResponse<T> checked(HttpResponse<T> response) {
+        int status = response.statusCode();
+        if (status < 300) {
+            return response;
+        }
+        String body;
+        if (response.body() instanceof InputStream stream) {
+            try (stream) {
+                body = new String(stream.readNBytes(MAX_ERROR_BODY), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                body = null;
+            }
+        } else {
+            body = response.body() instanceof String text ? text : null;
+        }
+        String message = "storage-service answered with status " + status;
+        if (body != null && !body.isBlank()) {
+            try {
+                JsonNode error = objectMapper.readTree(body);
+                message = error.path("message").asText(message);
+            } catch (IOException e) {
+                message = message + ": " + body;
+            }
+        }
+        throw new StorageClientException(message, status);
+    }
+
+    private <T> T readJson(HttpResponse<InputStream> response, Class<T> type) {
+        try (InputStream body = checked(response).body()) {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new StorageClientException("Invalid answer of storage-service: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T readJson(HttpResponse<InputStream> response, TypeReference<T> type) {
+        try (InputStream body = checked(response).body()) {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new StorageClientException("Invalid answer of storage-service: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the URI of an endpoint from alternating parameter names and values; null values are left out.
+     */
+    private static URI uri(URI base, String endpoint, String... params) {
+        StringBuilder uri = new StringBuilder(base.toString());
+        if (uri.charAt(uri.length() - 1) == '/') {
+            uri.setLength(uri.length() - 1);
+        }
+        uri.append(FILES_PATH).append(endpoint);
+        char separator = '?';
+        for (int i = 0; i < params.length; i += 2) {
+            if (params[i + 1] != null) {
+                uri.append(separator).append(params[i]).append('=').append(encode(params[i + 1]));
+                separator = '&';
+            }
+        }
+        return URI.create(uri.toString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.debug("Error closing response body: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a folder listing page by page. Each page is newline-delimited JSON, ended by a line
+     * carrying the continuation token if more files follow.
+     */
+    private class FileListIterator implements Iterator<FileEntryDTO> {
+
+        private final String bucketName;
+        private final String folderName;
+        private final String prefix;
+        private BufferedReader page;
+        private String continuationToken;
+        private boolean lastPage;
+        private FileEntryDTO next;
+
+        FileListIterator(String bucketName, String folderName, String prefix) {
+            this.bucketName = bucketName;
+            this.folderName = folderName;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    if (page == null) {
+                        if (lastPage) {
+                            return false;
+                        }
+                        openPage();
+                    }
+                    String line = page.readLine();
+                    if (line == null) {
+                        close();
+                        lastPage = continuationToken == null;
+                        continue;
+                    }
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode node = objectMapper.readTree(line);
+                    if (node.has("nextToken")) {
+                        continuationToken = node.get("nextToken").asText();
+                    } else {
+                        next = objectMapper.treeToValue(node, FileEntryDTO.class);
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Error reading file listing: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public FileEntryDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FileEntryDTO entry = next;
+            next = null;
+            return entry;
+        }
+
+        private void openPage() {
+            URI uri = uri(instances.choose(1).get(0), "list",
+                    "bucket-name", bucketName, "folder-name", folderName, "prefix", prefix,
+                    "limit", String.valueOf(LIST_PAGE_SIZE), "continuation-token", continuationToken);
+            HttpResponse<InputStream> response = checked(send(request(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream()));
+            continuationToken = null;
+            page = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        }
+
+        void close() {
+            if (page != null) {
+                try {
+                    page.close();
+                } catch (IOException e) {
+                    log.debug("Error closing file listing: {}", e.getMessage());
+                }
+                page = null;
+            }
+        }
+    }
+
+    /**
+     * Keeps the HTTP client from closing a stream the caller owns.
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // The caller closes the stream
+        }
+    }
+}
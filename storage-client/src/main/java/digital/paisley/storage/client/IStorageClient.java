@@ -0,0 +1,103 @@
+package digital.paisley.storage.client;
+
+import digital.paisley.storage.client.dto.BatchItemResult;
+import digital.paisley.storage.client.dto.FileEntryDTO;
+import digital.paisley.storage.client.dto.PresignedUrlDTO;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Client of the storage-service file API. Files are addressed by bucket, folder and file name,
+ * as in the storage-service endpoints.
+ * Failures are reported as {@link digital.paisley.storage.client.exception.StorageClientException}.
+ */
+public interface IStorageClient {
+
+    /**
+     * Uploads a file, streaming its content, and replaces an existing file of the same name.
+     *
+     * @param bucketName    Bucket of the file.
+     * @param folderName    Folder of the file.
+     * @param fileName      Name of the file.
+     * @param contentType   Content type of the file, or null for application/octet-stream.
+     * @param contentLength Exact length of the content.
+     * @param content       Content of the file; read to the end but not closed.
+     * @return The answer of storage-service.
+     */
+    String upload(String bucketName, String folderName, String fileName, String contentType, long contentLength, InputStream content);
+
+    /**
+     * Uploads a file held in memory.
+     *
+     * @see #upload(String, String, String, String, long, InputStream)
+     */
+    String upload(String bucketName, String folderName, String fileName, String contentType, byte[] content);
+
+    /**
+     * Stores a file by the SHA-256 digest of content storage-service already holds, without sending the content.
+     *
+     * @param bucketName    Bucket of the file.
+     * @param folderName    Folder of the file.
+     * @param fileName      Name of the file.
+     * @param contentDigest Hex SHA-256 digest of the content.
+     * @param contentType   Content type of the file, or null.
+     * @return True if the file was stored, false if the content is unknown and has to be uploaded.
+     */
+    boolean uploadExisting(String bucketName, String folderName, String fileName, String contentDigest, String contentType);
+
+    /**
+     * Downloads a file. If the chosen instance answers slower than usual, the request is repeated
+     * on another instance and the first answer wins.
+     *
+     * @param bucketName Bucket of the file.
+     * @param folderName Folder of the file.
+     * @param fileName   Name of the file.
+     * @return The file, to be closed after reading.
+     */
+    StorageDownload download(String bucketName, String folderName, String fileName);
+
+    /**
+     * Downloads a byte range of a file, hedged like {@link #download(String, String, String)}.
+     *
+     * @param start First byte.
+     * @param end   Last byte, inclusive.
+     */
+    StorageDownload download(String bucketName, String folderName, String fileName, long start, long end);
+
+    /**
+     * Checks whether a file exists.
+     */
+    boolean exists(String bucketName, String folderName, String fileName);
+
+    /**
+     * Checks whether several files of a folder exist.
+     */
+    List<BatchItemResult> exist(String bucketName, String folderName, List<String> fileNames);
+
+    /**
+     * Deletes a file.
+     */
+    void delete(String bucketName, String folderName, String fileName);
+
+    /**
+     * Deletes several files of a folder.
+     */
+    List<BatchItemResult> delete(String bucketName, String folderName, List<String> fileNames);
+
+    /**
+     * Lists the files of a folder in name order. Pages are requested while the stream is consumed.
+     *
+     * @param bucketName Bucket of the folder.
+     * @param folderName Folder to list.
+     * @param prefix     Only list files whose names start with this prefix, or null.
+     * @return The files; the stream must be closed if it is not consumed to the end.
+     */
+    Stream<FileEntryDTO> list(String bucketName, String folderName, String prefix);
+
+    /**
+     * Issues a presigned URL to download a file directly from the object store.
+     */
+    PresignedUrlDTO presignDownload(String bucketName, String folderName, String fileName);
+}
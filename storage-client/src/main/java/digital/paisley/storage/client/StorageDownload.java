@@ -0,0 +1,32 @@
+package digital.paisley.storage.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Downloaded file, streamed from storage-service while it is read. Must be closed to release the connection.
+ */
+@Getter
+@AllArgsConstructor
+public class StorageDownload implements Closeable {
+    /**
+     * 200 for whole files, 206 for ranges.
+     */
+    private final int status;
+    private final String contentType;
+    /**
+     * Length of the body, or -1 if unknown.
+     */
+    private final long contentLength;
+    private final String etag;
+    private final InputStream body;
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
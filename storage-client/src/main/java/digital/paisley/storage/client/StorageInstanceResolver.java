@@ -0,0 +1,61 @@
+package digital.paisley.storage.client;
+
+import digital.paisley.storage.client.exception.StorageClientException;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses storage-service instances round-robin among those known to the discovery client,
+ * or always the same one if a fixed base URL is configured.
+ */
+public class StorageInstanceResolver {
+
+    private final DiscoveryClient discoveryClient;
+    private final String serviceId;
+    private final URI baseUrl;
+    private final AtomicInteger position = new AtomicInteger();
+
+    /**
+     * Constructor for StorageInstanceResolver.
+     *
+     * @param discoveryClient Discovery client, or null if a base URL is given.
+     * @param serviceId       Service name of storage-service.
+     * @param baseUrl         Fixed base URL overriding discovery, or null.
+     */
+    public StorageInstanceResolver(DiscoveryClient discoveryClient, String serviceId, URI baseUrl) {
+        if (discoveryClient == null && baseUrl == null) {
+            throw new IllegalArgumentException("Either a discovery client or a base URL is required.");
+        }
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Chooses distinct instances, the next one in turn first.
+     *
+     * @param count Maximum number of instances.
+     * @return Base URIs of at least one instance.
+     * @throws StorageClientException If no instance is available.
+     */
+    public List<URI> choose(int count) {
+        if (baseUrl != null) {
+            return List.of(baseUrl);
+        }
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+        if (instances.isEmpty()) {
+            throw new StorageClientException("No instance of '" + serviceId + "' is available.", 503);
+        }
+        int start = Math.floorMod(position.getAndIncrement(), instances.size());
+        List<URI> chosen = new ArrayList<>(Math.min(count, instances.size()));
+        for (int i = 0; i < instances.size() && chosen.size() < count; i++) {
+            chosen.add(instances.get((start + i) % instances.size()).getUri());
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,78 @@
+package digital.paisley.storage.client.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import digital.paisley.storage.client.HedgePolicy;
+import digital.paisley.storage.client.HttpStorageClient;
+import digital.paisley.storage.client.IStorageClient;
+import digital.paisley.storage.client.StorageInstanceResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Provides an {@link IStorageClient} to every application depending on this module.
+ * Instances of storage-service are resolved through the discovery client unless
+ * {@code storage.client.base-url} is set.
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class)
+public class StorageClientAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(name = "storageHttpClient")
+    public HttpClient storageHttpClient(
+            @Value("${storage.client.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${storage.client.http2:true}") boolean http2) {
+        // One client for all requests, so connections are pooled per instance
+        return HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StorageInstanceResolver storageInstanceResolver(
+            ObjectProvider<DiscoveryClient> discoveryClient,
+            @Value("${storage.client.service-id:storage-service}") String serviceId,
+            @Value("${storage.client.base-url:}") String baseUrl) {
+        return new StorageInstanceResolver(
+                discoveryClient.getIfAvailable(),
+                serviceId,
+                baseUrl.isBlank() ? null : URI.create(baseUrl));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IStorageClient storageServiceClient(
+            @Qualifier("storageHttpClient") HttpClient storageHttpClient,
+            StorageInstanceResolver storageInstanceResolver,
+            ObjectProvider<ObjectMapper> objectMapper,
+            @Value("${storage.client.request-timeout:PT30S}") Duration requestTimeout,
+            @Value("${storage.client.hedging.enabled:true}") boolean hedgingEnabled,
+            @Value("${storage.client.hedging.percentile:0.95}") double percentile,
+            @Value("${storage.client.hedging.window-size:1000}") int windowSize,
+            @Value("${storage.client.hedging.min-delay:PT0.02S}") Duration minDelay,
+            @Value("${storage.client.hedging.initial-delay:PT0.5S}") Duration initialDelay,
+            @Value("${storage.client.hedging.max-ratio:0.1}") double maxRatio) {
+        HedgePolicy hedgePolicy = hedgingEnabled
+                ? new HedgePolicy(windowSize, percentile, minDelay, initialDelay, maxRatio)
+                : null;
+        return new HttpStorageClient(
+                storageHttpClient,
+                storageInstanceResolver,
+                objectMapper.getIfAvailable(() -> JsonMapper.builder().findAndAddModules().build()),
+                hedgePolicy,
+                requestTimeout);
+    }
+}
@@ -0,0 +1,19 @@
+package digital.paisley.storage.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * Outcome of a single item in a batch storage operation.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchItemResult {
+    private String fileName;
+    private boolean success;
+    /**
+     * Whether the file exists, for existence checks only.
+     */
+    private Boolean exists;
+    private String message;
+}
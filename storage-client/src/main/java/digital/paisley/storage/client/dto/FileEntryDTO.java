@@ -0,0 +1,22 @@
+package digital.paisley.storage.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Entry of a folder listing.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FileEntryDTO {
+    /**
+     * Name of the file relative to the listed folder.
+     */
+    private String fileName;
+    private long size;
+    private String etag;
+    private String contentType;
+    private Instant lastModified;
+}
@@ -0,0 +1,24 @@
+package digital.paisley.storage.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Short-lived URL granting direct access to one object in the object store.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PresignedUrlDTO {
+    /**
+     * HTTP method the URL is signed for, GET or PUT.
+     */
+    private String method;
+    private String url;
+    private Instant expiresAt;
+    /**
+     * Time after which a new URL should be requested instead of reusing this one.
+     */
+    private Instant refreshAt;
+}
@@ -0,0 +1,32 @@
+package digital.paisley.storage.client.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when storage-service cannot be reached or answers with an error.
+ */
+@Getter
+public class StorageClientException extends RuntimeException {
+
+    /**
+     * HTTP status of the error answer, or 0 if storage-service could not be reached.
+     */
+    private final int status;
+
+    public StorageClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    public StorageClientException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @return True if the requested file does not exist.
+     */
+    public boolean isNotFound() {
+        return status == 404;
+    }
+}
@@ -0,0 +1,79 @@
+package digital.paisley.storage.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgePolicyTest {
+
+    @Test
+    void usesTheInitialDelayUntilEnoughResponsesAreObserved() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, Duration.ofMillis(5), Duration.ofMillis(200), 0.1);
+
+        for (int i = 1; i < 20; i++) {
+            policy.record(Duration.ofMillis(i).toNanos());
+        }
+
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void followsThePercentileOfTheResponseTimes() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, Duration.ofMillis(5), Duration.ofMillis(200), 0.1);
+
+        for (int i = 1; i <= 20; i++) {
+            policy.record(Duration.ofMillis(i * 10).toNanos());
+        }
+
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(190));
+    }
+
+    @Test
+    void neverGoesBelowTheMinimumDelay() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, Duration.ofMillis(5), Duration.ofMillis(200), 0.1);
+
+        for (int i = 0; i < 20; i++) {
+            policy.record(Duration.ofMillis(1).toNanos());
+        }
+
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(5));
+    }
+
+    @Test
+    void forgetsResponseTimesOutsideTheWindow() {
+        HedgePolicy policy = new HedgePolicy(20, 0.95, Duration.ofMillis(5), Duration.ofMillis(200), 0.1);
+
+        for (int i = 0; i < 44; i++) {
+            policy.record(Duration.ofMillis(500).toNanos());
+        }
+        // The percentile is recomputed at the 64th response, when the window holds the fast ones only
+        for (int i = 0; i < 20; i++) {
+            policy.record(Duration.ofMillis(50).toNanos());
+        }
+
+        assertThat(policy.delay()).isEqualTo(Duration.ofMillis(50));
+    }
+
+    @Test
+    void budgetLimitsTheShareOfHedgedRequests() {
+        HedgePolicy policy = new HedgePolicy(100, 0.95, Duration.ofMillis(5), Duration.ofMillis(200), 0.1);
+
+        // A burst of hedges is allowed, then only one per ten requests
+        int burst = 0;
+        while (policy.tryHedge()) {
+            burst++;
+        }
+        assertThat(burst).isEqualTo(10);
+
+        for (int i = 0; i < 9; i++) {
+            policy.requested();
+        }
+        assertThat(policy.tryHedge()).isFalse();
+        policy.requested();
+        policy.requested();
+        assertThat(policy.tryHedge()).isTrue();
+        assertThat(policy.tryHedge()).isFalse();
+    }
+}
@@ -0,0 +1,456 @@
+package digital.paisley.storage.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent downloads of the same object share one upstream fetch.
+ * <p>
+ * The first request for a key opens the upstream stream, requests arriving while that fetch is still
+ * in progress join it and read the same bytes from a shared buffer. The upstream is pulled on demand
+ * by the fastest reader, so it is never read faster than a client consumes it, and slower readers
+ * only replay buffered bytes. The buffer is a list of fixed-size chunks allocated as the fetch
+ * advances, so a download holds only the bytes fetched so far rather than the whole object up front.
+ * Objects larger than the per-object cap, or that would exceed the total buffer budget, are not
+ * shared; requests waiting for them fall back to their own fetch.
+ * <p>
+ * Published meters: {@code storage.download.coalesced} counts downloads served by another request's
+ * fetch, {@code storage.download.coalescing.buffered} is the number of bytes reserved for shared buffers.
+ */
+@Component
+@Slf4j
+public class DownloadCoalescer {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int RELEASED = -1;
+
+    private final long maxObjectBytes;
+    private final long maxBufferedBytes;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final Counter coalesced;
+
+    /**
+     * Content of an object fetched from the storage.
+     */
+    public static final class Upstream {
+        private final InputStream content;
+        private final long size;
+
+        /**
+         * @param content Object content; it is closed once consumed or abandoned.
+         * @param size    Exact size of the content in bytes, or -1 if unknown.
+         */
+        public Upstream(InputStream content, long size) {
+            this.content = content;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Opens the object in the storage.
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        Upstream fetch() throws Exception;
+    }
+
+    /**
+     * Constructor for DownloadCoalescer.
+     *
+     * @param maxObjectBytes   Largest object whose download is shared, 0 disables coalescing.
+     * @param maxBufferedBytes Budget of all shared buffers together.
+     * @param registry         Registry of the coalescing meters.
+     */
+    public DownloadCoalescer(
+            @Value("${storage.coalescing.max-object-bytes:16MB}") DataSize maxObjectBytes,
+            @Value("${storage.coalescing.max-buffered-bytes:256MB}") DataSize maxBufferedBytes,
+            MeterRegistry registry
+    ) {
+        // Positions in shared buffers are ints
+        this.maxObjectBytes = Math.min(maxObjectBytes.toBytes(), Integer.MAX_VALUE - 8);
+        this.maxBufferedBytes = maxBufferedBytes.toBytes();
+        this.coalesced = Counter.builder("storage.download.coalesced")
+                .description("Downloads served by a concurrent request's fetch")
+                .register(registry);
+        Gauge.builder("storage.download.coalescing.buffered", bufferedBytes, AtomicLong::get)
+                .description("Bytes reserved for shared download buffers")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return maxObjectBytes > 0;
+    }
+
+    /**
+     * Opens an object, joining a fetch of the same key and version that is already in progress.
+     * Failures of a shared fetch are thrown to every request that joined it.
+     *
+     * @param key     Key identifying the object, see {@link HotObjectCache#key(String, String)}.
+     * @param version Version of the key from {@link HotObjectCache#version(String)}; after a write
+     *                new requests no longer join fetches started before it.
+     * @param fetcher Opens the object when no fetch can be joined.
+     * @return Stream delivering the complete object content.
+     * @throws Exception Whatever the fetcher throws.
+     */
+    public InputStream open(String key, long version, Fetcher fetcher) throws Exception {
+        if (!isEnabled()) {
+            return fetcher.fetch().content;
+        }
+
+        Flight candidate = new Flight(key, version);
+        Flight flight = flights.compute(key,
+                (k, existing) -> existing != null && existing.version == version && existing.join() ? existing : candidate);
+        if (flight != candidate) {
+            return follow(flight, fetcher);
+        }
+
+        Upstream upstream;
+        try {
+            upstream = fetcher.fetch();
+        } catch (Exception e) {
+            flight.fail(e);
+            throw e;
+        }
+        if (upstream.size < 0 || upstream.size > maxObjectBytes || !reserve(upstream.size)) {
+            flight.bypass();
+            return upstream.content;
+        }
+        flight.start(upstream);
+        return new SharedInputStream(flight);
+    }
+
+    private InputStream follow(Flight flight, Fetcher fetcher) throws Exception {
+        try {
+            flight.opened.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flight.leave(null);
+            throw new InterruptedIOException("Interrupted while waiting for a shared download.");
+        }
+        if (flight.failure != null) {
+            flight.leave(null);
+            throw flight.failure;
+        }
+        if (flight.bypassed) {
+            flight.leave(null);
+            return fetcher.fetch().content;
+        }
+        coalesced.increment();
+        return new SharedInputStream(flight);
+    }
+
+    private boolean reserve(long bytes) {
+        long current;
+        do {
+            current = bufferedBytes.get();
+            if (current + bytes > maxBufferedBytes) {
+                log.debug("Download buffer budget exhausted, not sharing {} bytes.", bytes);
+                return false;
+            }
+        } while (!bufferedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    /**
+     * One upstream fetch and the requests reading it.
+     * <p>
+     * A chunk is released once the flight no longer accepts new readers and every reader has read past it.
+     * A flight nobody joined stops accepting readers after its first chunk, so a lone download streams
+     * through one chunk at a time instead of buffering the whole object for requests that never come.
+     * <p>
+     * The map lock may be held while taking the flight lock, never the other way round.
+     */
+    private final class Flight {
+        private final String key;
+        private final long version;
+        private final CountDownLatch opened = new CountDownLatch(1);
+        // Written before the latch is released
+        private volatile Exception failure;
+        private volatile boolean bypassed;
+
+        private InputStream upstream;
+        private int size;
+        private byte[][] chunks;
+        // Readers that read past or left before each chunk, RELEASED once the chunk is dropped
+        private int[] passed;
+        private long reserved;
+        private int filled;
+        private boolean fetching;
+        private IOException readFailure;
+        private boolean joinable = true;
+        private int readers = 1;
+        private int joined = 1;
+
+        private Flight(String key, long version) {
+            this.key = key;
+            this.version = version;
+        }
+
+        private synchronized boolean join() {
+            // A flight whose last reader left is about to release its buffer
+            if (!joinable || readers == 0) {
+                return false;
+            }
+            readers++;
+            joined++;
+            return true;
+        }
+
+        private void fail(Exception e) {
+            failure = e;
+            end(null);
+            opened.countDown();
+        }
+
+        private void bypass() {
+            bypassed = true;
+            end(null);
+            opened.countDown();
+        }
+
+        private void start(Upstream upstream) {
+            synchronized (this) {
+                this.upstream = upstream.content;
+                this.size = (int) upstream.size;
+                this.reserved = upstream.size;
+                // Chunks are allocated once the fetch reaches them
+                this.chunks = new byte[(this.size + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+                this.passed = new int[chunks.length];
+            }
+            if (upstream.size == 0) {
+                end(null);
+            }
+            opened.countDown();
+        }
+
+        /**
+         * Copies buffered bytes, pulling the next chunk from the upstream if the reader caught up with it.
+         */
+        private int read(SharedInputStream reader, byte[] target, int offset, int length) throws IOException {
+            while (true) {
+                InputStream source;
+                byte[] chunk;
+                int start;
+                synchronized (this) {
+                    int position = reader.position;
+                    if (position < filled) {
+                        int within = position % CHUNK_SIZE;
+                        int count = Math.min(length, Math.min(filled - position, CHUNK_SIZE - within));
+                        System.arraycopy(chunks[position / CHUNK_SIZE], within, target, offset, count);
+                        reader.position += count;
+                        while (reader.passed < chunks.length && chunkEnd(reader.passed) <= reader.position) {
+                            pass(reader.passed++);
+                        }
+                        return count;
+                    }
+                    if (readFailure != null) {
+                        throw new IOException("Shared download of '" + key + "' failed: " + readFailure.getMessage(), readFailure);
+                    }
+                    if (filled == size) {
+                        return -1;
+                    }
+                    if (fetching) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for a shared download.");
+                        }
+                        continue;
+                    }
+                    fetching = true;
+                    source = upstream;
+                    start = filled;
+                    int index = start / CHUNK_SIZE;
+                    if (chunks[index] == null) {
+                        chunks[index] = new byte[chunkEnd(index) - index * CHUNK_SIZE];
+                    }
+                    chunk = chunks[index];
+                }
+
+                // Bytes below the fill mark are never written again, so other readers keep copying while this one fetches
+                int within = start % CHUNK_SIZE;
+                int read;
+                try {
+                    read = source.read(chunk, within, chunk.length - within);
+                } catch (IOException e) {
+                    end(e);
+                    throw e;
+                }
+                if (read < 0) {
+                    end(new EOFException("Object ended after " + start + " of " + size + " bytes."));
+                    continue;
+                }
+                boolean done;
+                boolean alone = false;
+                synchronized (this) {
+                    filled += read;
+                    fetching = false;
+                    done = filled == size;
+                    if (joinable && joined == 1 && filled >= CHUNK_SIZE) {
+                        alone = true;
+                        close();
+                    }
+                    notifyAll();
+                }
+                if (done) {
+                    end(null);
+                } else if (alone) {
+                    flights.remove(key, this);
+                }
+            }
+        }
+
+        private int chunkEnd(int index) {
+            return Math.min(size, (index + 1) * CHUNK_SIZE);
+        }
+
+        /**
+         * Stops accepting readers and releases the chunks everybody already read.
+         */
+        private void close() {
+            joinable = false;
+            for (int index = 0; chunks != null && index < chunks.length; index++) {
+                release(index);
+            }
+        }
+
+        private void pass(int index) {
+            if (passed[index] != RELEASED) {
+                passed[index]++;
+                release(index);
+            }
+        }
+
+        private void release(int index) {
+            if (joinable || passed[index] != joined) {
+                return;
+            }
+            int length = chunkEnd(index) - index * CHUNK_SIZE;
+            chunks[index] = null;
+            passed[index] = RELEASED;
+            reserved -= length;
+            bufferedBytes.addAndGet(-length);
+        }
+
+        /**
+         * Ends the fetch: no more requests can join and the upstream is closed.
+         * Readers keep reading the bytes buffered so far.
+         */
+        private void end(IOException e) {
+            InputStream toClose;
+            synchronized (this) {
+                close();
+                fetching = false;
+                if (e != null) {
+                    readFailure = e;
+                }
+                toClose = upstream;
+                upstream = null;
+                notifyAll();
+            }
+            flights.remove(key, this);
+            closeQuietly(toClose);
+        }
+
+        /**
+         * Called once by every request that joined the flight. The last one abandons a fetch
+         * still in progress and releases the buffer.
+         *
+         * @param reader Stream of the request, null if it left before getting one.
+         */
+        private void leave(SharedInputStream reader) {
+            boolean last;
+            synchronized (this) {
+                int from = reader != null ? reader.passed : 0;
+                for (int index = from; chunks != null && index < chunks.length; index++) {
+                    pass(index);
+                }
+                last = --readers == 0;
+                if (last) {
+                    // Closed to new readers together with the last release, so nobody joins a flight losing its buffer
+                    joinable = false;
+                }
+            }
+            if (!last) {
+                return;
+            }
+            end(null);
+            long remaining;
+            synchronized (this) {
+                remaining = reserved;
+                reserved = 0;
+                chunks = null;
+            }
+            bufferedBytes.addAndGet(-remaining);
+        }
+
+        private void closeQuietly(InputStream stream) {
+            if (stream == null) {
+                return;
+            }
+            try {
+                stream.close();
+            } catch (IOException e) {
+                log.debug("Error closing shared download of '{}': {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One request's view of a shared download.
+     */
+    private static final class SharedInputStream extends InputStream {
+        private final Flight flight;
+        // Guarded by the flight
+        private int position;
+        private int passed;
+        private boolean closed;
+
+        private SharedInputStream(Flight flight) {
+            this.flight = flight;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            return flight.read(this, target, offset, length);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                flight.leave(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package digital.paisley.storage.service.cache;
+
+import digital.paisley.storage.service.dto.CacheStatsDTO;
+import digital.paisley.storage.service.util.BoundedInputStream;
+import digital.paisley.storage.service.util.ByteBufferInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through cache of whole objects, keyed by bucket and object name.
+ * <p>
+ * Small objects are kept off-heap in direct buffers, larger ones optionally in files on local disk.
+ * Both tiers are bounded by a byte budget and evict the least recently used entries first.
+ * Writers must call {@link #invalidate(String)} after changing an object; a download that
+ * started before the invalidation is then not cached. Objects that may be changed outside this
+ * service, through presigned upload URLs, are excluded with {@link #invalidateFor(String, Duration)}.
+ */
+@Component
+@Slf4j
+public class HotObjectCache {
+
+    private static final int VERSION_STRIPES = 1024;
+    private static final int COPY_BUFFER_SIZE = 8192;
+    private static final int EXTERNAL_WRITE_PRUNE_THRESHOLD = 1024;
+
+    private final long memoryMaxBytes;
+    private final long memoryMaxEntryBytes;
+    private final boolean diskEnabled;
+    private final Path diskDirectory;
+    private final long diskMaxBytes;
+    private final long diskMaxEntryBytes;
+
+    private final LinkedHashMap<String, MemoryEntry> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final ConcurrentMap<String, Long> externalWriteDeadlines = new ConcurrentHashMap<>();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong fileSequence = new AtomicLong();
+
+    /**
+     * Constructor for HotObjectCache.
+     *
+     * @param memoryMaxBytes      Off-heap budget of the memory tier, 0 disables caching.
+     * @param memoryMaxEntryBytes Largest object kept in the memory tier.
+     * @param diskEnabled         Whether objects too large for memory are cached on disk.
+     * @param diskDirectory       Directory of the disk tier; its content is discarded at startup.
+     * @param diskMaxBytes        Budget of the disk tier.
+     * @param diskMaxEntryBytes   Largest object kept in the disk tier.
+     */
+    public HotObjectCache(
+            @Value("${storage.cache.memory.max-bytes:64MB}") DataSize memoryMaxBytes,
+            @Value("${storage.cache.memory.max-entry-bytes:1MB}") DataSize memoryMaxEntryBytes,
+            @Value("${storage.cache.disk.enabled:false}") boolean diskEnabled,
+            @Value("${storage.cache.disk.directory:${java.io.tmpdir}/storage-cache}") String diskDirectory,
+            @Value("${storage.cache.disk.max-bytes:1GB}") DataSize diskMaxBytes,
+            @Value("${storage.cache.disk.max-entry-bytes:32MB}") DataSize diskMaxEntryBytes
+    ) throws IOException {
+        this.memoryMaxBytes = memoryMaxBytes.toBytes();
+        this.memoryMaxEntryBytes = Math.min(memoryMaxEntryBytes.toBytes(), this.memoryMaxBytes);
+        this.diskDirectory = Paths.get(diskDirectory);
+        this.diskMaxBytes = diskMaxBytes.toBytes();
+        this.diskMaxEntryBytes = Math.min(diskMaxEntryBytes.toBytes(), this.diskMaxBytes);
+        // The disk tier only holds objects too large for memory
+        this.diskEnabled = diskEnabled && this.memoryMaxBytes > 0 && this.diskMaxEntryBytes > this.memoryMaxEntryBytes;
+        if (this.diskEnabled) {
+            prepareDiskDirectory();
+        }
+    }
+
+    /**
+     * Builds the cache key of an object.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @return Cache key.
+     */
+    public static String key(String bucketName, String objectName) {
+        return bucketName + "/" + objectName;
+    }
+
+    public boolean isEnabled() {
+        return memoryMaxBytes > 0;
+    }
+
+    /**
+     * Returns a cached object.
+     *
+     * @param key  Cache key of the object.
+     * @param etag ETag the object has in the storage, or null if its content never changes.
+     * @return Object content, or null if the object is not cached.
+     */
+    public InputStream get(String key, String etag) {
+        return get(key, etag, 0, -1);
+    }
+
+    /**
+     * Returns a byte range of a cached object. An entry cached with another ETag holds content replaced
+     * without this instance noticing, e.g. through another instance, and is treated as a miss.
+     *
+     * @param key    Cache key of the object.
+     * @param etag   ETag the object has in the storage, or null if its content never changes.
+     * @param offset Position of the first byte to read.
+     * @param length Number of bytes to read, or -1 to read until the end.
+     * @return Requested part of the object content, or null if the object is not cached.
+     */
+    public InputStream get(String key, String etag, long offset, long length) {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (isExternallyWritable(key)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        MemoryEntry memoryEntry;
+        DiskEntry diskEntry = null;
+        synchronized (this) {
+            memoryEntry = memoryEntries.get(key);
+            if (memoryEntry != null && !memoryEntry.matches(etag)) {
+                memoryEntry = null;
+            }
+            if (memoryEntry == null && diskEnabled) {
+                diskEntry = diskEntries.get(key);
+                if (diskEntry != null && !diskEntry.matches(etag)) {
+                    diskEntry = null;
+                }
+            }
+        }
+        if (memoryEntry != null) {
+            memoryHits.incrementAndGet();
+            return new ByteBufferInputStream(slice(memoryEntry.buffer, offset, length));
+        }
+        if (diskEntry != null) {
+            try {
+                InputStream stream = diskEntry.open(offset, length);
+                diskHits.incrementAndGet();
+                return stream;
+            } catch (IOException e) {
+                // The file was evicted in the meantime, treat it as a miss
+                log.debug("Disk cache entry '{}' could not be opened: {}", key, e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns the invalidation version of a key. Read it before fetching the object from the storage
+     * and pass it to {@link #cacheThrough}, so content changed in the meantime is not cached.
+     *
+     * @param key Cache key of the object.
+     * @return Current version of the key.
+     */
+    public long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    /**
+     * Passes an object read from the storage through to the caller and copies it into the cache
+     * while it streams, so the first bytes are not held back until the object is buffered.
+     * The entry is added once the caller has read the whole object; it is dropped if the object
+     * turns out too large for every tier or the stream is closed early.
+     *
+     * @param key      Cache key of the object.
+     * @param version  Version of the key read before the object was fetched.
+     * @param etag     ETag of the fetched content, or null if the content never changes.
+     * @param upstream Object content read from the storage; it is closed with the returned stream.
+     * @param size     Size of the object in bytes, or -1 if unknown; a known size completes the entry without waiting for the end of the stream.
+     * @return Stream delivering the complete object content.
+     */
+    public InputStream cacheThrough(String key, long version, String etag, InputStream upstream, long size) {
+        long maxEntryBytes = diskEnabled ? Math.max(memoryMaxEntryBytes, diskMaxEntryBytes) : memoryMaxEntryBytes;
+        if (!isEnabled() || size > maxEntryBytes) {
+            return upstream;
+        }
+        return new CachingInputStream(key, version, etag, upstream, size);
+    }
+
+    /**
+     * Removes an object from every tier and prevents downloads in progress from caching stale content.
+     *
+     * @param key Cache key of the object.
+     */
+    public void invalidate(String key) {
+        versions.incrementAndGet(stripe(key));
+        DiskEntry diskEntry;
+        synchronized (this) {
+            MemoryEntry memoryEntry = memoryEntries.remove(key);
+            if (memoryEntry != null) {
+                memoryBytes -= memoryEntry.buffer.capacity();
+            }
+            diskEntry = diskEntries.remove(key);
+            if (diskEntry != null) {
+                diskBytes -= diskEntry.size;
+            }
+        }
+        if (diskEntry != null) {
+            diskEntry.delete();
+        }
+    }
+
+    /**
+     * Removes an object and keeps it out of the cache for a while, because it may be changed
+     * without this service noticing, e.g. through a presigned upload URL.
+     *
+     * @param key    Cache key of the object.
+     * @param period Time during which the object may be changed.
+     */
+    public void invalidateFor(String key, Duration period) {
+        long now = System.nanoTime();
+        if (externalWriteDeadlines.size() >= EXTERNAL_WRITE_PRUNE_THRESHOLD) {
+            externalWriteDeadlines.values().removeIf(deadline -> deadline - now <= 0);
+        }
+        externalWriteDeadlines.merge(key, now + period.toNanos(),
+                (current, requested) -> requested - current > 0 ? requested : current);
+        invalidate(key);
+    }
+
+    /**
+     * Tells whether an object may currently be changed outside this service, see {@link #invalidateFor(String, Duration)}.
+     *
+     * @param key Cache key of the object.
+     * @return True while the object is kept out of the cache.
+     */
+    public boolean isExternallyWritable(String key) {
+        if (externalWriteDeadlines.isEmpty()) {
+            return false;
+        }
+        Long deadline = externalWriteDeadlines.get(key);
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() <= 0) {
+            externalWriteDeadlines.remove(key, deadline);
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized CacheStatsDTO stats() {
+        CacheStatsDTO stats = new CacheStatsDTO();
+        stats.setMemoryEntries(memoryEntries.size());
+        stats.setMemoryBytes(memoryBytes);
+        stats.setMemoryMaxBytes(memoryMaxBytes);
+        stats.setDiskEntries(diskEntries.size());
+        stats.setDiskBytes(diskBytes);
+        stats.setDiskMaxBytes(diskEnabled ? diskMaxBytes : 0);
+        stats.setMemoryHits(memoryHits.get());
+        stats.setDiskHits(diskHits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        return stats;
+    }
+
+    private void putInMemory(String key, MemoryEntry entry, long version) {
+        synchronized (this) {
+            if (versions.get(stripe(key)) != version || isExternallyWritable(key)) {
+                return;
+            }
+            MemoryEntry previous = memoryEntries.put(key, entry);
+            if (previous != null) {
+                memoryBytes -= previous.buffer.capacity();
+            }
+            memoryBytes += entry.buffer.capacity();
+            Iterator<MemoryEntry> eldest = memoryEntries.values().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().buffer.capacity();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private boolean putOnDisk(String key, DiskEntry entry, long version) {
+        DiskEntry replaced;
+        List<DiskEntry> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (versions.get(stripe(key)) != version || isExternallyWritable(key)) {
+                return false;
+            }
+            replaced = diskEntries.put(key, entry);
+            if (replaced != null) {
+                diskBytes -= replaced.size;
+            }
+            diskBytes += entry.size;
+            Iterator<DiskEntry> eldest = diskEntries.values().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                DiskEntry victim = eldest.next();
+                diskBytes -= victim.size;
+                eldest.remove();
+                evicted.add(victim);
+                evictions.incrementAndGet();
+            }
+        }
+        if (replaced != null) {
+            replaced.delete();
+        }
+        for (DiskEntry victim : evicted) {
+            victim.delete();
+        }
+        return true;
+    }
+
+    private void prepareDiskDirectory() throws IOException {
+        Files.createDirectories(diskDirectory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(diskDirectory, "object-*")) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+        log.info("Disk cache tier enabled in '{}'.", diskDirectory);
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, long offset, long length) {
+        ByteBuffer view = buffer.duplicate();
+        int start = (int) Math.min(offset, view.limit());
+        int end = length < 0 ? view.limit() : (int) Math.min(view.limit(), start + length);
+        view.position(start);
+        view.limit(end);
+        return view;
+    }
+
+    /**
+     * Cached object held off-heap in the memory tier.
+     */
+    private static final class MemoryEntry {
+        private final ByteBuffer buffer;
+        private final String etag;
+
+        private MemoryEntry(ByteBuffer buffer, String etag) {
+            this.buffer = buffer;
+            this.etag = etag;
+        }
+
+        private boolean matches(String expected) {
+            return expected == null || expected.equals(etag);
+        }
+    }
+
+    /**
+     * Cached object stored in a file of the disk tier.
+     */
+    private static final class DiskEntry {
+        private final Path file;
+        private final long size;
+        private final String etag;
+
+        private DiskEntry(Path file, long size, String etag) {
+            this.file = file;
+            this.size = size;
+            this.etag = etag;
+        }
+
+        private boolean matches(String expected) {
+            return expected == null || expected.equals(etag);
+        }
+
+        private InputStream open(long offset, long length) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            channel.position(Math.min(offset, size));
+            InputStream stream = Channels.newInputStream(channel);
+            return length < 0 ? stream : new BoundedInputStream(stream, length);
+        }
+
+        private void delete() {
+            try {
+                // Readers that already opened the file keep reading it after deletion
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete disk cache file '{}': {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies an object into the cache while the caller reads it: into memory while it fits the memory tier,
+     * then into a file of the disk tier. Failures of the copy never fail the read, the object is then not cached.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final String key;
+        private final long version;
+        private final String etag;
+        private final long expectedSize;
+        private ByteArrayOutputStream memory;
+        private Path file;
+        private OutputStream fileOutput;
+        private long size;
+        private boolean finished;
+
+        private CachingInputStream(String key, long version, String etag, InputStream upstream, long expectedSize) {
+            super(upstream);
+            this.key = key;
+            this.version = version;
+            this.etag = etag;
+            this.expectedSize = expectedSize;
+            this.memory = new ByteArrayOutputStream(expectedSize >= 0 && expectedSize <= memoryMaxEntryBytes ? (int) expectedSize : COPY_BUFFER_SIZE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value < 0) {
+                commit();
+            } else {
+                copy(new byte[]{(byte) value}, 0, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read < 0) {
+                commit();
+            } else {
+                copy(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still be copied, so they are read
+            byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), COPY_BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!finished) {
+                    abandon();
+                }
+            }
+        }
+
+        private void copy(byte[] buffer, int offset, int length) {
+            if (finished) {
+                return;
+            }
+            size += length;
+            try {
+                if (memory != null && size <= memoryMaxEntryBytes) {
+                    memory.write(buffer, offset, length);
+                } else if (!diskEnabled || size > diskMaxEntryBytes) {
+                    abandon();
+                    return;
+                } else {
+                    if (memory != null) {
+                        // Too large for memory: continue in a file of the disk tier
+                        file = diskDirectory.resolve("object-" + fileSequence.incrementAndGet());
+                        fileOutput = Files.newOutputStream(file);
+                        memory.writeTo(fileOutput);
+                        memory = null;
+                    }
+                    fileOutput.write(buffer, offset, length);
+                }
+            } catch (IOException e) {
+                log.debug("Object '{}' not cached, the disk cache file could not be written: {}", key, e.getMessage());
+                abandon();
+                return;
+            }
+            if (size == expectedSize) {
+                // Readers bounded to the object size never ask for the end of the stream
+                commit();
+            }
+        }
+
+        private void commit() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (memory != null) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(memory.size());
+                buffer.put(memory.toByteArray()).flip();
+                memory = null;
+                putInMemory(key, new MemoryEntry(buffer, etag), version);
+                return;
+            }
+            try {
+                fileOutput.close();
+            } catch (IOException e) {
+                log.debug("Object '{}' not cached, the disk cache file could not be written: {}", key, e.getMessage());
+                deleteFile();
+                return;
+            }
+            if (!putOnDisk(key, new DiskEntry(file, size, etag), version)) {
+                deleteFile();
+            }
+        }
+
+        private void abandon() {
+            finished = true;
+            memory = null;
+            if (fileOutput != null) {
+                try {
+                    fileOutput.close();
+                } catch (IOException e) {
+                    // The file is deleted anyway
+                }
+                deleteFile();
+            }
+        }
+
+        private void deleteFile() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete disk cache file '{}': {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package digital.paisley.storage.service.cache;
+
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, TTL-based cache of object metadata, keyed by bucket and object name.
+ * <p>
+ * Besides the metadata of existing objects it remembers keys that do not exist, with a shorter TTL,
+ * so repeated existence checks of missing files do not reach the storage either. Writers update entries
+ * in place with {@link #put} and {@link #putMissing}, or drop them with {@link #invalidate}; a lookup
+ * started before such a write is then not cached, see {@link #version(String)}.
+ * <p>
+ * Published meters: {@code storage.stat-cache.requests}, tagged with {@code result} hit, negative-hit or miss.
+ */
+@Component
+public class ObjectStatCache {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<String, Entry> entries;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+
+    /**
+     * Result of a lookup.
+     */
+    public static final class Lookup {
+        private static final Lookup MISSING = new Lookup(null);
+
+        private final ObjectStatDTO stat;
+
+        private Lookup(ObjectStatDTO stat) {
+            this.stat = stat;
+        }
+
+        /**
+         * @return Metadata of the object, or null if the object is known not to exist.
+         */
+        public ObjectStatDTO getStat() {
+            return stat;
+        }
+
+        public boolean exists() {
+            return stat != null;
+        }
+    }
+
+    /**
+     * Constructor for ObjectStatCache.
+     *
+     * @param ttl         Time after which the metadata of an existing object is read again, 0 disables the cache.
+     * @param negativeTtl Time after which a missing object is looked up again, 0 disables negative caching.
+     * @param maxEntries  Maximum number of keys kept in the cache.
+     * @param registry    Registry of the cache meters.
+     */
+    public ObjectStatCache(
+            @Value("${storage.stat-cache.ttl:5m}") Duration ttl,
+            @Value("${storage.stat-cache.negative-ttl:10s}") Duration negativeTtl,
+            @Value("${storage.stat-cache.max-entries:10000}") int maxEntries,
+            MeterRegistry registry
+    ) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("storage.stat-cache.max-entries must be positive.");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = requests(registry, "hit");
+        this.negativeHits = requests(registry, "negative-hit");
+        this.misses = requests(registry, "miss");
+    }
+
+    /**
+     * Looks up the metadata of an object.
+     *
+     * @param key Cache key of the object, see {@link HotObjectCache#key(String, String)}.
+     * @return Cached result, or null if the storage must be asked.
+     */
+    public Lookup get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.stat == null) {
+            negativeHits.increment();
+            return Lookup.MISSING;
+        }
+        hits.increment();
+        return new Lookup(entry.stat);
+    }
+
+    /**
+     * Returns the invalidation version of a key. Read it before asking the storage and pass it to
+     * {@link #putIfCurrent}, so a result overtaken by a write is not cached.
+     *
+     * @param key Cache key of the object.
+     * @return Current version of the key.
+     */
+    public long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    /**
+     * Caches the result of a lookup in the storage unless the key was written in the meantime.
+     *
+     * @param key     Cache key of the object.
+     * @param version Version of the key read before the lookup.
+     * @param stat    Metadata of the object, or null if it does not exist.
+     */
+    public synchronized void putIfCurrent(String key, long version, ObjectStatDTO stat) {
+        if (versions.get(stripe(key)) == version) {
+            store(key, stat);
+        }
+    }
+
+    /**
+     * Records the metadata of an object that was just written.
+     *
+     * @param key  Cache key of the object.
+     * @param stat Metadata of the written object.
+     */
+    public synchronized void put(String key, ObjectStatDTO stat) {
+        versions.incrementAndGet(stripe(key));
+        store(key, stat);
+    }
+
+    /**
+     * Records that an object was just deleted.
+     *
+     * @param key Cache key of the object.
+     */
+    public synchronized void putMissing(String key) {
+        versions.incrementAndGet(stripe(key));
+        store(key, null);
+    }
+
+    /**
+     * Drops an object whose new metadata is not known, e.g. after it was written by another component.
+     *
+     * @param key Cache key of the object.
+     */
+    public synchronized void invalidate(String key) {
+        versions.incrementAndGet(stripe(key));
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void store(String key, ObjectStatDTO stat) {
+        long ttl = stat != null ? ttlNanos : negativeTtlNanos;
+        if (ttl <= 0) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry(stat, System.nanoTime() + ttl));
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("storage.stat-cache.requests")
+                .description("Lookups in the object metadata cache")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static final class Entry {
+        private final ObjectStatDTO stat;
+        private final long expiresAt;
+
+        private Entry(ObjectStatDTO stat, long expiresAt) {
+            this.stat = stat;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package digital.paisley.storage.service.cache;
+
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of presigned download URLs, keyed by bucket and object name.
+ * <p>
+ * Handing out the same URL for an object until its refresh time lets browsers and proxies cache the
+ * content under that URL. Entries carry the hot object cache version of the key, so a URL issued
+ * before the object was changed through this service is not reused.
+ */
+@Component
+public class PresignedUrlCache {
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructor for PresignedUrlCache.
+     *
+     * @param maxEntries Maximum number of URLs kept in the cache.
+     */
+    public PresignedUrlCache(@Value("${storage.presigned.cache-max-entries:10000}") int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("storage.presigned.cache-max-entries must be positive.");
+        }
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached URL that has not reached its refresh time.
+     *
+     * @param key     Cache key of the object, see {@link HotObjectCache#key(String, String)}.
+     * @param version Current version of the key from {@link HotObjectCache#version(String)}.
+     * @return Cached URL, or null if a new one must be issued.
+     */
+    public synchronized PresignedUrlDTO get(String key, long version) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version != version || !Instant.now().isBefore(entry.url.getRefreshAt())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.url;
+    }
+
+    public synchronized void put(String key, long version, PresignedUrlDTO url) {
+        entries.put(key, new Entry(url, version));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final PresignedUrlDTO url;
+        private final long version;
+
+        private Entry(PresignedUrlDTO url, long version) {
+            this.url = url;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package digital.paisley.storage.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, TTL-based cache of buckets and folders known to exist in the storage.
+ * <p>
+ * Only positive results are cached, so a missing bucket is always re-checked. Entries expire after the
+ * configured TTL and the least recently used entries are evicted once the cache is full.
+ */
+@Component
+public class StorageLayoutCache {
+
+    private static final String BUCKET_PREFIX = "b:";
+    private static final String FOLDER_PREFIX = "f:";
+
+    private final long ttlNanos;
+    private final Map<String, Long> entries;
+
+    /**
+     * Constructor for StorageLayoutCache.
+     *
+     * @param ttl        Time after which a cached entry must be verified again.
+     * @param maxEntries Maximum number of buckets and folders kept in the cache.
+     */
+    public StorageLayoutCache(
+            @Value("${storage.layout-cache.ttl:10m}") Duration ttl,
+            @Value("${storage.layout-cache.max-entries:1024}") int maxEntries
+    ) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("storage.layout-cache.max-entries must be positive.");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public boolean isBucketKnown(String bucketName) {
+        return isKnown(bucketKey(bucketName));
+    }
+
+    public void markBucket(String bucketName) {
+        mark(bucketKey(bucketName));
+    }
+
+    public boolean isFolderKnown(String bucketName, String folderName) {
+        return isKnown(folderKey(bucketName, folderName));
+    }
+
+    public void markFolder(String bucketName, String folderName) {
+        mark(folderKey(bucketName, folderName));
+    }
+
+    /**
+     * Removes a bucket and every folder cached for it.
+     *
+     * @param bucketName Name of the bucket.
+     */
+    public synchronized void invalidateBucket(String bucketName) {
+        String folderPrefix = folderKey(bucketName, "");
+        entries.remove(bucketKey(bucketName));
+        entries.keySet().removeIf(key -> key.startsWith(folderPrefix));
+    }
+
+    public synchronized void invalidateFolder(String bucketName, String folderName) {
+        entries.remove(folderKey(bucketName, folderName));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized boolean isKnown(String key) {
+        Long expiresAt = entries.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void mark(String key) {
+        entries.put(key, System.nanoTime() + ttlNanos);
+    }
+
+    private static String bucketKey(String bucketName) {
+        return BUCKET_PREFIX + bucketName;
+    }
+
+    private static String folderKey(String bucketName, String folderName) {
+        return FOLDER_PREFIX + bucketName + "/" + folderName;
+    }
+}
@@ -0,0 +1,19 @@
+package digital.paisley.storage.service.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Bucket names come from request parameters, so the number of distinct bucket tags
+     * is capped to keep invalid requests from flooding the registry with new series.
+     */
+    @Bean
+    public MeterFilter storageBucketTagLimit(@Value("${storage.metrics.max-buckets:50}") int maxBuckets) {
+        return MeterFilter.maximumAllowableTags("storage", "bucket", maxBuckets, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,12 @@
+package digital.paisley.storage.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled maintenance tasks, e.g. cleanup of abandoned uploads.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,40 @@
+package digital.paisley.storage.service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor used to run storage calls concurrently, e.g. for batch operations.
+ */
+@Configuration
+public class StorageExecutorConfig {
+
+    /**
+     * Bounded executor for concurrent storage calls.
+     * When the queue is full the calling thread runs the task itself, which throttles the producer.
+     *
+     * @param corePoolSize  Number of threads kept alive.
+     * @param maxPoolSize   Maximum number of threads.
+     * @param queueCapacity Number of tasks waiting for a thread before callers run tasks themselves.
+     * @return ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor storageTaskExecutor(
+            @Value("${storage.executor.core-pool-size:8}") int corePoolSize,
+            @Value("${storage.executor.max-pool-size:32}") int maxPoolSize,
+            @Value("${storage.executor.queue-capacity:256}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("storage-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
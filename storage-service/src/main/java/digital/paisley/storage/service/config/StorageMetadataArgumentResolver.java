@@ -0,0 +1,39 @@
+package digital.paisley.storage.service.config;
+
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.enums.MinioMetadata;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Binds the {@code bucket-name} and {@code folder-name} request parameters of a controller method
+ * straight to a {@link MinioMetadataDTO} of the matching storage profile.
+ */
+@Component
+public class StorageMetadataArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final StorageProfileRegistry profileRegistry;
+
+    public StorageMetadataArgumentResolver(StorageProfileRegistry profileRegistry) {
+        this.profileRegistry = profileRegistry;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == MinioMetadataDTO.class;
+    }
+
+    @Override
+    public MinioMetadataDTO resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        return profileRegistry.resolve(
+                webRequest.getParameter(MinioMetadata.BUCKET_NAME.getKey()),
+                webRequest.getParameter(MinioMetadata.FOLDER_NAME.getKey())
+        );
+    }
+}
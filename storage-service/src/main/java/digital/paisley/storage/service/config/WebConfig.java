@@ -0,0 +1,22 @@
+package digital.paisley.storage.service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final StorageMetadataArgumentResolver storageMetadataArgumentResolver;
+
+    public WebConfig(StorageMetadataArgumentResolver storageMetadataArgumentResolver) {
+        this.storageMetadataArgumentResolver = storageMetadataArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(storageMetadataArgumentResolver);
+    }
+}
@@ -0,0 +1,115 @@
+package digital.paisley.storage.service.controller;
+
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.exception.StorageFileChangedException;
+import digital.paisley.storage.service.service.IAsyncStorageService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking variant of {@link StorageController}.
+ * The servlet thread is released while MinIO is working and the response is written once the future completes.
+ * Like its service, it is not available when files are stored deduplicated.
+ */
+@RestController
+@ConditionalOnExpression("'${storage.backend:minio}' == 'minio' and !${storage.dedup.enabled:false}")
+@RequestMapping("/api/v1/storage/async")
+public class AsyncStorageController {
+
+    private final IAsyncStorageService storageService;
+
+    public AsyncStorageController(IAsyncStorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    // Upload a file by streaming the raw request body
+    @PostMapping(value = "/files/upload-stream", consumes = {
+            "!" + MediaType.MULTIPART_FORM_DATA_VALUE,
+            "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE})
+    public CompletableFuture<ResponseEntity<String>> uploadFileStream(
+            @RequestParam("file-name") String fileName,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            MinioMetadataDTO metadata,
+            InputStream fileStream) {
+
+        if (contentLength == null || contentLength < 0) {
+            throw new IllegalArgumentException("Content-Length header is required for streaming uploads.");
+        }
+
+        return storageService.uploadFile(fileStream, contentLength, contentType, fileName, metadata)
+                .thenApply(fileAddress -> ResponseEntity.ok("File uploaded successfully: " + fileAddress));
+    }
+
+    // Download a file
+    @GetMapping(value = "/files/download")
+    public CompletableFuture<ResponseEntity<Resource>> downloadFile(
+            @RequestParam("file-name") String fileName,
+            MinioMetadataDTO metadata) {
+
+
+        return download(fileName, metadata)
+                .handle((response, failure) -> {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    if (cause instanceof StorageFileChangedException) {
+                        // The file changed after its metadata was cached; the stale entry is dropped, so the second attempt reads fresh headers
+                        return download(fileName, metadata);
+                    }
+                    return failure == null ? CompletableFuture.completedFuture(response) : CompletableFuture.<ResponseEntity<Resource>>failedFuture(cause);
+                })
+                .thenCompose(response -> response);
+    }
+
+    /**
+     * Reads the metadata of a file and then its content, provided it still has the ETag the headers are built from.
+     */
+    private CompletableFuture<ResponseEntity<Resource>> download(String fileName, MinioMetadataDTO metadata) {
+        // The stream is only opened once the file is known to exist, so a failed stat leaks no connection
+        return storageService.statFile(fileName, metadata)
+                .thenCompose(stat -> storageService.downloadFile(fileName, stat.getEtag(), metadata).thenApply(fileStream -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(stat.getContentType() != null
+                            ? MediaType.parseMediaType(stat.getContentType())
+                            : MediaType.APPLICATION_OCTET_STREAM);
+                    headers.setContentDispositionFormData("attachment", fileName);
+                    headers.setContentLength(stat.getSize());
+                    if (stat.getEtag() != null) {
+                        headers.setETag("\"" + stat.getEtag() + "\"");
+                    }
+                    Resource resource = new InputStreamResource(fileStream);
+                    return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+                }));
+    }
+
+    // Delete a file
+    @DeleteMapping(value = "/files/delete")
+    public CompletableFuture<ResponseEntity<String>> deleteFile(
+            @RequestParam("file-name") String fileName,
+            MinioMetadataDTO metadata) {
+
+
+        return storageService.deleteFile(fileName, metadata)
+                .thenApply(deleted -> ResponseEntity.ok("File deleted successfully: " + fileName));
+    }
+
+    // Check if a file exists
+    @GetMapping(value = "/files/exists")
+    public CompletableFuture<ResponseEntity<Boolean>> fileExists(
+            @RequestParam("file-name") String fileName,
+            MinioMetadataDTO metadata) {
+
+
+        return storageService.fileExists(fileName, metadata)
+                .thenApply(ResponseEntity::ok);
+    }
+}
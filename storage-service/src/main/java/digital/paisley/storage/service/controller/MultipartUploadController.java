@@ -0,0 +1,83 @@
+package digital.paisley.storage.service.controller;
+
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.MultipartPartDTO;
+import digital.paisley.storage.service.dto.MultipartUploadDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.service.IMultipartUploadService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+@RequestMapping("/api/v1/storage/files/multipart")
+public class MultipartUploadController {
+
+    private final IMultipartUploadService multipartUploadService;
+
+    public MultipartUploadController(IMultipartUploadService multipartUploadService) {
+        this.multipartUploadService = multipartUploadService;
+    }
+
+    // Start a multipart upload
+    @PostMapping
+    public ResponseEntity<MultipartUploadDTO> initiateUpload(
+            @RequestParam("file-name") String fileName,
+            @RequestParam(value = "content-type", required = false) String contentType,
+            @RequestParam(value = "size", required = false) Long size,
+            MinioMetadataDTO metadata) {
+
+        MultipartUploadDTO upload = multipartUploadService.initiateUpload(fileName, contentType, size != null ? size : -1, metadata);
+
+        return ResponseEntity.ok(upload);
+    }
+
+    // Upload one part by streaming the raw request body
+    @PutMapping(value = "/{upload-id}/parts/{part-number}", consumes = {
+            "!" + MediaType.MULTIPART_FORM_DATA_VALUE,
+            "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE})
+    public ResponseEntity<MultipartPartDTO> uploadPart(
+            @PathVariable("upload-id") String uploadId,
+            @PathVariable("part-number") int partNumber,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            InputStream partStream) {
+
+        if (contentLength == null || contentLength < 0) {
+            throw new IllegalArgumentException("Content-Length header is required for part uploads.");
+        }
+        MultipartPartDTO part = multipartUploadService.uploadPart(uploadId, partNumber, partStream, contentLength);
+
+        return ResponseEntity.ok(part);
+    }
+
+    // List the parts stored so far, used to resume an upload
+    @GetMapping("/{upload-id}")
+    public ResponseEntity<MultipartUploadDTO> getUpload(@PathVariable("upload-id") String uploadId) {
+        return ResponseEntity.ok(multipartUploadService.getUpload(uploadId));
+    }
+
+    // Assemble the uploaded parts into the final file; without a part list every stored part is used
+    @PostMapping("/{upload-id}/complete")
+    public ResponseEntity<String> completeUpload(
+            @PathVariable("upload-id") String uploadId,
+            @RequestBody(required = false) List<MultipartPartDTO> parts) {
+
+        UploadFileResponse fileAddress = multipartUploadService.completeUpload(uploadId, parts);
+
+        return ResponseEntity.ok("File uploaded successfully: " + fileAddress);
+    }
+
+    // Abort the upload and discard its parts
+    @DeleteMapping("/{upload-id}")
+    public ResponseEntity<String> abortUpload(@PathVariable("upload-id") String uploadId) {
+        multipartUploadService.abortUpload(uploadId);
+
+        return ResponseEntity.ok("Upload aborted successfully: " + uploadId);
+    }
+}
@@ -0,0 +1,25 @@
+package digital.paisley.storage.service.controller;
+
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.dto.CacheStatsDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/storage/cache")
+public class StorageCacheController {
+
+    private final HotObjectCache hotObjectCache;
+
+    public StorageCacheController(HotObjectCache hotObjectCache) {
+        this.hotObjectCache = hotObjectCache;
+    }
+
+    // Hit, miss and eviction counters of the hot object cache
+    @GetMapping("/stats")
+    public ResponseEntity<CacheStatsDTO> getStats() {
+        return ResponseEntity.ok(hotObjectCache.stats());
+    }
+}
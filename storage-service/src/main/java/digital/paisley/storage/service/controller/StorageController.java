@@ -1,31 +1,64 @@
 package digital.paisley.storage.service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import digital.paisley.storage.service.dto.BatchItemResult;
+import digital.paisley.storage.service.dto.FileEntryDTO;
 import digital.paisley.storage.service.dto.MetadataDTO;
 import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
 import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.exception.StorageFileChangedException;
+import digital.paisley.storage.service.exception.StorageFileNotFoundException;
 import digital.paisley.storage.service.service.IStorageService;
-import digital.paisley.storage.service.util.MetadataToDTO;
-import org.springframework.beans.factory.annotation.Qualifier;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1/storage")
 public class StorageController {
 
     private final IStorageService storageService;
+    private final ObjectMapper objectMapper;
 
-    public StorageController(@Qualifier("minioService") IStorageService storageService) {
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final int MAX_LIST_LIMIT = 1000;
+
+    public StorageController(IStorageService storageService, ObjectMapper objectMapper) {
         this.storageService = storageService;
+        this.objectMapper = objectMapper;
     }
 
     // Upload a file
@@ -33,39 +66,286 @@ public class StorageController {
     public ResponseEntity<String> uploadFile(
             @RequestParam("file-name") String fileName,
             @RequestParam("file-stream") MultipartFile fileStream,
-            @RequestParam Map<String, Object> metadata) {
+            MinioMetadataDTO metadata) {
+
+        UploadFileResponse fileAddress = storageService.uploadFile(fileStream, fileName, metadata);
+
+        return ResponseEntity.ok("File uploaded successfully: " + fileAddress);
+    }
+
+    // Upload a file by streaming the raw request body, bypassing multipart buffering
+    @PostMapping(value = "/files/upload-stream", consumes = {
+            "!" + MediaType.MULTIPART_FORM_DATA_VALUE,
+            "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE})
+    public ResponseEntity<String> uploadFileStream(
+            @RequestParam("file-name") String fileName,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(value = "content-sha256", required = false) String contentDigest,
+            MinioMetadataDTO metadata,
+            InputStream fileStream) {
 
-        MetadataDTO metadataDTO = MetadataToDTO.createMetadata(metadata, MinioMetadataDTO.class);
-        UploadFileResponse fileAddress = storageService.uploadFile(fileStream, fileName, metadataDTO);
+        if (contentLength == null || contentLength < 0) {
+            throw new IllegalArgumentException("Content-Length header is required for streaming uploads.");
+        }
+        // Content the storage already holds is linked without reading the body
+        UploadFileResponse fileAddress = contentDigest != null
+                ? storageService.uploadExisting(contentDigest, contentType, fileName, metadata)
+                : null;
+        if (fileAddress == null) {
+            fileAddress = storageService.uploadFile(fileStream, contentLength, contentType, fileName, metadata);
+        }
 
         return ResponseEntity.ok("File uploaded successfully: " + fileAddress);
     }
 
-    // Download a file
+    // Store a file by the SHA-256 digest of content the storage already holds, without sending the content.
+    // The answer reveals whether the bucket holds the content, see IStorageService.uploadExisting.
+    @PostMapping(value = "/files/upload-existing")
+    public ResponseEntity<String> uploadExisting(
+            @RequestParam("file-name") String fileName,
+            @RequestParam("content-sha256") String contentDigest,
+            @RequestParam(value = "content-type", required = false) String contentType,
+            MinioMetadataDTO metadata) {
+
+        UploadFileResponse fileAddress = storageService.uploadExisting(contentDigest, contentType, fileName, metadata);
+        if (fileAddress == null) {
+            throw new StorageFileNotFoundException("Content '" + contentDigest + "' is not stored, the file must be uploaded.");
+        }
+
+        return ResponseEntity.ok("File uploaded successfully: " + fileAddress);
+    }
+
+    // Download a file, honouring byte ranges and conditional requests
     @GetMapping(value = "/files/download", produces = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Resource> downloadFile(
             @RequestParam("file-name") String fileName,
-            @RequestParam Map<String, Object> metadata) {
+            MinioMetadataDTO metadata,
+            @RequestHeader HttpHeaders requestHeaders,
+            ServletWebRequest webRequest) {
+
+        try {
+            return download(fileName, metadata, requestHeaders, webRequest);
+        } catch (StorageFileChangedException e) {
+            // The file changed after its metadata was cached; the stale entry is dropped, so the second attempt reads fresh headers
+            return download(fileName, metadata, requestHeaders, webRequest);
+        }
+    }
 
-        MetadataDTO metadataDTO = MetadataToDTO.createMetadata(metadata, MinioMetadataDTO.class);
-        InputStream fileStream = storageService.downloadFile(fileName, metadataDTO);
-        Resource resource = new InputStreamResource(fileStream);
+    /**
+     * Answers a download from the metadata of the file. The body is only read while the file still
+     * matches that metadata, otherwise {@link StorageFileChangedException} is thrown before anything is sent.
+     */
+    private ResponseEntity<Resource> download(String fileName, MetadataDTO metadata, HttpHeaders requestHeaders, ServletWebRequest webRequest) {
+        ObjectStatDTO stat = storageService.statFile(fileName, metadata);
+
+        // Compressed files are sent as stored to clients accepting their encoding, ranges always refer to the decoded content
+        String encoding = stat.getContentEncoding();
+        boolean sendEncoded = encoding != null
+                && requestHeaders.getFirst(HttpHeaders.RANGE) == null
+                && acceptsEncoding(requestHeaders.get(HttpHeaders.ACCEPT_ENCODING), encoding);
+
+        // Sets ETag and Last-Modified on the response and answers 304 when the client copy is current
+        long lastModified = stat.getLastModified() != null ? stat.getLastModified().toEpochMilli() : -1;
+        String etag = sendEncoded && stat.getEtag() != null ? stat.getEtag() + "-" + encoding : stat.getEtag();
+        // checkNotModified keeps validators already on the response, which may stem from an attempt on stale metadata
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag.startsWith("\"") || etag.startsWith("W/") ? etag : "\"" + etag + "\"");
+            }
+            if (lastModified >= 0) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            }
+        }
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentType(stat.getContentType() != null
+                ? MediaType.parseMediaType(stat.getContentType())
+                : MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDispositionFormData("attachment", fileName);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (encoding != null) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+
+        boolean headRequest = HttpMethod.HEAD.equals(webRequest.getHttpMethod());
+        if (sendEncoded) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.setContentLength(stat.getStoredSize());
+            if (headRequest) {
+                return new ResponseEntity<>(null, headers, HttpStatus.OK);
+            }
+            Resource resource = new InputStreamResource(storageService.downloadEncoded(fileName, metadata));
+            return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+        }
+
+        long size = stat.getSize();
+        List<HttpRange> ranges = ranges(requestHeaders);
+        if (ranges.isEmpty()) {
+            headers.setContentLength(size);
+            if (headRequest || sendFile(webRequest, fileName, metadata, 0, size)) {
+                return new ResponseEntity<>(null, headers, HttpStatus.OK);
+            }
+            Resource resource = new InputStreamResource(storageService.downloadFile(fileName, metadata));
+            return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+        }
+
+        // Multiple ranges are coalesced into the single range spanning the satisfiable ones
+        long start = Long.MAX_VALUE;
+        long end = -1;
+        for (HttpRange range : ranges) {
+            long rangeStart;
+            long rangeEnd;
+            try {
+                rangeStart = range.getRangeStart(size);
+                rangeEnd = range.getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                // Starts beyond the end of the file
+                continue;
+            }
+            if (rangeStart <= rangeEnd) {
+                start = Math.min(start, rangeStart);
+                end = Math.max(end, rangeEnd);
+            }
+        }
+        if (start >= size || end < start) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return new ResponseEntity<>(null, headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+
+        long length = end - start + 1;
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        headers.setContentLength(length);
+        if (headRequest || sendFile(webRequest, fileName, metadata, start, end + 1)) {
+            return new ResponseEntity<>(null, headers, HttpStatus.PARTIAL_CONTENT);
+        }
+        Resource resource = new InputStreamResource(storageService.downloadFile(fileName, metadata, start, length));
+        return new ResponseEntity<>(resource, headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Parses the Range header. A malformed header is ignored as if it were missing, so the whole file is sent;
+     * only well-formed ranges that lie outside the file are answered with 416.
+     *
+     * @param requestHeaders Headers of the request.
+     * @return The requested ranges, empty if there are none or the header is malformed.
+     */
+    private static List<HttpRange> ranges(HttpHeaders requestHeaders) {
+        try {
+            return requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header allows a content encoding, honouring q=0 exclusions.
+     *
+     * @param acceptEncoding Values of the Accept-Encoding header, or null if it is missing.
+     * @param encoding       Content encoding, such as gzip.
+     * @return True if the encoding is acceptable.
+     */
+    private static boolean acceptsEncoding(List<String> acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String value : acceptEncoding) {
+            for (String coding : value.split(",")) {
+                String[] parameters = coding.trim().split(";");
+                String name = parameters[0].trim();
+                boolean allowed = true;
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            allowed = Double.parseDouble(parameter.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            allowed = false;
+                        }
+                    }
+                }
+                if (name.equalsIgnoreCase(encoding) || name.equalsIgnoreCase("x-" + encoding)) {
+                    return allowed;
+                }
+                if (name.equals("*")) {
+                    wildcard = allowed;
+                }
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Hands a local file to Tomcat, which writes it to the socket with FileChannel.transferTo
+     * after the headers, so the content never passes through the Java heap.
+     *
+     * @param webRequest Current request.
+     * @param fileName   Name of the file.
+     * @param metadata   Metadata for the storage.
+     * @param start      Position of the first byte to send.
+     * @param end        Position after the last byte to send.
+     * @return True if the container sends the file, false if the body must be written by the application.
+     */
+    private boolean sendFile(ServletWebRequest webRequest, String fileName, MetadataDTO metadata, long start, long end) {
+        HttpServletRequest request = webRequest.getRequest();
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            return false;
+        }
+        Path file = storageService.localFile(fileName, metadata);
+        if (file == null) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toString());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+        return true;
+    }
+
+    // Issue a presigned URL to download a file directly from the object store, optionally redirecting to it
+    @GetMapping(value = "/files/presigned-download")
+    public ResponseEntity<PresignedUrlDTO> presignDownload(
+            @RequestParam("file-name") String fileName,
+            @RequestParam(value = "redirect", defaultValue = "false") boolean redirect,
+            MinioMetadataDTO metadata) {
 
-        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+        PresignedUrlDTO url = storageService.presignDownload(fileName, metadata);
+
+        // The same URL is handed out until its refresh time, so the answer can be cached until then
+        long maxAge = Math.max(0, Duration.between(Instant.now(), url.getRefreshAt()).getSeconds());
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePrivate();
+        if (redirect) {
+            return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                    .location(URI.create(url.getUrl()))
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(url);
+    }
+
+    // Issue a presigned URL to upload a file directly to the object store
+    @PostMapping(value = "/files/presigned-upload")
+    public ResponseEntity<PresignedUrlDTO> presignUpload(
+            @RequestParam("file-name") String fileName,
+            @RequestParam(value = "file-size", defaultValue = "-1") long fileSize,
+            MinioMetadataDTO metadata) {
+
+        PresignedUrlDTO url = storageService.presignUpload(fileName, fileSize, metadata);
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(url);
     }
 
     // Delete files
     @DeleteMapping(value = "/files/delete", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<String> deleteFiles(
             @RequestParam("file-name") String fileName,
-            @RequestParam Map<String, Object> metadata) {
+            MinioMetadataDTO metadata) {
 
-        MetadataDTO metadataDTO = MetadataToDTO.createMetadata(metadata, MinioMetadataDTO.class);
-        storageService.deleteFile(fileName, metadataDTO);
+        storageService.deleteFile(fileName, metadata);
 
         return ResponseEntity.ok("File deleted successfully: " + fileName);
 
@@ -75,12 +355,121 @@ public class StorageController {
     @GetMapping(value = "/files/exists")
     public ResponseEntity<Boolean> fileExists(
             @RequestParam("file-name") String fileName,
-            @RequestParam Map<String, Object> metadata) {
+            MinioMetadataDTO metadata) {
 
-        MetadataDTO metadataDTO = MetadataToDTO.createMetadata(metadata, MinioMetadataDTO.class);
-        boolean exists = storageService.fileExists(fileName, metadataDTO);
+        boolean exists = storageService.fileExists(fileName, metadata);
 
         return ResponseEntity.ok(exists);
 
     }
+
+    // List the files of a folder as newline-delimited JSON, one entry per line
+    @GetMapping(value = "/files/list")
+    public ResponseEntity<StreamingResponseBody> listFiles(
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit,
+            @RequestParam(value = "continuation-token", required = false) String continuationToken,
+            @RequestParam(value = "details", defaultValue = "true") boolean details,
+            MinioMetadataDTO metadata) {
+
+        if (limit < 1 || limit > MAX_LIST_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIST_LIMIT + ".");
+        }
+        String startAfter = continuationToken != null ? decodeContinuationToken(continuationToken) : null;
+
+        // One entry beyond the limit tells whether there is a next page
+        Stream<FileEntryDTO> entries = storageService.listFiles(prefix, startAfter, limit + 1, details, metadata);
+        Iterator<FileEntryDTO> iterator;
+        try {
+            iterator = entries.iterator();
+            // Fetch the first page now, so listing errors are still reported with an error status
+            iterator.hasNext();
+        } catch (RuntimeException e) {
+            entries.close();
+            throw e;
+        }
+
+        StreamingResponseBody body = out -> {
+            try (entries) {
+                String lastName = null;
+                int count = 0;
+                while (iterator.hasNext()) {
+                    FileEntryDTO entry = iterator.next();
+                    if (count == limit) {
+                        writeLine(out, Collections.singletonMap("nextToken", encodeContinuationToken(lastName)));
+                        break;
+                    }
+                    writeLine(out, entry);
+                    lastName = entry.getFileName();
+                    count++;
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
+    }
+
+    // Upload several files concurrently
+    @PostMapping(value = "/files/upload-batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<BatchItemResult>> uploadFiles(
+            @RequestParam("file-stream") List<MultipartFile> fileStreams,
+            @RequestParam(value = "file-name", required = false) List<String> fileNames,
+            MinioMetadataDTO metadata) {
+
+        // Fall back to the original file names when no explicit names are given
+        if (fileNames == null || fileNames.isEmpty()) {
+            fileNames = new ArrayList<>(fileStreams.size());
+            for (MultipartFile fileStream : fileStreams) {
+                fileNames.add(fileStream.getOriginalFilename());
+            }
+        }
+        List<BatchItemResult> results = storageService.uploadFiles(fileStreams, fileNames, metadata);
+
+        return ResponseEntity.ok(results);
+    }
+
+    // Delete several files with a single storage request
+    @DeleteMapping(value = "/files/delete-batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<BatchItemResult>> deleteFilesBatch(
+            @RequestParam("file-name") List<String> fileNames,
+            MinioMetadataDTO metadata) {
+
+        List<BatchItemResult> results = storageService.deleteFiles(fileNames, metadata);
+
+        return ResponseEntity.ok(results);
+    }
+
+    // Check if several files exist
+    @GetMapping(value = "/files/exists-batch")
+    public ResponseEntity<List<BatchItemResult>> filesExist(
+            @RequestParam("file-name") List<String> fileNames,
+            MinioMetadataDTO metadata) {
+
+        List<BatchItemResult> results = storageService.filesExist(fileNames, metadata);
+
+        return ResponseEntity.ok(results);
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    /**
+     * Continuation tokens carry the name of the last file of a page, base64url-encoded
+     * so they are opaque to clients and safe in query strings.
+     */
+    private static String encodeContinuationToken(String lastName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeContinuationToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token.", e);
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package digital.paisley.storage.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a single item in a batch storage operation.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private String fileName;
+    private boolean success;
+    private Boolean exists;
+    private String message;
+
+    public static BatchItemResult success(String fileName, String message) {
+        return new BatchItemResult(fileName, true, null, message);
+    }
+
+    public static BatchItemResult failure(String fileName, String message) {
+        return new BatchItemResult(fileName, false, null, message);
+    }
+
+    public static BatchItemResult exists(String fileName, boolean exists) {
+        return new BatchItemResult(fileName, true, exists, null);
+    }
+}
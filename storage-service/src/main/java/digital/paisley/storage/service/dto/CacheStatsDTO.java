@@ -0,0 +1,20 @@
+package digital.paisley.storage.service.dto;
+
+import lombok.Data;
+
+/**
+ * Counters and sizes of the hot object cache, used to tune its budgets.
+ */
+@Data
+public class CacheStatsDTO {
+    private int memoryEntries;
+    private long memoryBytes;
+    private long memoryMaxBytes;
+    private int diskEntries;
+    private long diskBytes;
+    private long diskMaxBytes;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+}
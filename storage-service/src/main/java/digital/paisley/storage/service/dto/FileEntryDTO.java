@@ -0,0 +1,35 @@
+package digital.paisley.storage.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One file of a folder listing.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FileEntryDTO {
+    /**
+     * Name of the file relative to the listed folder, as used to download it.
+     */
+    private String fileName;
+    /**
+     * Size in bytes; missing from listings without details if the storage does not list the real size.
+     */
+    private Long size;
+    /**
+     * ETag as returned on downloads; missing from listings without details if the storage does not list it.
+     */
+    private String etag;
+    /**
+     * Content type of the file, if the storage reports it in listings.
+     */
+    private String contentType;
+    private Instant lastModified;
+}
@@ -1,28 +1,54 @@
 package digital.paisley.storage.service.dto;
 
-import lombok.*;
-
-import java.util.Map;
+import digital.paisley.storage.service.profile.StorageProfile;
+import lombok.Getter;
 
 /**
  * Metadata DTO specific to MinIO operations.
+ * Object keys within the bucket are built from the folder path, which includes the key prefix of the profile.
  */
-@AllArgsConstructor
-@NoArgsConstructor
-@Setter
 @Getter
 public class MinioMetadataDTO implements MetadataDTO {
-    private String bucketName;
-    private String folderName;
+    private final String bucketName;
+    private final String folderName;
+    private final String folderPath;
+    private final String folderPrefix;
+    private final StorageProfile profile;
+
+    public MinioMetadataDTO(String bucketName, String folderName) {
+        this.bucketName = bucketName;
+        this.folderName = folderName;
+        this.folderPath = folderName;
+        this.folderPrefix = folderName + "/";
+        this.profile = null;
+    }
 
-    public MinioMetadataDTO(Map<String, Object> metadata) {
-        this.bucketName = (String) metadata.get("bucket-name");
-        this.folderName = (String) metadata.get("folder-name");
+    public MinioMetadataDTO(StorageProfile profile, String folderName) {
+        this.bucketName = profile.getBucketName();
+        this.folderName = folderName;
+        this.folderPath = profile.getKeyPrefix() + folderName;
+        this.folderPrefix = this.folderPath + "/";
+        this.profile = profile;
     }
 
-    public MinioMetadataDTO(MinioMetadataDTO minioMetadataDTO) {
-        this.bucketName = minioMetadataDTO.getBucketName();
-        this.folderName = minioMetadataDTO.getFolderName();
+    /**
+     * Builds the key of a file within the bucket.
+     *
+     * @param fileName Name of the file.
+     * @return Object name.
+     */
+    public String objectName(String fileName) {
+        return folderPrefix + fileName;
     }
 
+    /**
+     * Rejects uploads larger than the profile of the bucket allows.
+     *
+     * @param size Size of the upload in bytes.
+     */
+    public void validateUploadSize(long size) {
+        if (profile != null) {
+            profile.validateUploadSize(size);
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package digital.paisley.storage.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A part of an unfinished multipart upload.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultipartPartDTO {
+    private int partNumber;
+    private String etag;
+    private long size;
+}
@@ -0,0 +1,21 @@
+package digital.paisley.storage.service.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of an unfinished multipart upload, used to resume it.
+ */
+@Data
+public class MultipartUploadDTO {
+    private String uploadId;
+    private String fileName;
+    private String bucketName;
+    private String objectName;
+    private long maxPartSize;
+    // Largest size of the assembled file in bytes, or -1 for no limit
+    private long maxUploadSize;
+    private List<MultipartPartDTO> parts = new ArrayList<>();
+}
@@ -0,0 +1,30 @@
+package digital.paisley.storage.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored file, used to build download headers.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ObjectStatDTO {
+    private long size;
+    private String etag;
+    private String contentType;
+    private Instant lastModified;
+    // SHA-256 digest of the content if the file is stored deduplicated, otherwise null
+    private String contentDigest;
+    // Encoding of the stored content if it is stored compressed, otherwise null; the size is the uncompressed one
+    private String contentEncoding;
+    // Number of bytes stored, only set together with the content encoding
+    private long storedSize;
+
+    public ObjectStatDTO(long size, String etag, String contentType, Instant lastModified) {
+        this(size, etag, contentType, lastModified, null, null, 0);
+    }
+}
@@ -0,0 +1,31 @@
+package digital.paisley.storage.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Short-lived URL granting direct access to one object in the object store.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresignedUrlDTO {
+    /**
+     * HTTP method the URL is signed for, GET, PUT or POST.
+     */
+    private String method;
+    private String url;
+    private Instant expiresAt;
+    /**
+     * Time after which clients should ask for a new URL instead of reusing this one.
+     */
+    private Instant refreshAt;
+    /**
+     * Form fields to send along with the file for POST uploads, null for other methods.
+     */
+    private Map<String, String> formData;
+}
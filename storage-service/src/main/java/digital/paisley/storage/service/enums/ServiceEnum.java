@@ -1,10 +1,20 @@
 package digital.paisley.storage.service.enums;
 
+/**
+ * Services allowed to use the storage, each owning the bucket of the same name.
+ */
 public enum ServiceEnum {
     GALLERY_SERVICE("gallery-service"),
     NOTE_SERVICE("note-service"),
     ;
 
-    ServiceEnum(String s) {
+    private final String bucketName;
+
+    ServiceEnum(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    public String getBucketName() {
+        return bucketName;
     }
 }
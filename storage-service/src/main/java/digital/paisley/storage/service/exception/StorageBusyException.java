@@ -0,0 +1,11 @@
+package digital.paisley.storage.service.exception;
+
+/**
+ * Thrown when the storage cannot accept more concurrent work.
+ */
+public class StorageBusyException extends RuntimeException {
+
+    public StorageBusyException(String message) {
+        super(message);
+    }
+}
@@ -22,6 +22,46 @@ public class StorageControllerAdvice {
         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    // Handle StorageFileNotFoundException (requested file is missing)
+    @ExceptionHandler(StorageFileNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleStorageFileNotFoundException(StorageFileNotFoundException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.NOT_FOUND.value());
+        response.put("error", "Not Found");
+        response.put("message", ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+    // Handle StorageFileChangedException (file replaced while it was being downloaded)
+    @ExceptionHandler(StorageFileChangedException.class)
+    public ResponseEntity<Map<String, Object>> handleStorageFileChangedException(StorageFileChangedException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.CONFLICT.value());
+        response.put("error", "Conflict");
+        response.put("message", ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    // Handle StorageBusyException (concurrency limit reached)
+    @ExceptionHandler(StorageBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleStorageBusyException(StorageBusyException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.put("error", "Service Unavailable");
+        response.put("message", ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Handle UnsupportedOperationException (operation not offered by the storage backend)
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ResponseEntity<Map<String, Object>> handleUnsupportedOperationException(UnsupportedOperationException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", HttpStatus.NOT_IMPLEMENTED.value());
+        response.put("error", "Not Implemented");
+        response.put("message", ex.getMessage());
+        return new ResponseEntity<>(response, HttpStatus.NOT_IMPLEMENTED);
+    }
+
     // Handle MultipartException (file-related errors)
     @ExceptionHandler(MultipartException.class)
     public ResponseEntity<Map<String, Object>> handleMultipartException(MultipartException ex) {
@@ -0,0 +1,12 @@
+package digital.paisley.storage.service.exception;
+
+/**
+ * Thrown when a file changed between reading its metadata and opening its content,
+ * so the content does not match the metadata the response headers were built from.
+ */
+public class StorageFileChangedException extends RuntimeException {
+
+    public StorageFileChangedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package digital.paisley.storage.service.exception;
+
+/**
+ * Thrown when a requested file does not exist in the storage.
+ */
+public class StorageFileNotFoundException extends RuntimeException {
+
+    public StorageFileNotFoundException(String message) {
+        super(message);
+    }
+}
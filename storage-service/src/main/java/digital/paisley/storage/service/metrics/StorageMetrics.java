@@ -0,0 +1,302 @@
+package digital.paisley.storage.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.errors.ErrorResponseException;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Records latency, throughput, concurrency and errors of storage operations and of the MinIO calls behind them.
+ * <p>
+ * Published meters, all tagged with {@code bucket}:
+ * <ul>
+ *     <li>{@code storage.operation} - timer with histogram per storage operation, tagged with {@code operation} and {@code outcome}</li>
+ *     <li>{@code storage.operation.active} - gauge of operations in flight, tagged with {@code operation}</li>
+ *     <li>{@code storage.operation.errors} - counter of failed operations, tagged with {@code operation} and {@code exception}</li>
+ *     <li>{@code storage.minio.requests} - timer with histogram per MinIO call, tagged with {@code call} and {@code outcome}</li>
+ *     <li>{@code storage.minio.errors} - counter of failed MinIO calls, tagged with {@code call} and {@code code}</li>
+ *     <li>{@code storage.bytes.in} / {@code storage.bytes.out} - bytes uploaded and downloaded, tagged with {@code operation}</li>
+ * </ul>
+ */
+@Component
+public class StorageMetrics {
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, AtomicInteger> activeOperations = new ConcurrentHashMap<>();
+
+    public StorageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * A MinIO client call.
+     */
+    @FunctionalInterface
+    public interface MinioCall<T> {
+        T call() throws Exception;
+    }
+
+    /**
+     * Times a storage operation and counts it as active while it runs.
+     *
+     * @param operation Name of the operation.
+     * @param bucket    Bucket the operation works on.
+     * @param task      The operation.
+     * @return Result of the operation.
+     */
+    public <T> T record(String operation, String bucket, Supplier<T> task) {
+        AtomicInteger active = activeOperations(operation, bucket);
+        active.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = task.get();
+            recordOperation(operation, bucket, start, null);
+            return result;
+        } catch (RuntimeException e) {
+            recordOperation(operation, bucket, start, e);
+            throw e;
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Times a storage operation whose result is consumed lazily, counting it as active until its stream is closed.
+     *
+     * @param operation Name of the operation.
+     * @param bucket    Bucket the operation works on.
+     * @param task      The operation.
+     * @return Result of the operation, timed while it is consumed.
+     */
+    public <T> Stream<T> recordStream(String operation, String bucket, Supplier<Stream<T>> task) {
+        AtomicInteger active = activeOperations(operation, bucket);
+        active.incrementAndGet();
+        long start = System.nanoTime();
+        Stream<T> stream;
+        try {
+            stream = task.get();
+        } catch (RuntimeException e) {
+            active.decrementAndGet();
+            recordOperation(operation, bucket, start, e);
+            throw e;
+        }
+        return observe(stream, failure -> {
+            active.decrementAndGet();
+            recordOperation(operation, bucket, start, failure);
+        });
+    }
+
+    /**
+     * Times a storage operation without a result.
+     */
+    public void record(String operation, String bucket, Runnable task) {
+        record(operation, bucket, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Times a single MinIO call.
+     *
+     * @param call   Name of the MinIO client method.
+     * @param bucket Bucket the call works on.
+     * @param task   The call.
+     * @return Result of the call.
+     * @throws Exception Whatever the MinIO client throws.
+     */
+    public <T> T minio(String call, String bucket, MinioCall<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T result = task.call();
+            recordMinio(call, bucket, start, null);
+            return result;
+        } catch (Exception e) {
+            recordMinio(call, bucket, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Times a single call of the asynchronous MinIO client until its future completes.
+     *
+     * @param call   Name of the MinIO client method.
+     * @param bucket Bucket the call works on.
+     * @param task   The call; exceptions thrown while building the request fail the returned future.
+     * @return Future of the call.
+     */
+    public <T> CompletableFuture<T> minioAsync(String call, String bucket, MinioCall<CompletableFuture<T>> task) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = task.call();
+        } catch (Exception e) {
+            recordMinio(call, bucket, start, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, failure) -> recordMinio(call, bucket, start, failure));
+    }
+
+    /**
+     * Times a MinIO call whose results are read lazily, such as a listing, until the stream of results is closed.
+     *
+     * @param call   Name of the MinIO client method.
+     * @param bucket Bucket the call works on.
+     * @param stream Results of the call.
+     * @return Stream of the same results.
+     */
+    public <T> Stream<T> minioStream(String call, String bucket, Stream<T> stream) {
+        long start = System.nanoTime();
+        return observe(stream, failure -> recordMinio(call, bucket, start, failure));
+    }
+
+    /**
+     * Wraps a stream to report, once it is closed, the first exception thrown while it was consumed, or null.
+     */
+    private static <T> Stream<T> observe(Stream<T> stream, Consumer<Throwable> onClose) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Spliterator<T> source = stream.spliterator();
+        Spliterator<T> observed = new Spliterators.AbstractSpliterator<T>(source.estimateSize(), source.characteristics()) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    return source.tryAdvance(action);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                }
+            }
+        };
+        return StreamSupport.stream(observed, false)
+                .onClose(stream::close)
+                .onClose(() -> onClose.accept(failure.get()));
+    }
+
+    private AtomicInteger activeOperations(String operation, String bucket) {
+        return activeOperations.computeIfAbsent(operation + "|" + bucket, key -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("storage.operation.active", counter, AtomicInteger::get)
+                    .description("Storage operations in flight")
+                    .tag("operation", operation)
+                    .tag("bucket", bucket)
+                    .register(registry);
+            return counter;
+        });
+    }
+
+    private void recordOperation(String operation, String bucket, long start, Throwable failure) {
+        if (failure != null) {
+            Counter.builder("storage.operation.errors")
+                    .description("Failed storage operations")
+                    .tag("operation", operation)
+                    .tag("bucket", bucket)
+                    .tag("exception", failure.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+        Timer.builder("storage.operation")
+                .description("Latency of storage operations")
+                .tag("operation", operation)
+                .tag("bucket", bucket)
+                .tag("outcome", failure == null ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordMinio(String call, String bucket, long start, Throwable failure) {
+        if (failure != null) {
+            Throwable cause = failure;
+            // Checked exceptions of lazily read results arrive wrapped in a plain RuntimeException
+            while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                    || cause.getClass() == RuntimeException.class) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            String code = cause instanceof ErrorResponseException
+                    ? ((ErrorResponseException) cause).errorResponse().code()
+                    : cause.getClass().getSimpleName();
+            Counter.builder("storage.minio.errors")
+                    .description("Failed MinIO calls")
+                    .tag("call", call)
+                    .tag("bucket", bucket)
+                    .tag("code", code != null ? code : "unknown")
+                    .register(registry)
+                    .increment();
+        }
+        Timer.builder("storage.minio.requests")
+                .description("Latency of MinIO calls")
+                .tag("call", call)
+                .tag("bucket", bucket)
+                .tag("outcome", failure == null ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void bytesIn(String operation, String bucket, long bytes) {
+        bytesCounter("storage.bytes.in", "Bytes uploaded to the storage", operation, bucket).increment(bytes);
+    }
+
+    /**
+     * Counts the bytes of a download as the client reads them.
+     *
+     * @param operation   Name of the operation.
+     * @param bucket      Bucket the content comes from.
+     * @param inputStream Downloaded content.
+     * @return Stream counting every byte read from it.
+     */
+    public InputStream bytesOut(String operation, String bucket, InputStream inputStream) {
+        Counter counter = bytesCounter("storage.bytes.out", "Bytes downloaded from the storage", operation, bucket);
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    counter.increment();
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) throws IOException {
+                int read = super.read(target, offset, length);
+                if (read > 0) {
+                    counter.increment(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private Counter bytesCounter(String name, String description, String operation, String bucket) {
+        return Counter.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("bucket", bucket)
+                .register(registry);
+    }
+}
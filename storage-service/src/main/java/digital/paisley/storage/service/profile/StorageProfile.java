@@ -0,0 +1,41 @@
+package digital.paisley.storage.service.profile;
+
+import digital.paisley.storage.service.enums.ServiceEnum;
+import lombok.Getter;
+
+/**
+ * Storage settings of one service, resolved once at startup.
+ */
+@Getter
+public class StorageProfile {
+
+    private final ServiceEnum service;
+    private final String bucketName;
+    /**
+     * Prefix put in front of every folder of the service, empty to use the folders as given.
+     */
+    private final String keyPrefix;
+    /**
+     * Largest file the service may upload in bytes, or -1 for no limit.
+     */
+    private final long maxUploadBytes;
+
+    public StorageProfile(ServiceEnum service, String keyPrefix, long maxUploadBytes) {
+        this.service = service;
+        this.bucketName = service.getBucketName();
+        this.keyPrefix = keyPrefix;
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    /**
+     * Rejects uploads larger than the profile allows.
+     *
+     * @param size Size of the upload in bytes.
+     */
+    public void validateUploadSize(long size) {
+        if (maxUploadBytes >= 0 && size > maxUploadBytes) {
+            throw new IllegalArgumentException("File exceeds the maximum upload size of " + maxUploadBytes
+                    + " bytes for '" + bucketName + "'.");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package digital.paisley.storage.service.profile;
+
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.enums.MinioMetadata;
+import digital.paisley.storage.service.enums.ServiceEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Storage profiles of all services in {@link ServiceEnum}, built once at startup.
+ * <p>
+ * A profile is configured with {@code storage.profiles.<bucket-name>.key-prefix} and
+ * {@code storage.profiles.<bucket-name>.max-upload-size}; both are optional.
+ * Requests naming a bucket without a profile are rejected.
+ */
+@Component
+@Slf4j
+public class StorageProfileRegistry {
+
+    private final Map<String, StorageProfile> profilesByBucket;
+
+    public StorageProfileRegistry(Environment environment) {
+        Map<String, StorageProfile> profiles = new HashMap<>();
+        for (ServiceEnum service : ServiceEnum.values()) {
+            String prefix = "storage.profiles." + service.getBucketName() + ".";
+            String keyPrefix = environment.getProperty(prefix + "key-prefix", "");
+            if (!keyPrefix.isEmpty() && !keyPrefix.endsWith("/")) {
+                keyPrefix = keyPrefix + "/";
+            }
+            DataSize maxUploadSize = environment.getProperty(prefix + "max-upload-size", DataSize.class);
+            StorageProfile profile = new StorageProfile(service, keyPrefix, maxUploadSize != null ? maxUploadSize.toBytes() : -1);
+            profiles.put(profile.getBucketName(), profile);
+            log.info("Storage profile '{}' uses key prefix '{}' and max upload size {}.", profile.getBucketName(),
+                    keyPrefix, maxUploadSize != null ? maxUploadSize : "unlimited");
+        }
+        this.profilesByBucket = Collections.unmodifiableMap(profiles);
+    }
+
+    public Collection<StorageProfile> getProfiles() {
+        return profilesByBucket.values();
+    }
+
+    /**
+     * Gets the profile owning a bucket.
+     *
+     * @param bucketName Name of the bucket.
+     * @return StorageProfile
+     * @throws IllegalArgumentException if no service owns the bucket.
+     */
+    public StorageProfile getProfile(String bucketName) {
+        StorageProfile profile = bucketName != null ? profilesByBucket.get(bucketName) : null;
+        if (profile == null) {
+            throw new IllegalArgumentException(MinioMetadata.BUCKET_NAME.getKey() + " cannot be null, empty, or invalid.");
+        }
+        return profile;
+    }
+
+    /**
+     * Creates the storage metadata of a request.
+     *
+     * @param bucketName Name of the bucket, must belong to a profile.
+     * @param folderName Name of the folder within the bucket.
+     * @return MinioMetadataDTO
+     */
+    public MinioMetadataDTO resolve(String bucketName, String folderName) {
+        StorageProfile profile = getProfile(bucketName);
+        if (folderName == null || folderName.isEmpty()) {
+            throw new IllegalArgumentException(MinioMetadata.FOLDER_NAME.getKey() + " cannot be null, empty, or invalid.");
+        }
+        return new MinioMetadataDTO(profile, folderName);
+    }
+}
@@ -0,0 +1,411 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.exception.StorageBusyException;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed layout of a bucket, used by {@link MinioService} when deduplication is enabled.
+ * <p>
+ * Every distinct content is stored once as the blob {@code .blobs/<sha256>}. A file is a zero-byte
+ * pointer object whose user metadata names the digest and the content length, and every pointer has
+ * a reference marker {@code .refs/<sha256>/<object name>}, so the names sharing a blob can be counted;
+ * the blob is removed together with its last reference.
+ * <p>
+ * Reference changes of one digest are serialized within this instance. A new reference is written
+ * before the blob is looked up, so a blob is never removed while it is being linked here; instances
+ * sharing a bucket can still race a removal of the last reference against a new link of the same content.
+ * The digest lock only covers writing the reference and creating a missing blob on one side, and the
+ * lookup and removal of the last reference's blob on the other; pointers are written outside of it, and
+ * waiting for it is bounded by {@link #LOCK_TIMEOUT}.
+ * Changes of one file name are serialized as well, see {@link #changeNames}, so the content a file
+ * pointed at is read and released by the same change that replaces or removes the file.
+ */
+@Slf4j
+final class ContentAddressedStore {
+
+    static final String BLOB_PREFIX = ".blobs/";
+    static final String REF_PREFIX = ".refs/";
+    static final String STAGING_PREFIX = ".staging/";
+
+    // User metadata of pointer objects, as returned by MinIO without the x-amz-meta- prefix
+    static final String DIGEST_METADATA = "content-sha256";
+    static final String LENGTH_METADATA = "content-length";
+    static final String ENCODING_METADATA = "stored-encoding";
+    static final String STORED_LENGTH_METADATA = "stored-length";
+
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 256;
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(30);
+
+    private final MinioClient minioClient;
+    private final StorageMetrics metrics;
+    private final ReentrantLock[] digestLocks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock[] nameLocks = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * Change of the content files point at, run by {@link #changeNames}.
+     */
+    interface NameChange<T> {
+        T apply() throws Exception;
+    }
+
+    /**
+     * Content uploaded to a staging object, not yet linked to a file.
+     */
+    static final class Staged {
+        private final String objectName;
+        private final String digest;
+
+        private Staged(String objectName, String digest) {
+            this.objectName = objectName;
+            this.digest = digest;
+        }
+
+        String getDigest() {
+            return digest;
+        }
+    }
+
+    ContentAddressedStore(MinioClient minioClient, StorageMetrics metrics) {
+        this.minioClient = minioClient;
+        this.metrics = metrics;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            digestLocks[i] = new ReentrantLock();
+            nameLocks[i] = new ReentrantLock();
+        }
+    }
+
+    static String blobName(String digest) {
+        return BLOB_PREFIX + digest;
+    }
+
+    static boolean isDigest(String digest) {
+        return digest != null && DIGEST_PATTERN.matcher(digest).matches();
+    }
+
+    /**
+     * Rejects object names within the prefixes of the content-addressed layout.
+     *
+     * @param objectName Full name of the object within the bucket.
+     */
+    static void validateObjectName(String objectName) {
+        if (objectName.startsWith(BLOB_PREFIX) || objectName.startsWith(REF_PREFIX) || objectName.startsWith(STAGING_PREFIX)) {
+            throw new IllegalArgumentException("Object name '" + objectName + "' is reserved for deduplicated content.");
+        }
+    }
+
+    /**
+     * Builds the metadata of a file from its pointer object.
+     *
+     * @param response Metadata of the object as returned by MinIO.
+     * @return File metadata with the content digest as ETag, or null if the object is not a pointer.
+     */
+    static ObjectStatDTO pointerStat(StatObjectResponse response) {
+        String digest = MinioService.userMetadata(response, DIGEST_METADATA);
+        String length = MinioService.userMetadata(response, LENGTH_METADATA);
+        if (!isDigest(digest) || length == null) {
+            return null;
+        }
+        ObjectStatDTO stat = new ObjectStatDTO(
+                Long.parseLong(length),
+                digest,
+                response.contentType(),
+                response.lastModified() != null ? response.lastModified().toInstant() : null
+        );
+        stat.setContentDigest(digest);
+        String encoding = MinioService.userMetadata(response, ENCODING_METADATA);
+        String storedLength = MinioService.userMetadata(response, STORED_LENGTH_METADATA);
+        if (encoding != null && storedLength != null) {
+            stat.setContentEncoding(encoding);
+            stat.setStoredSize(Long.parseLong(storedLength));
+        }
+        return stat;
+    }
+
+    /**
+     * Uploads content to a new staging object, computing its digest while it streams.
+     *
+     * @param bucketName  Name of the bucket.
+     * @param inputStream Content to store.
+     * @param size        Exact size of the content in bytes.
+     * @param contentType Content type, stored with the blob.
+     * @return Staged content; pass it to {@link #link} and then to {@link #discard}.
+     */
+    Staged stage(String bucketName, InputStream inputStream, long size, String contentType) throws Exception {
+        MessageDigest sha256 = sha256();
+        String objectName = putStaged(bucketName, new DigestInputStream(inputStream, sha256), size, contentType, null);
+        return new Staged(objectName, HexFormat.of().formatHex(sha256.digest()));
+    }
+
+    /**
+     * Uploads content read into memory to a new staging object. The digest is the one of the
+     * uncompressed content, so compressed and uncompressed copies of a content share a blob name.
+     *
+     * @param bucketName  Name of the bucket.
+     * @param encoded     Content to store.
+     * @param contentType Content type, stored with the blob.
+     * @return Staged content; pass it to {@link #link} and then to {@link #discard}.
+     */
+    Staged stage(String bucketName, ContentCompressor.Encoded encoded, String contentType) throws Exception {
+        String objectName = putStaged(bucketName, null, 0, contentType, encoded);
+        return new Staged(objectName, HexFormat.of().formatHex(sha256().digest(encoded.getIdentity())));
+    }
+
+    private String putStaged(String bucketName, InputStream inputStream, long size, String contentType,
+                             ContentCompressor.Encoded encoded) throws Exception {
+        String objectName = STAGING_PREFIX + UUID.randomUUID();
+        PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName);
+        if (encoded != null) {
+            encoded.describe(args);
+        } else {
+            args.stream(inputStream, size, -1);
+        }
+        if (contentType != null && !contentType.isEmpty()) {
+            args.contentType(contentType);
+        }
+        metrics.minio("putObject", bucketName, () -> minioClient.putObject(args.build()));
+        return objectName;
+    }
+
+    /**
+     * Removes a staging object once its content was linked or the upload failed.
+     */
+    void discard(String bucketName, Staged staged) {
+        try {
+            remove(bucketName, staged.objectName);
+        } catch (Exception e) {
+            log.warn("Error removing staged content '{}' from bucket '{}': {}", staged.objectName, bucketName, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the metadata of a blob.
+     *
+     * @param bucketName Name of the bucket.
+     * @param digest     Digest of the content.
+     * @return Size, content type and encoding of the blob, or null if no content with this digest is stored.
+     */
+    ObjectStatDTO blobStat(String bucketName, String digest) throws Exception {
+        try {
+            StatObjectResponse response = metrics.minio("statObject", bucketName, () -> minioClient.statObject(
+                    StatObjectArgs.builder().bucket(bucketName).object(blobName(digest)).build()
+            ));
+            ObjectStatDTO stat = ContentCompressor.objectStat(response);
+            stat.setContentDigest(digest);
+            return stat;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Points a file at a blob and records the reference. A missing blob is created from the staged
+     * content if there is any, otherwise the file is not written. An existing blob is kept as it is,
+     * so the file takes over its encoding.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the file within the bucket.
+     * @param content    Digest, size and content type of the file, and the encoding of the staged content.
+     * @param staged     Staged content with this digest, or null if the content must already be stored.
+     * @return Metadata of the written file, or null if the blob does not exist and nothing was staged.
+     */
+    ObjectStatDTO link(String bucketName, String objectName, ObjectStatDTO content, Staged staged) throws Exception {
+        String digest = content.getContentDigest();
+        ObjectStatDTO linked = new ObjectStatDTO(content.getSize(), digest, content.getContentType(),
+                Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        linked.setContentDigest(digest);
+        ReentrantLock lock = lockDigest(digest);
+        if (lock == null) {
+            throw new StorageBusyException("Content '" + digest + "' is being changed by too many requests, retry later.");
+        }
+        try {
+            put(bucketName, refName(digest, objectName), null, null);
+            ObjectStatDTO blob = blobStat(bucketName, digest);
+            if (blob != null) {
+                linked.setContentEncoding(blob.getContentEncoding());
+                linked.setStoredSize(blob.getStoredSize());
+            } else {
+                if (staged == null) {
+                    remove(bucketName, refName(digest, objectName));
+                    return null;
+                }
+                linked.setContentEncoding(content.getContentEncoding());
+                linked.setStoredSize(content.getStoredSize());
+                metrics.minio("copyObject", bucketName, () -> minioClient.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(blobName(digest))
+                                .source(CopySource.builder().bucket(bucketName).object(staged.objectName).build())
+                                .build()
+                ));
+                log.debug("Stored new content '{}' in bucket '{}'.", digest, bucketName);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // The reference keeps the blob from being removed, so the pointer is written without the lock
+        Map<String, String> pointer = new HashMap<>();
+        pointer.put(DIGEST_METADATA, digest);
+        pointer.put(LENGTH_METADATA, Long.toString(linked.getSize()));
+        if (linked.getContentEncoding() != null) {
+            pointer.put(ENCODING_METADATA, linked.getContentEncoding());
+            pointer.put(STORED_LENGTH_METADATA, Long.toString(linked.getStoredSize()));
+        }
+        put(bucketName, objectName, linked.getContentType(), pointer);
+        return linked;
+    }
+
+    /**
+     * Drops the reference of a file to a blob, removing the blob if no other file refers to it.
+     * Failures are logged, since the file itself is already gone or replaced; the blob is then kept.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the file within the bucket.
+     * @param digest     Digest of the content the file pointed at.
+     */
+    void unlink(String bucketName, String objectName, String digest) {
+        ReentrantLock lock = null;
+        try {
+            // Dropping the own reference needs no lock, only deciding about the blob does
+            remove(bucketName, refName(digest, objectName));
+            lock = lockDigest(digest);
+            if (lock == null) {
+                log.warn("Timed out waiting to release content '{}' of '{}' in bucket '{}', keeping it.", digest, objectName, bucketName);
+                return;
+            }
+            boolean referenced = metrics.minio("listObjects", bucketName, () -> {
+                Iterator<Result<Item>> references = minioClient.listObjects(
+                        ListObjectsArgs.builder().bucket(bucketName).prefix(REF_PREFIX + digest + "/").recursive(true).maxKeys(1).build()
+                ).iterator();
+                if (!references.hasNext()) {
+                    return false;
+                }
+                // A failed listing keeps the blob
+                references.next().get();
+                return true;
+            });
+            if (referenced) {
+                return;
+            }
+            remove(bucketName, blobName(digest));
+            log.debug("Removed unreferenced content '{}' from bucket '{}'.", digest, bucketName);
+        } catch (Exception e) {
+            log.warn("Error releasing content '{}' of '{}' in bucket '{}': {}", digest, objectName, bucketName, e.getMessage());
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs a change replacing or removing files, serialized with every other change of these names within
+     * this instance. The change reads the digests the files point at, writes the files and unlinks the old
+     * digests; without the lock, two changes of one name could both release the same old content and leave
+     * the reference of the content written first behind. Locks are taken in a fixed order, so changes of
+     * overlapping names cannot deadlock.
+     *
+     * @param bucketName  Name of the bucket.
+     * @param objectNames Full names of the files within the bucket.
+     * @param change      The change.
+     * @return Result of the change.
+     */
+    <T> T changeNames(String bucketName, Collection<String> objectNames, NameChange<T> change) throws Exception {
+        int[] stripes = objectNames.stream()
+                .mapToInt(objectName -> ((bucketName + "/" + objectName).hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES)
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                nameLocks[stripes[locked]].lock();
+            }
+            return change.apply();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                nameLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    private void put(String bucketName, String objectName, String contentType, Map<String, String> userMetadata) throws Exception {
+        PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .stream(new ByteArrayInputStream(new byte[0]), 0, -1);
+        if (contentType != null && !contentType.isEmpty()) {
+            args.contentType(contentType);
+        }
+        if (userMetadata != null) {
+            args.userMetadata(userMetadata);
+        }
+        metrics.minio("putObject", bucketName, () -> minioClient.putObject(args.build()));
+    }
+
+    private void remove(String bucketName, String objectName) throws Exception {
+        metrics.minio("removeObject", bucketName, () -> {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            return null;
+        });
+    }
+
+    private static String refName(String digest, String objectName) {
+        return REF_PREFIX + digest + "/" + objectName;
+    }
+
+    /**
+     * Takes the lock of a digest, waiting at most {@link #LOCK_TIMEOUT}.
+     *
+     * @return The held lock, or null if it could not be taken in time.
+     */
+    private ReentrantLock lockDigest(String digest) throws InterruptedException {
+        ReentrantLock lock = digestLocks[(digest.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+        return lock.tryLock(LOCK_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS) ? lock : null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
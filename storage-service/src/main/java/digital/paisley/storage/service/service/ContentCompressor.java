@@ -0,0 +1,283 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.util.BoundedInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectResponse;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses uploads of compressible content types with gzip before they are stored.
+ * <p>
+ * A compressed object carries {@code Content-Encoding: gzip} and its uncompressed length in the user
+ * metadata {@code identity-length}; objects without both are stored as they are. Compressed objects are
+ * sent unchanged to clients accepting gzip, and decoded while streaming for all others, so no request
+ * pays for compression. Content is compressed in memory, so only uploads up to the maximum size qualify,
+ * and it is only stored compressed if that makes it smaller.
+ * <p>
+ * Published meters: {@code storage.compression.saved}, the number of bytes saved by compressing uploads.
+ */
+@Component
+@Slf4j
+public class ContentCompressor {
+
+    public static final String GZIP = "gzip";
+    static final String IDENTITY_LENGTH_METADATA = "identity-length";
+
+    private final boolean enabled;
+    private final List<MediaType> contentTypes;
+    private final long minSize;
+    private final long maxSize;
+    private final int level;
+    private final Counter saved;
+
+    /**
+     * Content of an upload prepared for storing.
+     */
+    public static final class Encoded {
+        private final byte[] identity;
+        private final byte[] content;
+        private final int length;
+        private final String encoding;
+
+        private Encoded(byte[] identity, byte[] content, int length, String encoding) {
+            this.identity = identity;
+            this.content = content;
+            this.length = length;
+            this.encoding = encoding;
+        }
+
+        /**
+         * @return Uncompressed content.
+         */
+        public byte[] getIdentity() {
+            return identity;
+        }
+
+        /**
+         * @return Content to store.
+         */
+        public InputStream getContent() {
+            return new ByteArrayInputStream(content, 0, length);
+        }
+
+        /**
+         * @return Number of bytes to store.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return Encoding of the content to store, or null if it is not compressed.
+         */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * Sets the content of an upload, with the encoding header and metadata if it is compressed.
+         */
+        public void describe(PutObjectArgs.Builder args) {
+            args.stream(getContent(), length, -1);
+            if (encoding != null) {
+                args.headers(Collections.singletonMap("Content-Encoding", encoding));
+                args.userMetadata(Collections.singletonMap(IDENTITY_LENGTH_METADATA, Long.toString(identity.length)));
+            }
+        }
+    }
+
+    /**
+     * Constructor for ContentCompressor.
+     *
+     * @param enabled      Whether uploads are compressed; stored compressed objects are decoded regardless.
+     * @param contentTypes Compressible content types, wildcards such as text/* are allowed.
+     * @param minSize      Smallest upload worth compressing.
+     * @param maxSize      Largest upload compressed, since it is compressed in memory.
+     * @param level        Deflate level from 1 (fastest) to 9 (smallest).
+     * @param registry     Registry of the compression meters.
+     */
+    public ContentCompressor(
+            @Value("${storage.compression.enabled:false}") boolean enabled,
+            @Value("${storage.compression.content-types:text/*,application/json,application/javascript,application/xml,image/svg+xml}") String[] contentTypes,
+            @Value("${storage.compression.min-size:1KB}") DataSize minSize,
+            @Value("${storage.compression.max-size:16MB}") DataSize maxSize,
+            @Value("${storage.compression.level:6}") int level,
+            MeterRegistry registry
+    ) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("storage.compression.level must be between 1 and 9.");
+        }
+        this.enabled = enabled;
+        this.contentTypes = new ArrayList<>();
+        for (String contentType : contentTypes) {
+            this.contentTypes.add(MediaType.parseMediaType(contentType.trim()));
+        }
+        this.minSize = minSize.toBytes();
+        // Compressed content is kept in an array
+        this.maxSize = Math.min(maxSize.toBytes(), Integer.MAX_VALUE - 8);
+        this.level = level;
+        this.saved = Counter.builder("storage.compression.saved")
+                .description("Bytes saved by storing uploads compressed")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @return True if uploads are compressed.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks whether an upload qualifies for compression.
+     *
+     * @param size        Size of the upload in bytes.
+     * @param contentType Content type of the upload, may be null.
+     * @return True if the upload should be passed to {@link #encode}.
+     */
+    public boolean isCompressible(long size, String contentType) {
+        if (!enabled || size < minSize || size > maxSize || contentType == null || contentType.isEmpty()) {
+            return false;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        for (MediaType compressible : contentTypes) {
+            if (compressible.includes(mediaType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads an upload qualifying for compression and compresses it.
+     *
+     * @param inputStream Content of the upload.
+     * @param size        Exact size of the content in bytes.
+     * @return Content to store, compressed unless that does not make it smaller.
+     */
+    public Encoded encode(InputStream inputStream, long size) throws IOException {
+        byte[] identity = inputStream.readNBytes((int) size);
+        if (identity.length < size) {
+            throw new EOFException("Upload ended after " + identity.length + " of " + size + " bytes.");
+        }
+
+        ExposedByteArrayOutputStream compressed = new ExposedByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(identity);
+        }
+        if (compressed.size() >= identity.length) {
+            return new Encoded(identity, identity, identity.length, null);
+        }
+        saved.increment(identity.length - compressed.size());
+        log.debug("Compressed upload from {} to {} bytes.", identity.length, compressed.size());
+        return new Encoded(identity, compressed.buffer(), compressed.size(), GZIP);
+    }
+
+    /**
+     * Builds the metadata of a stored object. Compressed objects are reported with their uncompressed
+     * size, the encoding and the stored size.
+     *
+     * @param response Metadata of the object as returned by MinIO.
+     * @return Object metadata.
+     */
+    public static ObjectStatDTO objectStat(StatObjectResponse response) {
+        ObjectStatDTO stat = new ObjectStatDTO(
+                response.size(),
+                response.etag(),
+                response.contentType(),
+                response.lastModified() != null ? response.lastModified().toInstant() : null
+        );
+        String identityLength = MinioService.userMetadata(response, IDENTITY_LENGTH_METADATA);
+        if (GZIP.equalsIgnoreCase(response.headers().get("Content-Encoding")) && identityLength != null) {
+            stat.setContentEncoding(GZIP);
+            stat.setStoredSize(response.size());
+            stat.setSize(Long.parseLong(identityLength));
+        }
+        return stat;
+    }
+
+    /**
+     * Decodes a downloaded object if it is stored compressed.
+     *
+     * @param response Downloaded object.
+     * @return Uncompressed content.
+     */
+    public static InputStream decoded(GetObjectResponse response) throws IOException {
+        if (GZIP.equalsIgnoreCase(response.headers().get("Content-Encoding"))
+                && response.headers().get("x-amz-meta-" + IDENTITY_LENGTH_METADATA) != null) {
+            return new GZIPInputStream(response);
+        }
+        return response;
+    }
+
+    /**
+     * Decodes stored content, optionally cutting a byte range from the uncompressed content.
+     *
+     * @param encoding Encoding of the stored content.
+     * @param content  Stored content; it is closed with the returned stream.
+     * @param offset   Position of the first uncompressed byte to read, or null for all of them.
+     * @param length   Number of uncompressed bytes to read, or null to read until the end.
+     * @return Uncompressed content.
+     */
+    public static InputStream decode(String encoding, InputStream content, Long offset, Long length) throws IOException {
+        if (!GZIP.equalsIgnoreCase(encoding)) {
+            content.close();
+            throw new IOException("Unsupported content encoding '" + encoding + "'.");
+        }
+        InputStream decoded = content;
+        try {
+            decoded = new GZIPInputStream(content);
+            if (offset != null) {
+                decoded.skipNBytes(offset);
+            }
+        } catch (IOException e) {
+            decoded.close();
+            throw e;
+        }
+        return length != null ? new BoundedInputStream(decoded, length) : decoded;
+    }
+
+    /**
+     * Lets the compressed content be stored without copying the buffer.
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.BatchItemResult;
+import digital.paisley.storage.service.dto.FileEntryDTO;
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.exception.StorageFileNotFoundException;
+import digital.paisley.storage.service.profile.StorageProfile;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import digital.paisley.storage.service.util.BoundedInputStream;
+import digital.paisley.storage.service.util.ByteBufferInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementation of the storage service on a local or network-mounted filesystem.
+ * <p>
+ * Buckets are the directories directly below the root directory and folders are created inside them on demand,
+ * so the same {@link MinioMetadataDTO} addresses a file in both backends. Uploads are written to a temporary file
+ * and atomically moved into place. Downloads are served from memory-mapped files, and the controller hands whole
+ * files to the servlet container for zero-copy transfer when it supports it (see {@link #localFile}).
+ */
+@Service
+@Qualifier(MeteredStorageService.STORAGE_BACKEND)
+@ConditionalOnProperty(name = "storage.backend", havingValue = "filesystem")
+@Slf4j
+public class FileSystemStorageService implements IStorageService {
+
+    private static final String TEMP_FILE_PREFIX = ".upload-";
+
+    private final Path rootDirectory;
+    private final long mmapMaxBytes;
+    private final int maxBatchSize;
+
+    /**
+     * Constructor for FileSystemStorageService.
+     *
+     * @param rootDirectory   Directory containing one directory per bucket.
+     * @param profileRegistry Storage profiles whose bucket directories are created at startup.
+     * @param mmapMaxBytes    Largest read that is served from a memory-mapped file.
+     * @param maxBatchSize    Maximum number of files in a batch operation.
+     */
+    public FileSystemStorageService(
+            @Value("${storage.filesystem.root-directory:storage-data}") String rootDirectory,
+            StorageProfileRegistry profileRegistry,
+            @Value("${storage.filesystem.mmap-max-bytes:64MB}") DataSize mmapMaxBytes,
+            @Value("${storage.batch.max-size:1000}") int maxBatchSize
+    ) {
+        this.rootDirectory = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        this.mmapMaxBytes = Math.min(mmapMaxBytes.toBytes(), Integer.MAX_VALUE);
+        this.maxBatchSize = maxBatchSize;
+        try {
+            Files.createDirectories(this.rootDirectory);
+            for (StorageProfile profile : profileRegistry.getProfiles()) {
+                Files.createDirectories(bucketDirectory(profile.getBucketName()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create storage directory '" + this.rootDirectory + "': " + e.getMessage(), e);
+        }
+        log.info("Filesystem storage initialized in '{}'.", this.rootDirectory);
+    }
+
+    /**
+     * Resolves the directory of a bucket and makes sure it cannot escape the root directory.
+     *
+     * @param bucketName Name of the bucket.
+     * @return Absolute path of the bucket directory.
+     */
+    private Path bucketDirectory(String bucketName) {
+        if (bucketName == null || bucketName.isEmpty()) {
+            throw new IllegalArgumentException("Service name is required in metadata.");
+        }
+        Path bucket = rootDirectory.resolve(bucketName).normalize();
+        if (!rootDirectory.equals(bucket.getParent())) {
+            throw new IllegalArgumentException("Invalid bucket name: " + bucketName);
+        }
+        return bucket;
+    }
+
+    /**
+     * Resolves the path of a file, checking that its bucket exists and that the path stays inside the bucket.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Absolute path of the file.
+     */
+    private Path resolveFile(String fileName, MetadataDTO metadata) {
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+        Path bucket = existingBucketDirectory(minioMetadata);
+        Path file = bucket.resolve(minioMetadata.getFolderPath()).resolve(fileName).normalize();
+        if (!file.startsWith(bucket) || file.getNameCount() <= bucket.getNameCount() + 1) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+        return file;
+    }
+
+    /**
+     * Resolves the directory of a folder, checking that its bucket exists and that the path stays inside the bucket.
+     *
+     * @param metadata Metadata for the storage.
+     * @return Absolute path of the folder directory, which may not exist yet.
+     */
+    private Path resolveFolder(MetadataDTO metadata) {
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+        Path bucket = existingBucketDirectory(minioMetadata);
+        Path folder = bucket.resolve(minioMetadata.getFolderPath()).normalize();
+        if (!folder.startsWith(bucket) || folder.getNameCount() <= bucket.getNameCount()) {
+            throw new IllegalArgumentException("Invalid folder name: " + minioMetadata.getFolderName());
+        }
+        return folder;
+    }
+
+    private Path existingBucketDirectory(MinioMetadataDTO metadata) {
+        Path bucket = bucketDirectory(metadata.getBucketName());
+        if (!Files.isDirectory(bucket)) {
+            log.error("Bucket '{}' does not exist.", metadata.getBucketName());
+            throw new RuntimeException("Bucket '" + metadata.getBucketName() + "' does not exist.");
+        }
+        return bucket;
+    }
+
+    private static MinioMetadataDTO toMinioMetadata(MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        return (MinioMetadataDTO) metadata;
+    }
+
+    @Override
+    public Path localFile(String fileName, MetadataDTO metadata) {
+        return resolveFile(fileName, metadata);
+    }
+
+    @Override
+    public UploadFileResponse uploadFile(MultipartFile fileStream, String fileName, MetadataDTO metadata) {
+        Path file = resolveFile(fileName, metadata);
+        ((MinioMetadataDTO) metadata).validateUploadSize(fileStream.getSize());
+        Path tempFile = null;
+        try {
+            tempFile = createTempFile(file);
+            // Lets the container move its own temporary file instead of copying it when possible
+            fileStream.transferTo(tempFile.toFile());
+            return commitFile(tempFile, file, fileName, fileStream.getOriginalFilename(), (MinioMetadataDTO) metadata);
+        } catch (IOException e) {
+            log.error("Error uploading file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public UploadFileResponse uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata) {
+        if (size < 0) {
+            throw new IllegalArgumentException("File size is required for streaming uploads.");
+        }
+        Path file = resolveFile(fileName, metadata);
+        ((MinioMetadataDTO) metadata).validateUploadSize(size);
+        Path tempFile = null;
+        try {
+            tempFile = createTempFile(file);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ReadableByteChannel source = Channels.newChannel(inputStream);
+                long written = 0;
+                while (written < size) {
+                    long transferred = channel.transferFrom(source, written, size - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                if (written != size) {
+                    throw new IOException("Expected " + size + " bytes but received " + written + ".");
+                }
+            }
+            return commitFile(tempFile, file, fileName, fileName, (MinioMetadataDTO) metadata);
+        } catch (IOException e) {
+            log.error("Error uploading file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Creates a temporary file next to the target, so that it can be moved into place atomically.
+     * Unlike {@link Files#createTempFile}, the file gets the default permissions of the directory.
+     */
+    private Path createTempFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file.resolveSibling(TEMP_FILE_PREFIX + UUID.randomUUID() + ".tmp"));
+    }
+
+    /**
+     * Atomically replaces the target with a completely written temporary file.
+     *
+     * @param tempFile         Temporary file holding the content.
+     * @param file             Target file.
+     * @param fileName         Name of the stored file.
+     * @param originalFilename Name used to extract the file format, may be null.
+     * @param minioMetadata    Metadata containing bucket and folder information.
+     * @return UploadFileResponse
+     */
+    private UploadFileResponse commitFile(Path tempFile, Path file, String fileName, String originalFilename,
+                                          MinioMetadataDTO minioMetadata) throws IOException {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.debug("File '{}' uploaded to '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+
+        // Extract the file format
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1);
+        }
+        UploadFileResponse response = new UploadFileResponse();
+        response.setFileName(fileName);
+        response.setFileFormat(fileExtension);
+        response.setFileUrl(minioMetadata.getBucketName() + "/" + minioMetadata.objectName(fileName));
+        response.setServiceName("FileSystem");
+        return response;
+    }
+
+    @Override
+    public InputStream downloadFile(String fileName, MetadataDTO metadata) {
+        return openFile(fileName, metadata, 0, -1);
+    }
+
+    @Override
+    public InputStream downloadFile(String fileName, MetadataDTO metadata, long offset, long length) {
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid byte range: offset " + offset + ", length " + length + ".");
+        }
+        return openFile(fileName, metadata, offset, length);
+    }
+
+    /**
+     * Opens a stream on a file, optionally limited to a byte range.
+     * Reads up to the configured size are served from a memory-mapped region of the file,
+     * larger ones from a positioned file channel.
+     *
+     * @param fileName Name of the file to be downloaded.
+     * @param metadata Metadata for the storage.
+     * @param offset   Position of the first byte to read.
+     * @param length   Number of bytes to read, or -1 to read until the end.
+     * @return File content as InputStream.
+     */
+    private InputStream openFile(String fileName, MetadataDTO metadata, long offset, long length) {
+        Path file = resolveFile(fileName, metadata);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            long start = Math.min(offset, size);
+            long count = length < 0 ? size - start : Math.min(length, size - start);
+            InputStream inputStream;
+            if (count <= mmapMaxBytes) {
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, count);
+                channel.close();
+                inputStream = new ByteBufferInputStream(buffer);
+            } else {
+                channel.position(start);
+                inputStream = new BoundedInputStream(Channels.newInputStream(channel), count);
+            }
+            log.debug("File '{}' downloaded from '{}'.", fileName, file.getParent());
+            return inputStream;
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+        } catch (IOException e) {
+            closeQuietly(channel);
+            log.error("Error downloading file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error downloading file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ObjectStatDTO statFile(String fileName, MetadataDTO metadata) {
+        Path file = resolveFile(fileName, metadata);
+        BasicFileAttributes attributes = readAttributes(file);
+        if (attributes == null) {
+            throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+        }
+        return new ObjectStatDTO(attributes.size(), etag(attributes), probeContentType(file), attributes.lastModifiedTime().toInstant());
+    }
+
+    @Override
+    public void deleteFile(String fileName, MetadataDTO metadata) {
+        Path file = resolveFile(fileName, metadata);
+        try {
+            if (!Files.deleteIfExists(file)) {
+                throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+            }
+            log.debug("File '{}' deleted from '{}'.", fileName, file.getParent());
+        } catch (IOException e) {
+            log.error("Error deleting file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error deleting file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean fileExists(String fileName, MetadataDTO metadata) {
+        return readAttributes(resolveFile(fileName, metadata)) != null;
+    }
+
+    /**
+     * Lists the folder depth-first, reading one directory at a time. Children are visited in the order of
+     * their keys, with directories keyed by their name and a trailing slash, so entries come out sorted by
+     * name like a MinIO listing. Subtrees before {@code startAfter} or outside the prefix are not read.
+     * Content types are only probed for listings with details.
+     */
+    @Override
+    public Stream<FileEntryDTO> listFiles(String prefix, String startAfter, int limit, boolean details, MetadataDTO metadata) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        Path folder = resolveFolder(metadata);
+        FolderWalker walker = new FolderWalker(folder, prefix != null ? prefix : "", startAfter != null ? startAfter : "", details);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walker, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .limit(limit);
+    }
+
+    @Override
+    public List<BatchItemResult> uploadFiles(List<MultipartFile> files, List<String> fileNames, MetadataDTO metadata) {
+        if (files.size() != fileNames.size()) {
+            throw new IllegalArgumentException("Each uploaded file needs exactly one file name.");
+        }
+        validateBatchSize(files);
+
+        List<BatchItemResult> results = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = fileNames.get(i);
+            try {
+                UploadFileResponse response = uploadFile(files.get(i), fileName, metadata);
+                results.add(BatchItemResult.success(fileName, response.getFileUrl()));
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                results.add(BatchItemResult.failure(fileName, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Deletes all files one by one.
+     * Files that do not exist are reported as deleted, matching the MinIO backend.
+     */
+    @Override
+    public List<BatchItemResult> deleteFiles(List<String> fileNames, MetadataDTO metadata) {
+        validateBatchSize(fileNames);
+
+        // A missing bucket or invalid folder fails the whole batch, an invalid name only its own item
+        resolveFolder(metadata);
+        List<BatchItemResult> results = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            try {
+                Files.deleteIfExists(resolveFile(fileName, metadata));
+                results.add(BatchItemResult.success(fileName, "Deleted"));
+            } catch (IOException | IllegalArgumentException e) {
+                results.add(BatchItemResult.failure(fileName, e.getMessage()));
+            }
+        }
+        log.debug("Deleted {} files from '{}'.", fileNames.size(), rootDirectory);
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> filesExist(List<String> fileNames, MetadataDTO metadata) {
+        validateBatchSize(fileNames);
+
+        List<BatchItemResult> results = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            results.add(BatchItemResult.exists(fileName, fileExists(fileName, metadata)));
+        }
+        return results;
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required.");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxBatchSize + " files.");
+        }
+    }
+
+    /**
+     * Reads the attributes of a regular file.
+     *
+     * @param file Path of the file.
+     * @return File attributes, or null if there is no regular file at the path.
+     */
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.error("Error checking existence of file '{}': {}", file, e.getMessage());
+            throw new RuntimeException("Error checking file existence: " + e.getMessage(), e);
+        }
+    }
+
+    // Same weak validator scheme as common static file servers: modification time and size
+    private static String etag(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+    }
+
+    private static String probeContentType(Path file) {
+        try {
+            return Files.probeContentType(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Iterates the files below a folder in the order of their names relative to the folder.
+     */
+    private static final class FolderWalker implements Iterator<FileEntryDTO> {
+        private final Path folder;
+        private final String prefix;
+        private final String startAfter;
+        private final boolean details;
+        private final Deque<Iterator<String>> pending = new ArrayDeque<>();
+        private FileEntryDTO next;
+
+        private FolderWalker(Path folder, String prefix, String startAfter, boolean details) {
+            this.folder = folder;
+            this.prefix = prefix;
+            this.startAfter = startAfter;
+            this.details = details;
+            if (Files.isDirectory(folder)) {
+                pending.push(children(folder, ""));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !pending.isEmpty()) {
+                Iterator<String> keys = pending.peek();
+                if (!keys.hasNext()) {
+                    pending.pop();
+                    continue;
+                }
+                String key = keys.next();
+                Path path = folder.resolve(key);
+                if (key.endsWith("/")) {
+                    pending.push(children(path, key));
+                    continue;
+                }
+                BasicFileAttributes attributes = readAttributes(path);
+                if (attributes != null) {
+                    next = new FileEntryDTO(key, attributes.size(), etag(attributes), details ? probeContentType(path) : null,
+                            attributes.lastModifiedTime().toInstant());
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public FileEntryDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FileEntryDTO entry = next;
+            next = null;
+            return entry;
+        }
+
+        /**
+         * Reads the keys of the children of a directory that may contain listed files, in sorted order.
+         */
+        private Iterator<String> children(Path directory, String parentKey) {
+            List<String> keys = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    if (name.startsWith(TEMP_FILE_PREFIX)) {
+                        continue;
+                    }
+                    boolean isDirectory = Files.isDirectory(child);
+                    String key = parentKey + name + (isDirectory ? "/" : "");
+                    if (isDirectory ? includesDirectory(key) : includesFile(key)) {
+                        keys.add(key);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                return Collections.emptyIterator();
+            } catch (IOException e) {
+                log.error("Error listing directory '{}': {}", directory, e.getMessage());
+                throw new UncheckedIOException("Error listing files: " + e.getMessage(), e);
+            }
+            Collections.sort(keys);
+            return keys.iterator();
+        }
+
+        private boolean includesFile(String key) {
+            return key.startsWith(prefix) && key.compareTo(startAfter) > 0;
+        }
+
+        private boolean includesDirectory(String key) {
+            boolean matchesPrefix = key.startsWith(prefix) || prefix.startsWith(key);
+            // Every key below the directory sorts before startAfter unless startAfter lies inside it
+            boolean afterStart = key.compareTo(startAfter) > 0 || startAfter.startsWith(key);
+            return matchesPrefix && afterStart;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file '{}': {}", file, e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close file channel: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking interface for storage.
+ * Methods return immediately and complete their future once the storage has answered,
+ * so no thread waits for the round trip.
+ */
+public interface IAsyncStorageService {
+
+    /**
+     * Uploads a file to the storage by streaming it from the given input.
+     *
+     * @param inputStream File content.
+     * @param size        Exact number of bytes to read from the input.
+     * @param contentType Content type of the file, or null if unknown.
+     * @param fileName    Name of the file to be stored.
+     * @param metadata    Metadata for the storage.
+     * @return Future completed with the UploadFileResponse.
+     */
+    CompletableFuture<UploadFileResponse> uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata);
+
+    /**
+     * Downloads a file from the storage.
+     *
+     * @param fileName Name of the file to be downloaded.
+     * @param etag     ETag the file must still have, e.g. from {@link #statFile}, or null to read it whatever it holds.
+     * @param metadata Metadata for the storage.
+     * @return Future completed with the file content, or failed with
+     * {@link digital.paisley.storage.service.exception.StorageFileChangedException} if the file no longer has the ETag.
+     */
+    CompletableFuture<InputStream> downloadFile(String fileName, String etag, MetadataDTO metadata);
+
+    /**
+     * Reads the metadata of a file without downloading it.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Future completed with the file metadata, or failed with
+     * {@link digital.paisley.storage.service.exception.StorageFileNotFoundException}.
+     */
+    CompletableFuture<ObjectStatDTO> statFile(String fileName, MetadataDTO metadata);
+
+    /**
+     * Deletes a file from the storage.
+     *
+     * @param fileName Name of the file to be deleted.
+     * @param metadata Metadata for the storage.
+     * @return Future completed once the file is deleted.
+     */
+    CompletableFuture<Void> deleteFile(String fileName, MetadataDTO metadata);
+
+    /**
+     * Checks if a file exists in the storage.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Future completed with true if the file exists, false otherwise.
+     */
+    CompletableFuture<Boolean> fileExists(String fileName, MetadataDTO metadata);
+}
@@ -0,0 +1,62 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.MultipartPartDTO;
+import digital.paisley.storage.service.dto.MultipartUploadDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Interface for chunked, resumable uploads of large files.
+ */
+public interface IMultipartUploadService {
+
+    /**
+     * Starts a multipart upload.
+     *
+     * @param fileName    Name of the file to be stored.
+     * @param contentType Content type of the file, or null if unknown.
+     * @param size        Size of the file in bytes, or -1 if unknown; parts are checked against the bucket's limit either way.
+     * @param metadata    Metadata for the storage.
+     * @return The new upload, identified by its upload id.
+     */
+    MultipartUploadDTO initiateUpload(String fileName, String contentType, long size, MetadataDTO metadata);
+
+    /**
+     * Uploads one part of a multipart upload. Parts may be sent concurrently and in any order,
+     * and uploading a part number again replaces the previous content.
+     *
+     * @param uploadId    Id returned by {@link #initiateUpload}.
+     * @param partNumber  Number of the part, from 1 to 10000.
+     * @param inputStream Content of the part.
+     * @param size        Exact size of the part in bytes.
+     * @return The stored part.
+     */
+    MultipartPartDTO uploadPart(String uploadId, int partNumber, InputStream inputStream, long size);
+
+    /**
+     * Returns the parts stored so far, so an interrupted upload can be resumed.
+     *
+     * @param uploadId Id returned by {@link #initiateUpload}.
+     * @return The upload with its stored parts.
+     */
+    MultipartUploadDTO getUpload(String uploadId);
+
+    /**
+     * Assembles the parts, in part number order, into the final file.
+     *
+     * @param uploadId Id returned by {@link #initiateUpload}.
+     * @param parts    Parts returned by {@link #uploadPart}, or null to use every part stored so far.
+     * @return UploadFileResponse
+     */
+    UploadFileResponse completeUpload(String uploadId, List<MultipartPartDTO> parts);
+
+    /**
+     * Cancels an upload and discards its stored parts.
+     *
+     * @param uploadId Id returned by {@link #initiateUpload}.
+     */
+    void abortUpload(String uploadId);
+}
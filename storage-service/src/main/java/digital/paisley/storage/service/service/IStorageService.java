@@ -1,10 +1,17 @@
 package digital.paisley.storage.service.service;
 
+import digital.paisley.storage.service.dto.BatchItemResult;
+import digital.paisley.storage.service.dto.FileEntryDTO;
 import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
 import digital.paisley.storage.service.dto.UploadFileResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface for storage.
@@ -21,6 +28,38 @@ public interface IStorageService {
      */
     UploadFileResponse uploadFile(MultipartFile fileStream, String fileName, MetadataDTO metadata);
 
+    /**
+     * Uploads a file to the storage by streaming it straight from the given input.
+     * The content is never buffered as a whole, so the size must be known up front.
+     *
+     * @param inputStream File content.
+     * @param size        Exact number of bytes to read from the input.
+     * @param contentType Content type of the file, or null if unknown.
+     * @param fileName    Name of the file to be stored.
+     * @param metadata    Metadata for the storage.
+     * @return UploadFileResponse
+     */
+    UploadFileResponse uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata);
+
+    /**
+     * Stores a file whose content is already in the storage, identified by its SHA-256 digest,
+     * so the client does not have to send the content again.
+     * <p>
+     * Knowing the digest is enough to link the content, and the result tells whether the bucket holds
+     * it. Any client allowed to write to a bucket can thus probe it for known content and copy content
+     * whose digest it learned elsewhere, so buckets shared by parties that must not see each other's
+     * files should not be deduplicated.
+     *
+     * @param contentDigest Lowercase hex encoded SHA-256 digest of the file content.
+     * @param contentType   Content type of the file, or null to use the one the content was stored with.
+     * @param fileName      Name of the file to be stored.
+     * @param metadata      Metadata for the storage.
+     * @return UploadFileResponse, or null if no content with this digest is stored and it must be uploaded.
+     */
+    default UploadFileResponse uploadExisting(String contentDigest, String contentType, String fileName, MetadataDTO metadata) {
+        return null;
+    }
+
     /**
      * Downloads a file from the storage.
      *
@@ -30,6 +69,75 @@ public interface IStorageService {
      */
     InputStream downloadFile(String fileName, MetadataDTO metadata);
 
+    /**
+     * Downloads a file as it is stored, i.e. still compressed if {@link #statFile} reports a content encoding.
+     *
+     * @param fileName Name of the file to be downloaded.
+     * @param metadata Metadata for the storage.
+     * @return Stored file content as InputStream.
+     */
+    default InputStream downloadEncoded(String fileName, MetadataDTO metadata) {
+        return downloadFile(fileName, metadata);
+    }
+
+    /**
+     * Downloads a byte range of a file from the storage.
+     *
+     * @param fileName Name of the file to be downloaded.
+     * @param metadata Metadata for the storage.
+     * @param offset   Position of the first byte to read.
+     * @param length   Number of bytes to read.
+     * @return Requested part of the file content as InputStream.
+     */
+    InputStream downloadFile(String fileName, MetadataDTO metadata, long offset, long length);
+
+    /**
+     * Returns the local file backing a stored file, so that it can be sent without copying it through the heap.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Path of the file, or null if the storage is not on a local filesystem.
+     */
+    default Path localFile(String fileName, MetadataDTO metadata) {
+        return null;
+    }
+
+    /**
+     * Issues a short-lived URL to download a file directly from the object store.
+     * The existence of the file is not checked; the object store answers 404 for a missing file.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Presigned GET URL.
+     * @throws UnsupportedOperationException if the storage cannot issue presigned URLs.
+     */
+    default PresignedUrlDTO presignDownload(String fileName, MetadataDTO metadata) {
+        throw new UnsupportedOperationException("Presigned URLs are not supported by this storage backend.");
+    }
+
+    /**
+     * Issues a short-lived URL to upload a file directly to the object store.
+     *
+     * @param fileName Name of the file to be stored.
+     * @param size     Size of the file in bytes, or -1 if unknown; required when the bucket limits the upload size.
+     * @param metadata Metadata for the storage.
+     * @return Presigned PUT URL, or a POST URL with its form fields when the bucket limits the upload size.
+     * @throws UnsupportedOperationException if the storage cannot issue presigned URLs.
+     */
+    default PresignedUrlDTO presignUpload(String fileName, long size, MetadataDTO metadata) {
+        throw new UnsupportedOperationException("Presigned URLs are not supported by this storage backend.");
+    }
+
+    /**
+     * Reads the metadata of a file without downloading it.
+     *
+     * @param fileName Name of the file.
+     * @param metadata Metadata for the storage.
+     * @return Size, ETag, content type and last modification time of the file, and its encoding if it is stored compressed.
+     * @throws digital.paisley.storage.service.exception.StorageFileNotFoundException if the file does not exist.
+     */
+    ObjectStatDTO statFile(String fileName, MetadataDTO metadata);
+
     /**
      * Deletes a file from the storage.
      *
@@ -46,4 +154,47 @@ public interface IStorageService {
      * @return True if the file exists, false otherwise.
      */
     boolean fileExists(String fileName, MetadataDTO metadata);
-}
\ No newline at end of file
+
+    /**
+     * Lists the files of a folder, including files in subfolders, in the order of their names.
+     * Entries are read from the storage page by page while the stream is consumed.
+     *
+     * @param prefix     Only files whose name starts with this prefix, or null for all files.
+     * @param startAfter Only files whose name sorts after this one, or null to start at the first file;
+     *                   pass the last name of a page to continue with the next page.
+     * @param limit      Maximum number of files.
+     * @param details    Whether to read the size, ETag and content type of the files where the storage does not
+     *                   list them; reading them costs the storage more work per file.
+     * @param metadata   Metadata for the storage.
+     * @return Lazily read entries; close the stream to release the storage resources.
+     */
+    Stream<FileEntryDTO> listFiles(String prefix, String startAfter, int limit, boolean details, MetadataDTO metadata);
+
+    /**
+     * Uploads several files to the same folder concurrently.
+     *
+     * @param files     File contents as MultipartFile.
+     * @param fileNames Names of the files to be stored, in the same order as the files.
+     * @param metadata  Metadata for the storage.
+     * @return One result per file, in the same order as the files.
+     */
+    List<BatchItemResult> uploadFiles(List<MultipartFile> files, List<String> fileNames, MetadataDTO metadata);
+
+    /**
+     * Deletes several files from the same folder in a single storage request.
+     *
+     * @param fileNames Names of the files to be deleted.
+     * @param metadata  Metadata for the storage.
+     * @return One result per file, in the same order as the file names.
+     */
+    List<BatchItemResult> deleteFiles(List<String> fileNames, MetadataDTO metadata);
+
+    /**
+     * Checks concurrently whether several files exist in the same folder.
+     *
+     * @param fileNames Names of the files.
+     * @param metadata  Metadata for the storage.
+     * @return One result per file, in the same order as the file names.
+     */
+    List<BatchItemResult> filesExist(List<String> fileNames, MetadataDTO metadata);
+}
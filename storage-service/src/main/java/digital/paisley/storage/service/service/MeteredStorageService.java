@@ -0,0 +1,161 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.dto.BatchItemResult;
+import digital.paisley.storage.service.dto.FileEntryDTO;
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage service recording metrics for every operation of the configured storage backend.
+ * <p>
+ * Backends are marked with {@code @Qualifier(STORAGE_BACKEND)}; this decorator is the primary
+ * {@link IStorageService} injected everywhere else. Download timers measure the time until the
+ * content stream is opened, the transfer itself is covered by the bytes-out counter.
+ */
+@Service
+@Primary
+public class MeteredStorageService implements IStorageService {
+
+    /**
+     * Qualifier of the storage service doing the actual work.
+     */
+    public static final String STORAGE_BACKEND = "storageBackend";
+
+    private static final String UNKNOWN_BUCKET = "unknown";
+
+    private final IStorageService storageService;
+    private final StorageMetrics metrics;
+
+    public MeteredStorageService(@Qualifier(STORAGE_BACKEND) IStorageService storageService, StorageMetrics metrics) {
+        this.storageService = storageService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public UploadFileResponse uploadFile(MultipartFile fileStream, String fileName, MetadataDTO metadata) {
+        String bucket = bucket(metadata);
+        UploadFileResponse response = metrics.record("upload", bucket,
+                () -> storageService.uploadFile(fileStream, fileName, metadata));
+        metrics.bytesIn("upload", bucket, fileStream.getSize());
+        return response;
+    }
+
+    @Override
+    public UploadFileResponse uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata) {
+        String bucket = bucket(metadata);
+        UploadFileResponse response = metrics.record("upload-stream", bucket,
+                () -> storageService.uploadFile(inputStream, size, contentType, fileName, metadata));
+        metrics.bytesIn("upload-stream", bucket, size);
+        return response;
+    }
+
+    @Override
+    public UploadFileResponse uploadExisting(String contentDigest, String contentType, String fileName, MetadataDTO metadata) {
+        return metrics.record("upload-existing", bucket(metadata),
+                () -> storageService.uploadExisting(contentDigest, contentType, fileName, metadata));
+    }
+
+    @Override
+    public InputStream downloadFile(String fileName, MetadataDTO metadata) {
+        String bucket = bucket(metadata);
+        InputStream inputStream = metrics.record("download", bucket,
+                () -> storageService.downloadFile(fileName, metadata));
+        return metrics.bytesOut("download", bucket, inputStream);
+    }
+
+    @Override
+    public InputStream downloadEncoded(String fileName, MetadataDTO metadata) {
+        String bucket = bucket(metadata);
+        InputStream inputStream = metrics.record("download-encoded", bucket,
+                () -> storageService.downloadEncoded(fileName, metadata));
+        return metrics.bytesOut("download-encoded", bucket, inputStream);
+    }
+
+    @Override
+    public InputStream downloadFile(String fileName, MetadataDTO metadata, long offset, long length) {
+        String bucket = bucket(metadata);
+        InputStream inputStream = metrics.record("download-range", bucket,
+                () -> storageService.downloadFile(fileName, metadata, offset, length));
+        return metrics.bytesOut("download-range", bucket, inputStream);
+    }
+
+    @Override
+    public Path localFile(String fileName, MetadataDTO metadata) {
+        return storageService.localFile(fileName, metadata);
+    }
+
+    @Override
+    public PresignedUrlDTO presignDownload(String fileName, MetadataDTO metadata) {
+        return metrics.record("presign-download", bucket(metadata), () -> storageService.presignDownload(fileName, metadata));
+    }
+
+    @Override
+    public PresignedUrlDTO presignUpload(String fileName, long size, MetadataDTO metadata) {
+        return metrics.record("presign-upload", bucket(metadata), () -> storageService.presignUpload(fileName, size, metadata));
+    }
+
+    @Override
+    public ObjectStatDTO statFile(String fileName, MetadataDTO metadata) {
+        return metrics.record("stat", bucket(metadata), () -> storageService.statFile(fileName, metadata));
+    }
+
+    @Override
+    public void deleteFile(String fileName, MetadataDTO metadata) {
+        metrics.record("delete", bucket(metadata), () -> storageService.deleteFile(fileName, metadata));
+    }
+
+    @Override
+    public boolean fileExists(String fileName, MetadataDTO metadata) {
+        return metrics.record("exists", bucket(metadata), () -> storageService.fileExists(fileName, metadata));
+    }
+
+    @Override
+    public Stream<FileEntryDTO> listFiles(String prefix, String startAfter, int limit, boolean details, MetadataDTO metadata) {
+        return metrics.recordStream("list", bucket(metadata), () -> storageService.listFiles(prefix, startAfter, limit, details, metadata));
+    }
+
+    @Override
+    public List<BatchItemResult> uploadFiles(List<MultipartFile> files, List<String> fileNames, MetadataDTO metadata) {
+        String bucket = bucket(metadata);
+        List<BatchItemResult> results = metrics.record("upload-batch", bucket,
+                () -> storageService.uploadFiles(files, fileNames, metadata));
+        long bytes = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                bytes += files.get(i).getSize();
+            }
+        }
+        metrics.bytesIn("upload-batch", bucket, bytes);
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> deleteFiles(List<String> fileNames, MetadataDTO metadata) {
+        return metrics.record("delete-batch", bucket(metadata), () -> storageService.deleteFiles(fileNames, metadata));
+    }
+
+    @Override
+    public List<BatchItemResult> filesExist(List<String> fileNames, MetadataDTO metadata) {
+        return metrics.record("exists-batch", bucket(metadata), () -> storageService.filesExist(fileNames, metadata));
+    }
+
+    private static String bucket(MetadataDTO metadata) {
+        if (metadata instanceof MinioMetadataDTO && ((MinioMetadataDTO) metadata).getBucketName() != null) {
+            return ((MinioMetadataDTO) metadata).getBucketName();
+        }
+        return UNKNOWN_BUCKET;
+    }
+}
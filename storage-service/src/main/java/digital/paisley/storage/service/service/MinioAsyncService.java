@@ -0,0 +1,294 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.cache.ObjectStatCache;
+import digital.paisley.storage.service.cache.StorageLayoutCache;
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.exception.StorageFileChangedException;
+import digital.paisley.storage.service.exception.StorageFileNotFoundException;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking implementation of the storage service using the MinIO async client.
+ * The blocking {@link MinioService} remains available; both share the storage layout and object metadata caches.
+ * Uploads through this service would bypass deduplication, so it is not available when {@code storage.dedup.enabled} is set.
+ */
+@Service
+@ConditionalOnExpression("'${storage.backend:minio}' == 'minio' and !${storage.dedup.enabled:false}")
+@Slf4j
+public class MinioAsyncService implements IAsyncStorageService {
+
+    private final MinioAsyncClient minioClient;
+    private final StorageLayoutCache layoutCache;
+    private final HotObjectCache hotObjectCache;
+    private final ObjectStatCache statCache;
+    private final StorageMetrics metrics;
+
+    /**
+     * Constructor for MinioAsyncService.
+     *
+     * @param endpoint       MinIO endpoint.
+     * @param accessKey      Access key.
+     * @param secretKey      Secret key.
+     * @param layoutCache    Cache of buckets and folders known to exist.
+     * @param hotObjectCache Cache invalidated when files are changed through this service.
+     * @param statCache      Cache of object metadata, updated when files are changed through this service.
+     * @param metrics        Metrics recorder timing the MinIO calls.
+     */
+    public MinioAsyncService(
+            @Value("${minio.endpoint}") String endpoint,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey,
+            StorageLayoutCache layoutCache,
+            HotObjectCache hotObjectCache,
+            ObjectStatCache statCache,
+            StorageMetrics metrics
+    ) {
+        this.minioClient = MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .build();
+        this.layoutCache = layoutCache;
+        this.hotObjectCache = hotObjectCache;
+        this.statCache = statCache;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableFuture<UploadFileResponse> uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata) {
+        if (size < 0) {
+            throw new IllegalArgumentException("File size is required for streaming uploads.");
+        }
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+        minioMetadata.validateUploadSize(size);
+        String objectName = minioMetadata.objectName(fileName);
+
+        return prepareStorage(minioMetadata)
+                .thenCompose(ready -> metrics.minioAsync("putObject", minioMetadata.getBucketName(), () -> {
+                    PutObjectArgs.Builder args = PutObjectArgs.builder()
+                            .bucket(minioMetadata.getBucketName())
+                            .object(objectName)
+                            .stream(inputStream, size, -1);
+                    if (contentType != null && !contentType.isEmpty()) {
+                        args.contentType(contentType);
+                    }
+                    return minioClient.putObject(args.build());
+                }))
+                .thenApply(written -> {
+                    String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), objectName);
+                    hotObjectCache.invalidate(cacheKey);
+                    statCache.put(cacheKey, MinioService.writtenStat(written, size, contentType));
+                    log.debug("File '{}' uploaded to '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+                    UploadFileResponse response = new UploadFileResponse();
+                    response.setFileName(fileName);
+                    response.setFileFormat(fileName.contains(".") ? fileName.substring(fileName.lastIndexOf(".") + 1) : "");
+                    response.setFileUrl(minioMetadata.getBucketName() + "/" + objectName);
+                    response.setServiceName("Minio");
+                    return response;
+                })
+                .exceptionally(e -> {
+                    throw translate(e, minioMetadata, fileName, "uploading file");
+                });
+    }
+
+    @Override
+    public CompletableFuture<InputStream> downloadFile(String fileName, String etag, MetadataDTO metadata) {
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+
+        return prepareStorage(minioMetadata)
+                .thenCompose(ready -> metrics.minioAsync("getObject", minioMetadata.getBucketName(), () -> minioClient.getObject(
+                        GetObjectArgs.builder()
+                                .bucket(minioMetadata.getBucketName())
+                                .object(minioMetadata.objectName(fileName))
+                                // ETags are reported without quotes, but If-Match takes them as entity tags
+                                .matchETag(etag != null ? "\"" + etag + "\"" : null)
+                                .build()
+                )))
+                .<InputStream>thenApply(response -> {
+                    try {
+                        return ContentCompressor.decoded(response);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .exceptionally(e -> {
+                    throw translate(e, minioMetadata, fileName, "downloading file");
+                });
+    }
+
+    @Override
+    public CompletableFuture<ObjectStatDTO> statFile(String fileName, MetadataDTO metadata) {
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+        String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), minioMetadata.objectName(fileName));
+        boolean cacheable = !hotObjectCache.isExternallyWritable(cacheKey);
+        if (cacheable) {
+            ObjectStatCache.Lookup cached = statCache.get(cacheKey);
+            if (cached != null && cached.exists()) {
+                return CompletableFuture.completedFuture(cached.getStat());
+            }
+            if (cached != null) {
+                CompletableFuture<ObjectStatDTO> missing = new CompletableFuture<>();
+                missing.completeExceptionally(new StorageFileNotFoundException("File '" + fileName + "' does not exist."));
+                return missing;
+            }
+        }
+        long cacheVersion = statCache.version(cacheKey);
+
+        return prepareStorage(minioMetadata)
+                .thenCompose(ready -> metrics.minioAsync("statObject", minioMetadata.getBucketName(), () -> minioClient.statObject(
+                        StatObjectArgs.builder()
+                                .bucket(minioMetadata.getBucketName())
+                                .object(minioMetadata.objectName(fileName))
+                                .build()
+                )))
+                .thenApply(stat -> {
+                    ObjectStatDTO dto = ContentCompressor.objectStat(stat);
+                    if (cacheable) {
+                        statCache.putIfCurrent(cacheKey, cacheVersion, dto);
+                    }
+                    return dto;
+                })
+                .exceptionally(e -> {
+                    CompletionException failure = translate(e, minioMetadata, fileName, "reading file metadata");
+                    if (cacheable && failure.getCause() instanceof StorageFileNotFoundException) {
+                        statCache.putIfCurrent(cacheKey, cacheVersion, null);
+                    }
+                    throw failure;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(String fileName, MetadataDTO metadata) {
+        MinioMetadataDTO minioMetadata = toMinioMetadata(metadata);
+
+        return statFile(fileName, minioMetadata)
+                .thenCompose(stat -> metrics.minioAsync("removeObject", minioMetadata.getBucketName(), () -> minioClient.removeObject(
+                        RemoveObjectArgs.builder()
+                                .bucket(minioMetadata.getBucketName())
+                                .object(minioMetadata.objectName(fileName))
+                                .build()
+                )))
+                .thenRun(() -> {
+                    String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), minioMetadata.objectName(fileName));
+                    hotObjectCache.invalidate(cacheKey);
+                    statCache.putMissing(cacheKey);
+                    log.debug("File '{}' deleted from '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+                })
+                .exceptionally(e -> {
+                    throw translate(e, minioMetadata, fileName, "deleting file");
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> fileExists(String fileName, MetadataDTO metadata) {
+        return statFile(fileName, metadata)
+                .thenApply(stat -> true)
+                .exceptionally(e -> {
+                    if (unwrap(e) instanceof StorageFileNotFoundException) {
+                        return false;
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+    }
+
+    /**
+     * Validates the bucket and creates the folder, skipping both steps when the layout cache knows them.
+     *
+     * @param metadata Metadata containing bucket and folder information.
+     * @return Future completed once the storage is ready.
+     */
+    private CompletableFuture<Void> prepareStorage(MinioMetadataDTO metadata) {
+        String bucketName = metadata.getBucketName();
+        String folderName = metadata.getFolderPath();
+
+        if (bucketName == null || bucketName.isEmpty()) {
+            throw new IllegalArgumentException("Service name is required in metadata.");
+        }
+
+        CompletableFuture<Void> bucketReady = CompletableFuture.completedFuture(null);
+        if (!layoutCache.isBucketKnown(bucketName)) {
+            bucketReady = metrics.minioAsync("bucketExists", bucketName, () -> minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build()))
+                    .thenAccept(exists -> {
+                        if (!exists) {
+                            throw new CompletionException(new RuntimeException("Bucket '" + bucketName + "' does not exist."));
+                        }
+                        layoutCache.markBucket(bucketName);
+                    });
+        }
+        if (layoutCache.isFolderKnown(bucketName, folderName)) {
+            return bucketReady;
+        }
+        String objectName = folderName.endsWith("/") ? folderName : folderName + "/";
+        return bucketReady
+                .thenCompose(ready -> metrics.minioAsync("putObject", bucketName, () -> minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
+                                .build()
+                )))
+                .thenAccept(written -> layoutCache.markFolder(bucketName, folderName));
+    }
+
+    private static MinioMetadataDTO toMinioMetadata(MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        return (MinioMetadataDTO) metadata;
+    }
+
+    /**
+     * Maps a failure of the MinIO client to the exceptions handled by the controller advice.
+     */
+    private CompletionException translate(Throwable failure, MinioMetadataDTO metadata, String fileName, String action) {
+        Throwable cause = unwrap(failure);
+        if (cause instanceof StorageFileNotFoundException || cause instanceof IllegalArgumentException) {
+            return new CompletionException(cause);
+        }
+        if (cause instanceof ErrorResponseException) {
+            String code = ((ErrorResponseException) cause).errorResponse().code();
+            if ("NoSuchKey".equals(code)) {
+                return new CompletionException(new StorageFileNotFoundException("File '" + fileName + "' does not exist."));
+            }
+            if ("PreconditionFailed".equals(code)) {
+                // The cached metadata is stale, the file was replaced since it was read
+                statCache.invalidate(HotObjectCache.key(metadata.getBucketName(), metadata.objectName(fileName)));
+                return new CompletionException(new StorageFileChangedException("File '" + fileName + "' changed while it was being downloaded."));
+            }
+            if ("NoSuchBucket".equals(code)) {
+                layoutCache.invalidateBucket(metadata.getBucketName());
+            }
+        }
+        log.error("Error {} '{}': {}", action, fileName, cause.getMessage());
+        return new CompletionException(new RuntimeException("Error " + action + ": " + cause.getMessage(), cause));
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
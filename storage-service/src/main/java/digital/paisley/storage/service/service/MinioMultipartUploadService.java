@@ -0,0 +1,419 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.cache.ObjectStatCache;
+import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.MinioMetadataDTO;
+import digital.paisley.storage.service.dto.MultipartPartDTO;
+import digital.paisley.storage.service.dto.MultipartUploadDTO;
+import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.exception.StorageBusyException;
+import digital.paisley.storage.service.exception.StorageFileNotFoundException;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import io.minio.MinioAsyncClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of resumable multipart uploads on top of the S3 multipart API of MinIO.
+ * <p>
+ * The upload id handed to clients encodes the bucket, the object and the MinIO upload id,
+ * so an upload can be resumed on any instance and after restarts. MinIO keeps the uploaded parts;
+ * this service only remembers when uploads started in order to abort abandoned ones, and, for buckets
+ * limiting the upload size, the size of every part, so a part taking an upload over the limit is
+ * rejected before it is stored. The sizes are read from MinIO when an upload continues on another instance.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+@Slf4j
+public class MinioMultipartUploadService implements IMultipartUploadService {
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private final MultipartMinioClient minioClient;
+    private final MinioService minioService;
+    private final HotObjectCache hotObjectCache;
+    private final ObjectStatCache statCache;
+    private final long maxPartSize;
+    private final Semaphore partPermits;
+    private final long partWaitMillis;
+    private final long expiryMillis;
+    private final Map<String, Long> activeUploads = new ConcurrentHashMap<>();
+    private final Map<String, PartSizes> partSizes = new ConcurrentHashMap<>();
+    private final StorageProfileRegistry profileRegistry;
+    private final StorageMetrics metrics;
+
+    /**
+     * Sizes of the parts of one upload, by part number.
+     */
+    private static final class PartSizes {
+        private final Map<Integer, Long> sizes = new HashMap<>();
+        private long total;
+
+        private PartSizes(List<Part> parts) {
+            for (Part part : parts) {
+                sizes.put(part.partNumber(), part.partSize());
+                total += part.partSize();
+            }
+        }
+
+        /**
+         * Records the size of a part about to be uploaded, replacing the part stored under its number.
+         *
+         * @return Size of the replaced part, or null if there was none.
+         * @throws IllegalArgumentException if the upload would exceed the maximum size.
+         */
+        private synchronized Long reserve(int partNumber, long size, long maxBytes) {
+            Long replaced = sizes.get(partNumber);
+            long newTotal = total - (replaced != null ? replaced : 0) + size;
+            if (newTotal > maxBytes) {
+                throw new IllegalArgumentException("Upload exceeds the maximum upload size of " + maxBytes + " bytes.");
+            }
+            sizes.put(partNumber, size);
+            total = newTotal;
+            return replaced;
+        }
+
+        /**
+         * Restores the part a failed upload would have replaced, unless the part was uploaded again meanwhile.
+         */
+        private synchronized void release(int partNumber, long size, Long replaced) {
+            if (!Long.valueOf(size).equals(sizes.get(partNumber))) {
+                return;
+            }
+            total -= size;
+            if (replaced != null) {
+                sizes.put(partNumber, replaced);
+                total += replaced;
+            } else {
+                sizes.remove(partNumber);
+            }
+        }
+    }
+
+    /**
+     * Constructor for MinioMultipartUploadService.
+     *
+     * @param endpoint           MinIO endpoint.
+     * @param accessKey          Access key.
+     * @param secretKey          Secret key.
+     * @param minioService       Service used to prepare the storage layout.
+     * @param hotObjectCache     Cache invalidated when an upload replaces an object.
+     * @param statCache          Metadata cache invalidated when an upload replaces an object.
+     * @param profileRegistry    Profiles limiting the size of uploads.
+     * @param metrics            Metrics recorder timing the MinIO calls.
+     * @param maxPartSize        Largest accepted part; MinIO holds a part in memory while sending it.
+     * @param maxConcurrentParts Number of parts sent to MinIO at the same time.
+     * @param partWaitTimeout    Time a part waits for a free slot before the request is rejected.
+     * @param expiry             Age after which unfinished uploads are aborted.
+     */
+    public MinioMultipartUploadService(
+            @Value("${minio.endpoint}") String endpoint,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey,
+            MinioService minioService,
+            HotObjectCache hotObjectCache,
+            ObjectStatCache statCache,
+            StorageProfileRegistry profileRegistry,
+            StorageMetrics metrics,
+            @Value("${storage.multipart.max-part-size:16MB}") DataSize maxPartSize,
+            @Value("${storage.multipart.max-concurrent-parts:16}") int maxConcurrentParts,
+            @Value("${storage.multipart.part-wait-timeout:30s}") Duration partWaitTimeout,
+            @Value("${storage.multipart.expiry:24h}") Duration expiry
+    ) {
+        this.minioClient = new MultipartMinioClient(
+                MinioAsyncClient.builder()
+                        .endpoint(endpoint)
+                        .credentials(accessKey, secretKey)
+                        .build()
+        );
+        this.minioService = minioService;
+        this.hotObjectCache = hotObjectCache;
+        this.statCache = statCache;
+        this.profileRegistry = profileRegistry;
+        this.metrics = metrics;
+        this.maxPartSize = maxPartSize.toBytes();
+        this.partPermits = new Semaphore(maxConcurrentParts, true);
+        this.partWaitMillis = partWaitTimeout.toMillis();
+        this.expiryMillis = expiry.toMillis();
+    }
+
+    @Override
+    public MultipartUploadDTO initiateUpload(String fileName, String contentType, long size, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        if (size >= 0) {
+            minioMetadata.validateUploadSize(size);
+        }
+        minioService.prepareStorage(minioMetadata);
+
+        String bucketName = minioMetadata.getBucketName();
+        String objectName = minioMetadata.objectName(fileName);
+        try {
+            String s3UploadId = metrics.minio("createMultipartUpload", bucketName, () -> minioClient.createUpload(bucketName, objectName, contentType));
+            String uploadId = encodeUploadId(bucketName, objectName, s3UploadId);
+            activeUploads.put(uploadId, System.currentTimeMillis());
+            if (maxUploadBytes(bucketName) >= 0) {
+                partSizes.put(uploadId, new PartSizes(List.of()));
+            }
+            log.info("Multipart upload of '{}' started in bucket '{}'.", objectName, bucketName);
+            return toUploadDTO(uploadId, bucketName, objectName, null);
+        } catch (Exception e) {
+            log.error("Error starting multipart upload of '{}': {}", objectName, e.getMessage());
+            throw new RuntimeException("Error starting multipart upload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public MultipartPartDTO uploadPart(String uploadId, int partNumber, InputStream inputStream, long size) {
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + MAX_PART_NUMBER + ".");
+        }
+        if (size <= 0 || size > maxPartSize) {
+            throw new IllegalArgumentException("Part size must be between 1 and " + maxPartSize + " bytes.");
+        }
+        String[] upload = decodeUploadId(uploadId);
+
+        // The part is counted before it is sent, so concurrent parts cannot pass the limit together
+        long maxBytes = maxUploadBytes(upload[0]);
+        PartSizes sizes = maxBytes >= 0 ? partSizes(uploadId, upload) : null;
+        Long replaced = sizes != null ? sizes.reserve(partNumber, size, maxBytes) : null;
+        boolean stored = false;
+        acquirePartPermit();
+        try {
+            String etag = metrics.minio("uploadPart", upload[0], () -> minioClient.uploadPart(upload[0], upload[1], upload[2], partNumber, inputStream, size));
+            stored = true;
+            log.debug("Part {} of '{}' uploaded to bucket '{}'.", partNumber, upload[1], upload[0]);
+            return new MultipartPartDTO(partNumber, etag, size);
+        } catch (Exception e) {
+            throw handleError("uploading part " + partNumber + " of", uploadId, upload, e);
+        } finally {
+            partPermits.release();
+            if (sizes != null && !stored) {
+                sizes.release(partNumber, size, replaced);
+            }
+        }
+    }
+
+    @Override
+    public MultipartUploadDTO getUpload(String uploadId) {
+        String[] upload = decodeUploadId(uploadId);
+        try {
+            List<Part> parts = metrics.minio("listParts", upload[0], () -> minioClient.listUploadedParts(upload[0], upload[1], upload[2]));
+            return toUploadDTO(uploadId, upload[0], upload[1], parts);
+        } catch (Exception e) {
+            throw handleError("listing parts of", uploadId, upload, e);
+        }
+    }
+
+    @Override
+    public UploadFileResponse completeUpload(String uploadId, List<MultipartPartDTO> completedParts) {
+        String[] upload = decodeUploadId(uploadId);
+        try {
+            long maxBytes = maxUploadBytes(upload[0]);
+            List<Part> uploadedParts = new ArrayList<>();
+            List<Part> storedParts = completedParts == null || completedParts.isEmpty() || maxBytes >= 0
+                    ? metrics.minio("listParts", upload[0], () -> minioClient.listUploadedParts(upload[0], upload[1], upload[2]))
+                    : List.of();
+            if (completedParts == null || completedParts.isEmpty()) {
+                uploadedParts.addAll(storedParts);
+            } else {
+                for (MultipartPartDTO part : completedParts) {
+                    uploadedParts.add(new Part(part.getPartNumber(), part.getEtag()));
+                }
+            }
+            if (uploadedParts.isEmpty()) {
+                throw new IllegalArgumentException("No parts have been uploaded.");
+            }
+            if (maxBytes >= 0) {
+                // Checked again with the sizes MinIO stored, which also covers parts uploaded through other instances
+                Map<Integer, Long> storedSizes = new HashMap<>();
+                for (Part part : storedParts) {
+                    storedSizes.put(part.partNumber(), part.partSize());
+                }
+                long total = 0;
+                for (Part part : uploadedParts) {
+                    total += storedSizes.getOrDefault(part.partNumber(), 0L);
+                }
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("Upload exceeds the maximum upload size of " + maxBytes + " bytes.");
+                }
+            }
+            uploadedParts.sort(Comparator.comparingInt(Part::partNumber));
+            Part[] parts = new Part[uploadedParts.size()];
+            for (int i = 0; i < parts.length; i++) {
+                Part part = uploadedParts.get(i);
+                parts[i] = new Part(part.partNumber(), part.etag());
+            }
+
+            // The completed object replaces a deduplicated file's pointer, whose content is released afterwards
+            minioService.changeContent(upload[0], List.of(upload[1]), () -> {
+                String replaced = minioService.contentDigest(upload[0], upload[1]);
+                metrics.minio("completeMultipartUpload", upload[0], () -> minioClient.completeUpload(upload[0], upload[1], upload[2], parts));
+                String cacheKey = HotObjectCache.key(upload[0], upload[1]);
+                hotObjectCache.invalidate(cacheKey);
+                statCache.invalidate(cacheKey);
+                minioService.releaseContent(upload[0], upload[1], replaced);
+                return null;
+            });
+            activeUploads.remove(uploadId);
+            partSizes.remove(uploadId);
+            log.info("Multipart upload of '{}' completed in bucket '{}' with {} parts.", upload[1], upload[0], parts.length);
+
+            String fileName = upload[1].substring(upload[1].lastIndexOf('/') + 1);
+            UploadFileResponse response = new UploadFileResponse();
+            response.setFileName(fileName);
+            response.setFileFormat(fileName.contains(".") ? fileName.substring(fileName.lastIndexOf(".") + 1) : "");
+            response.setFileUrl(upload[0] + "/" + upload[1]);
+            response.setServiceName("Minio");
+            return response;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw handleError("completing", uploadId, upload, e);
+        }
+    }
+
+    @Override
+    public void abortUpload(String uploadId) {
+        String[] upload = decodeUploadId(uploadId);
+        try {
+            metrics.minio("abortMultipartUpload", upload[0], () -> {
+                minioClient.abortUpload(upload[0], upload[1], upload[2]);
+                return null;
+            });
+            activeUploads.remove(uploadId);
+            partSizes.remove(uploadId);
+            log.info("Multipart upload of '{}' aborted in bucket '{}'.", upload[1], upload[0]);
+        } catch (Exception e) {
+            throw handleError("aborting", uploadId, upload, e);
+        }
+    }
+
+    /**
+     * Aborts uploads started by this instance that were neither completed nor aborted in time,
+     * so their parts do not occupy storage forever.
+     */
+    @Scheduled(fixedDelayString = "${storage.multipart.sweep-interval:PT1H}")
+    public void abortExpiredUploads() {
+        long cutoff = System.currentTimeMillis() - expiryMillis;
+        for (Map.Entry<String, Long> entry : activeUploads.entrySet()) {
+            if (entry.getValue() < cutoff) {
+                try {
+                    abortUpload(entry.getKey());
+                } catch (RuntimeException e) {
+                    log.warn("Could not abort expired multipart upload: {}", e.getMessage());
+                    activeUploads.remove(entry.getKey());
+                    partSizes.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private long maxUploadBytes(String bucketName) {
+        return profileRegistry.getProfile(bucketName).getMaxUploadBytes();
+    }
+
+    /**
+     * Returns the part sizes of an upload, reading them from MinIO if the upload was started
+     * or continued on another instance.
+     */
+    private PartSizes partSizes(String uploadId, String[] upload) {
+        PartSizes sizes = partSizes.get(uploadId);
+        if (sizes != null) {
+            return sizes;
+        }
+        try {
+            sizes = new PartSizes(metrics.minio("listParts", upload[0], () -> minioClient.listUploadedParts(upload[0], upload[1], upload[2])));
+        } catch (Exception e) {
+            throw handleError("listing parts of", uploadId, upload, e);
+        }
+        PartSizes previous = partSizes.putIfAbsent(uploadId, sizes);
+        return previous != null ? previous : sizes;
+    }
+
+    private void acquirePartPermit() {
+        try {
+            if (!partPermits.tryAcquire(partWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new StorageBusyException("Too many parts are being uploaded, retry later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageBusyException("Interrupted while waiting to upload the part.");
+        }
+    }
+
+    private RuntimeException handleError(String action, String uploadId, String[] upload, Exception e) {
+        if (e instanceof ErrorResponseException
+                && "NoSuchUpload".equals(((ErrorResponseException) e).errorResponse().code())) {
+            activeUploads.remove(uploadId);
+            partSizes.remove(uploadId);
+            return new StorageFileNotFoundException("Upload '" + uploadId + "' does not exist.");
+        }
+        log.error("Error {} multipart upload of '{}': {}", action, upload[1], e.getMessage());
+        return new RuntimeException("Error " + action + " multipart upload: " + e.getMessage(), e);
+    }
+
+    private MultipartUploadDTO toUploadDTO(String uploadId, String bucketName, String objectName, List<Part> parts) {
+        MultipartUploadDTO response = new MultipartUploadDTO();
+        response.setUploadId(uploadId);
+        response.setFileName(objectName.substring(objectName.lastIndexOf('/') + 1));
+        response.setBucketName(bucketName);
+        response.setObjectName(objectName);
+        response.setMaxPartSize(maxPartSize);
+        response.setMaxUploadSize(maxUploadBytes(bucketName));
+        if (parts != null) {
+            parts.sort(Comparator.comparingInt(Part::partNumber));
+            for (Part part : parts) {
+                response.getParts().add(new MultipartPartDTO(part.partNumber(), part.etag(), part.partSize()));
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Builds the client-facing upload id from the bucket, the object and the MinIO upload id.
+     */
+    private static String encodeUploadId(String bucketName, String objectName, String s3UploadId) {
+        String value = bucketName + "\n" + objectName + "\n" + s3UploadId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits a client-facing upload id into bucket, object and MinIO upload id.
+     */
+    private static String[] decodeUploadId(String uploadId) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(uploadId), StandardCharsets.UTF_8);
+            String[] upload = value.split("\n", 3);
+            if (upload.length == 3 && !upload[0].isEmpty() && !upload[1].isEmpty() && !upload[2].isEmpty()) {
+                return upload;
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below as an invalid upload id
+        }
+        throw new IllegalArgumentException("Invalid upload id.");
+    }
+}
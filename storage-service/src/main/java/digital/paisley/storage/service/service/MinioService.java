@@ -1,46 +1,181 @@
 package digital.paisley.storage.service.service;
 
+import digital.paisley.storage.service.cache.DownloadCoalescer;
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.cache.ObjectStatCache;
+import digital.paisley.storage.service.cache.StorageLayoutCache;
+import digital.paisley.storage.service.dto.BatchItemResult;
+import digital.paisley.storage.service.dto.FileEntryDTO;
 import digital.paisley.storage.service.dto.MinioMetadataDTO;
 import digital.paisley.storage.service.dto.MetadataDTO;
+import digital.paisley.storage.service.dto.ObjectStatDTO;
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
 import digital.paisley.storage.service.dto.UploadFileResponse;
+import digital.paisley.storage.service.exception.StorageFileChangedException;
+import digital.paisley.storage.service.exception.StorageFileNotFoundException;
+import digital.paisley.storage.service.metrics.StorageMetrics;
+import digital.paisley.storage.service.profile.StorageProfile;
+import digital.paisley.storage.service.profile.StorageProfileRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.Result;
 import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
 import io.minio.PutObjectArgs;
 import io.minio.GetObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
 import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of the storage service using MinIO.
  */
 @Service
+@Qualifier(MeteredStorageService.STORAGE_BACKEND)
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
 @Slf4j
 public class MinioService implements IStorageService {
 
+    private static final int MAX_LIST_PAGE_SIZE = 1000;
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
     private final MinioClient minioClient;
+    private final StorageLayoutCache layoutCache;
+    private final HotObjectCache hotObjectCache;
+    private final ObjectStatCache statCache;
+    private final DownloadCoalescer downloadCoalescer;
+    private final ContentCompressor compressor;
+    private final MinioUrlSigner urlSigner;
+    private final StorageProfileRegistry profileRegistry;
+    private final ThreadPoolTaskExecutor storageTaskExecutor;
+    private final int maxBatchSize;
+    private final StorageMetrics metrics;
+    // Null unless files are stored deduplicated
+    private final ContentAddressedStore contentStore;
 
     /**
      * Constructor for MinioService.
      *
-     * @param endpoint  MinIO endpoint.
-     * @param accessKey Access key.
-     * @param secretKey Secret key.
+     * @param endpoint            MinIO endpoint.
+     * @param accessKey           Access key.
+     * @param secretKey           Secret key.
+     * @param layoutCache         Cache of buckets and folders known to exist.
+     * @param hotObjectCache      Read-through cache of frequently downloaded objects.
+     * @param statCache           Cache of object metadata, including objects known not to exist.
+     * @param downloadCoalescer   Shares one MinIO fetch between concurrent downloads of the same object.
+     * @param compressor          Compresses uploads of compressible content types.
+     * @param urlSigner           Issues presigned URLs for direct transfers with MinIO.
+     * @param profileRegistry     Storage profiles whose buckets are loaded into the layout cache at startup.
+     * @param storageTaskExecutor Executor for concurrent storage calls.
+     * @param maxBatchSize        Maximum number of files in a batch operation.
+     * @param deduplicate         Whether files are stored content-addressed, see {@link ContentAddressedStore}.
+     * @param metrics             Metrics of the MinIO calls.
      */
     public MinioService(
             @Value("${minio.endpoint}") String endpoint,
             @Value("${minio.access-key}") String accessKey,
-            @Value("${minio.secret-key}") String secretKey
+            @Value("${minio.secret-key}") String secretKey,
+            StorageLayoutCache layoutCache,
+            HotObjectCache hotObjectCache,
+            ObjectStatCache statCache,
+            DownloadCoalescer downloadCoalescer,
+            ContentCompressor compressor,
+            MinioUrlSigner urlSigner,
+            StorageProfileRegistry profileRegistry,
+            ThreadPoolTaskExecutor storageTaskExecutor,
+            @Value("${storage.batch.max-size:1000}") int maxBatchSize,
+            @Value("${storage.dedup.enabled:false}") boolean deduplicate,
+            StorageMetrics metrics
     ) {
         this.minioClient = MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
                 .build();
+        this.layoutCache = layoutCache;
+        this.hotObjectCache = hotObjectCache;
+        this.statCache = statCache;
+        this.downloadCoalescer = downloadCoalescer;
+        this.compressor = compressor;
+        this.urlSigner = urlSigner;
+        this.profileRegistry = profileRegistry;
+        this.storageTaskExecutor = storageTaskExecutor;
+        this.maxBatchSize = maxBatchSize;
+        this.metrics = metrics;
+        this.contentStore = deduplicate ? new ContentAddressedStore(minioClient, metrics) : null;
+    }
+
+    /**
+     * Releases the connection pool and dispatcher threads of the MinIO client.
+     */
+    @PreDestroy
+    public void close() throws Exception {
+        minioClient.close();
+    }
+
+    /**
+     * Loads the buckets of all storage profiles and their top-level folders into the layout cache,
+     * so the first requests after startup do not pay for the storage preparation.
+     * Failures are logged and ignored; the cache is then filled lazily.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpLayoutCache() {
+        for (StorageProfile profile : profileRegistry.getProfiles()) {
+            String bucketName = profile.getBucketName();
+            try {
+                if (!metrics.minio("bucketExists", bucketName,
+                        () -> minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build()))) {
+                    log.warn("Skipping layout cache warm-up, bucket '{}' does not exist.", bucketName);
+                    continue;
+                }
+                layoutCache.markBucket(bucketName);
+                Iterable<Result<Item>> folders = minioClient.listObjects(
+                        ListObjectsArgs.builder().bucket(bucketName).prefix(profile.getKeyPrefix()).build()
+                );
+                int folderCount = 0;
+                for (Result<Item> result : folders) {
+                    Item item = result.get();
+                    if (item.isDir()) {
+                        String folderName = item.objectName();
+                        layoutCache.markFolder(bucketName, folderName.substring(0, folderName.length() - 1));
+                        folderCount++;
+                    }
+                }
+                log.info("Layout cache warmed up for bucket '{}' with {} folders.", bucketName, folderCount);
+            } catch (Exception e) {
+                log.warn("Layout cache warm-up failed for bucket '{}': {}", bucketName, e.getMessage());
+            }
+        }
     }
 
     /**
@@ -50,15 +185,19 @@ public class MinioService implements IStorageService {
      * @throws RuntimeException if the bucket does not exist.
      */
     private void validateBucketExists(String bucketName) {
+        if (layoutCache.isBucketKnown(bucketName)) {
+            return;
+        }
         try {
-            boolean exists = minioClient.bucketExists(
-                    io.minio.BucketExistsArgs.builder().bucket(bucketName).build()
-            );
+            boolean exists = metrics.minio("bucketExists", bucketName, () -> minioClient.bucketExists(
+                    BucketExistsArgs.builder().bucket(bucketName).build()
+            ));
             if (!exists) {
                 log.error("Bucket '{}' does not exist.", bucketName);
                 throw new RuntimeException("Bucket '" + bucketName + "' does not exist.");
             }
-            log.info("Bucket '{}' exists.", bucketName);
+            layoutCache.markBucket(bucketName);
+            log.debug("Bucket '{}' exists.", bucketName);
         } catch (Exception e) {
             log.error("Error checking bucket existence: {}", e.getMessage());
             throw new RuntimeException("Error checking bucket existence: " + e.getMessage(), e);
@@ -72,17 +211,22 @@ public class MinioService implements IStorageService {
      * @param folderName Name of the folder to create.
      */
     private void createFolder(String bucketName, String folderName) {
+        if (layoutCache.isFolderKnown(bucketName, folderName)) {
+            return;
+        }
         String objectName = folderName.endsWith("/") ? folderName : folderName + "/";
         try {
-            minioClient.putObject(
+            metrics.minio("putObject", bucketName, () -> minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .stream(new java.io.ByteArrayInputStream(new byte[0]), 0, -1)
                             .build()
-            );
-            log.info("Folder '{}' created in bucket '{}'.", folderName, bucketName);
+            ));
+            layoutCache.markFolder(bucketName, folderName);
+            log.debug("Folder '{}' created in bucket '{}'.", folderName, bucketName);
         } catch (Exception e) {
+            evictStaleLayout(bucketName, e);
             log.error("Error creating folder '{}': {}", folderName, e.getMessage());
             throw new RuntimeException("Error creating folder '" + folderName + "': " + e.getMessage(), e);
         }
@@ -94,9 +238,9 @@ public class MinioService implements IStorageService {
      *
      * @param metadata Metadata containing bucket and folder information.
      */
-    private void prepareStorage(MinioMetadataDTO metadata) {
+    void prepareStorage(MinioMetadataDTO metadata) {
         String bucketName = metadata.getBucketName();
-        String folderName = metadata.getFolderName();
+        String folderName = metadata.getFolderPath();
 
         if (bucketName == null || bucketName.isEmpty()) {
             throw new IllegalArgumentException("Service name is required in metadata.");
@@ -106,6 +250,21 @@ public class MinioService implements IStorageService {
         createFolder(bucketName, folderName);
     }
 
+    /**
+     * Drops cached layout entries of a bucket when MinIO reports that it no longer exists,
+     * so the next request verifies the bucket again instead of trusting the cache.
+     *
+     * @param bucketName Name of the bucket used by the failed call.
+     * @param e          Exception thrown by the MinIO client.
+     */
+    private void evictStaleLayout(String bucketName, Exception e) {
+        if (e instanceof ErrorResponseException
+                && "NoSuchBucket".equals(((ErrorResponseException) e).errorResponse().code())) {
+            log.warn("Bucket '{}' disappeared, invalidating its cached layout.", bucketName);
+            layoutCache.invalidateBucket(bucketName);
+        }
+    }
+
     @Override
     public UploadFileResponse uploadFile(MultipartFile fileStream, String fileName, MetadataDTO metadata) {
 
@@ -115,81 +274,446 @@ public class MinioService implements IStorageService {
         MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
         prepareStorage(minioMetadata);
 
+        try {
+            return putFile(minioMetadata, fileName, fileStream.getOriginalFilename(),
+                    fileStream.getInputStream(), fileStream.getSize(), fileStream.getContentType());
+        } catch (IOException e) {
+            log.error("Error reading uploaded file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public UploadFileResponse uploadFile(InputStream inputStream, long size, String contentType, String fileName, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("File size is required for streaming uploads.");
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        return putFile(minioMetadata, fileName, fileName, inputStream, size, contentType);
+    }
+
+    /**
+     * Streams a file of known size into MinIO.
+     * Passing the size lets MinIO pick the smallest part size, so only one part is held in memory at a time.
+     * Files of compressible content types are read into memory and stored compressed instead.
+     *
+     * @param minioMetadata    Metadata containing bucket and folder information.
+     * @param fileName         Name of the file to be stored.
+     * @param originalFilename Name used to extract the file format, may be null.
+     * @param inputStream      File content.
+     * @param size             Exact size of the content in bytes.
+     * @param contentType      Content type of the file, may be null.
+     * @return UploadFileResponse
+     */
+    private UploadFileResponse putFile(MinioMetadataDTO minioMetadata, String fileName, String originalFilename,
+                                       InputStream inputStream, long size, String contentType) {
+        minioMetadata.validateUploadSize(size);
+
         // Extract the file format
-        String originalFilename = fileStream.getOriginalFilename();
         String fileExtension = "";
         if (originalFilename != null && originalFilename.contains(".")) {
             fileExtension = originalFilename.substring(originalFilename.lastIndexOf(".") + 1);
         }
 
         // Build a file with the correct format
-        String objectName = minioMetadata.getFolderName() + "/" + fileName ;
+        String objectName = minioMetadata.objectName(fileName);
+        if (contentStore != null) {
+            ContentAddressedStore.validateObjectName(objectName);
+        }
         try {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(minioMetadata.getBucketName())
-                            .object(objectName)
-                            .stream(fileStream.getInputStream(), -1, 10485760) // Max part size: 10 MB
-                            .build()
-            );
-            log.info("File '{}' uploaded to '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
-            UploadFileResponse response = new UploadFileResponse();
-            response.setFileName(fileName);
-            response.setFileFormat(fileExtension);
-            response.setFileUrl(minioMetadata.getBucketName() + "/" + objectName);
-            response.setServiceName("Minio");
-            return response;
+            ContentCompressor.Encoded encoded = compressor.isCompressible(size, contentType)
+                    ? compressor.encode(inputStream, size)
+                    : null;
+            if (contentStore != null) {
+                putDeduplicated(minioMetadata.getBucketName(), objectName, inputStream, size, contentType, encoded);
+            } else {
+                PutObjectArgs.Builder args = PutObjectArgs.builder()
+                        .bucket(minioMetadata.getBucketName())
+                        .object(objectName);
+                if (encoded != null) {
+                    encoded.describe(args);
+                } else {
+                    args.stream(inputStream, size, -1);
+                }
+                if (contentType != null && !contentType.isEmpty()) {
+                    args.contentType(contentType);
+                }
+                ObjectWriteResponse written = metrics.minio("putObject", minioMetadata.getBucketName(), () -> minioClient.putObject(args.build()));
+                ObjectStatDTO stat = writtenStat(written, size, contentType);
+                if (encoded != null && encoded.getEncoding() != null) {
+                    stat.setContentEncoding(encoded.getEncoding());
+                    stat.setStoredSize(encoded.getLength());
+                }
+                String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), objectName);
+                hotObjectCache.invalidate(cacheKey);
+                statCache.put(cacheKey, stat);
+            }
+            log.debug("File '{}' uploaded to '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+            return uploadResponse(minioMetadata, fileName, fileExtension, objectName);
+        } catch (Exception e) {
+            evictStaleLayout(minioMetadata.getBucketName(), e);
+            log.error("Error uploading file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stores the content as a blob, computing its digest while it streams, and points the file at it.
+     * Content that is already stored is not kept twice; the staged copy is discarded.
+     * Only linking is serialized with other changes of the file, the content is staged before.
+     *
+     * @param encoded Content already read for compression, or null to stream it from the input.
+     */
+    private void putDeduplicated(String bucketName, String objectName, InputStream inputStream,
+                                 long size, String contentType, ContentCompressor.Encoded encoded) throws Exception {
+        String type = contentType != null && !contentType.isEmpty() ? contentType : "application/octet-stream";
+        ContentAddressedStore.Staged staged = encoded != null
+                ? contentStore.stage(bucketName, encoded, type)
+                : contentStore.stage(bucketName, inputStream, size, type);
+        ObjectStatDTO content = new ObjectStatDTO(size, staged.getDigest(), type, null);
+        content.setContentDigest(staged.getDigest());
+        if (encoded != null && encoded.getEncoding() != null) {
+            content.setContentEncoding(encoded.getEncoding());
+            content.setStoredSize(encoded.getLength());
+        }
+        try {
+            changeContent(bucketName, List.of(objectName), () -> {
+                String replaced = contentDigest(bucketName, objectName);
+                ObjectStatDTO linked = contentStore.link(bucketName, objectName, content, staged);
+                if (replaced != null && !replaced.equals(staged.getDigest())) {
+                    contentStore.unlink(bucketName, objectName, replaced);
+                }
+                String cacheKey = HotObjectCache.key(bucketName, objectName);
+                hotObjectCache.invalidate(cacheKey);
+                statCache.put(cacheKey, linked);
+                return null;
+            });
+        } finally {
+            contentStore.discard(bucketName, staged);
+        }
+    }
+
+    /**
+     * Stores a file without transferring its content when the content is already stored deduplicated.
+     * Without deduplication no content is known, so the client always has to send it.
+     */
+    @Override
+    public UploadFileResponse uploadExisting(String contentDigest, String contentType, String fileName, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        if (!ContentAddressedStore.isDigest(contentDigest)) {
+            throw new IllegalArgumentException("Content digest must be a lowercase hex encoded SHA-256 digest.");
+        }
+        if (contentStore == null) {
+            return null;
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        String bucketName = minioMetadata.getBucketName();
+        String objectName = minioMetadata.objectName(fileName);
+        ContentAddressedStore.validateObjectName(objectName);
+        prepareStorage(minioMetadata);
+
+        try {
+            ObjectStatDTO blob = contentStore.blobStat(bucketName, contentDigest);
+            if (blob == null) {
+                return null;
+            }
+            minioMetadata.validateUploadSize(blob.getSize());
+            if (contentType != null && !contentType.isEmpty()) {
+                blob.setContentType(contentType);
+            }
+            boolean stored = changeContent(bucketName, List.of(objectName), () -> {
+                String replaced = contentDigest(bucketName, objectName);
+                ObjectStatDTO linked = contentStore.link(bucketName, objectName, blob, null);
+                if (linked == null) {
+                    return false;
+                }
+                if (replaced != null && !replaced.equals(contentDigest)) {
+                    contentStore.unlink(bucketName, objectName, replaced);
+                }
+                String cacheKey = HotObjectCache.key(bucketName, objectName);
+                hotObjectCache.invalidate(cacheKey);
+                statCache.put(cacheKey, linked);
+                return true;
+            });
+            if (!stored) {
+                return null;
+            }
+            log.debug("File '{}' linked to stored content '{}' in '{}/{}'.", fileName, contentDigest, bucketName, minioMetadata.getFolderName());
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
+            evictStaleLayout(bucketName, e);
             log.error("Error uploading file '{}': {}", fileName, e.getMessage());
             throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
         }
+        String fileExtension = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf(".") + 1) : "";
+        return uploadResponse(minioMetadata, fileName, fileExtension, objectName);
+    }
+
+    private static UploadFileResponse uploadResponse(MinioMetadataDTO minioMetadata, String fileName, String fileExtension, String objectName) {
+        UploadFileResponse response = new UploadFileResponse();
+        response.setFileName(fileName);
+        response.setFileFormat(fileExtension);
+        response.setFileUrl(minioMetadata.getBucketName() + "/" + objectName);
+        response.setServiceName("Minio");
+        return response;
     }
 
     @Override
     public InputStream downloadFile(String fileName, MetadataDTO metadata) {
+        return getObject(fileName, metadata, null, null, false);
+    }
+
+    @Override
+    public InputStream downloadFile(String fileName, MetadataDTO metadata, long offset, long length) {
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid byte range: offset " + offset + ", length " + length + ".");
+        }
+        return getObject(fileName, metadata, offset, length, false);
+    }
+
+    @Override
+    public InputStream downloadEncoded(String fileName, MetadataDTO metadata) {
+        return getObject(fileName, metadata, null, null, true);
+    }
+
+    /**
+     * Opens a stream on a file, optionally limited to a byte range.
+     *
+     * @param fileName Name of the file to be downloaded.
+     * @param metadata Metadata for the storage.
+     * @param offset   Position of the first byte to read, or null for the whole file.
+     * @param length   Number of bytes to read, or null to read until the end.
+     * @param encoded  Whether compressed content is returned as stored instead of decoded.
+     * @return File content as InputStream.
+     */
+    private InputStream getObject(String fileName, MetadataDTO metadata, Long offset, Long length, boolean encoded) {
         if (!(metadata instanceof MinioMetadataDTO)) {
             throw new IllegalArgumentException("Invalid metadata type.");
         }
         MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
         prepareStorage(minioMetadata);
 
-        String objectName = minioMetadata.getFolderName() + "/" + fileName;
+        // The metadata is usually cached by the stat preceding the download
+        String objectName = minioMetadata.objectName(fileName);
+        ObjectStatDTO stat = statObject(minioMetadata.getBucketName(), objectName);
+        if (stat == null) {
+            throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+        }
+        String sourceName = sourceObject(objectName, stat);
+        // Blobs never change; a file object is only read while it still has the ETag the headers were built from
+        String etag = stat.getContentDigest() == null ? stat.getEtag() : null;
+        InputStream stored;
         try {
-            InputStream inputStream = minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(minioMetadata.getBucketName())
-                            .object(objectName)
-                            .build()
-            );
-            log.info("File '{}' downloaded from '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+            if (stat.getContentEncoding() == null || encoded) {
+                return openObject(minioMetadata, fileName, sourceName, etag, offset, length);
+            }
+            // Ranges refer to the decoded content, so they are cut from the decoded object
+            stored = openObject(minioMetadata, fileName, sourceName, etag, null, null);
+        } catch (StorageFileNotFoundException | StorageFileChangedException e) {
+            // The metadata is stale: the file was replaced or deleted, or its blob was removed, since it was read
+            statCache.invalidate(HotObjectCache.key(minioMetadata.getBucketName(), objectName));
+            throw new StorageFileChangedException("File '" + fileName + "' changed while it was being downloaded.");
+        }
+        try {
+            return ContentCompressor.decode(stat.getContentEncoding(), stored, offset, length);
+        } catch (IOException e) {
+            log.error("Error decoding file '{}': {}", fileName, e.getMessage());
+            throw new RuntimeException("Error downloading file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a stream on an object as it is stored, optionally limited to a byte range.
+     *
+     * @param minioMetadata Metadata containing bucket and folder information.
+     * @param fileName      Name of the file, for messages.
+     * @param objectName    Full name of the object within the bucket.
+     * @param etag          ETag the object must still have, or null to read it whatever it holds.
+     * @param offset        Position of the first byte to read, or null for the whole object.
+     * @param length        Number of bytes to read, or null to read until the end.
+     * @return Object content as InputStream.
+     * @throws StorageFileChangedException if the object no longer has the given ETag.
+     */
+    private InputStream openObject(MinioMetadataDTO minioMetadata, String fileName, String objectName, String etag, Long offset, Long length) {
+        // Hot objects are served without any MinIO round trip
+        String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), objectName);
+        InputStream cached = offset == null
+                ? hotObjectCache.get(cacheKey, etag)
+                : hotObjectCache.get(cacheKey, etag, offset, length);
+        if (cached != null) {
+            log.debug("File '{}' served from cache.", cacheKey);
+            return cached;
+        }
+
+        long cacheVersion = hotObjectCache.version(cacheKey);
+        try {
+            InputStream inputStream;
+            if (offset == null) {
+                // Concurrent downloads of the same object share one fetch, which also fills the cache once;
+                // downloads expecting another ETag never share it, so content always matches the headers sent
+                String flightKey = etag != null ? cacheKey + "#" + etag : cacheKey;
+                inputStream = downloadCoalescer.open(flightKey, cacheVersion, () -> {
+                    GetObjectResponse response = fetchObject(minioMetadata, objectName, etag, null, null);
+                    long size = contentLength(response);
+                    return new DownloadCoalescer.Upstream(hotObjectCache.cacheThrough(cacheKey, cacheVersion, etag, response, size), size);
+                });
+            } else {
+                // Only complete objects are cached and shared, ranges are served from MinIO on a miss
+                inputStream = fetchObject(minioMetadata, objectName, etag, offset, length);
+            }
+            log.debug("File '{}' downloaded from '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
             return inputStream;
         } catch (Exception e) {
+            if (isNoSuchKey(e)) {
+                throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+            }
+            if (isPreconditionFailed(e)) {
+                throw new StorageFileChangedException("File '" + fileName + "' changed while it was being downloaded.");
+            }
+            evictStaleLayout(minioMetadata.getBucketName(), e);
             log.error("Error downloading file '{}': {}", fileName, e.getMessage());
             throw new RuntimeException("Error downloading file: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Returns the object holding the content of a file: its blob if it is stored deduplicated,
+     * otherwise the file object itself. Blobs never change, so they are cached and shared between
+     * downloads under their own name, whichever file they are read through.
+     */
+    private static String sourceObject(String objectName, ObjectStatDTO stat) {
+        return stat.getContentDigest() != null ? ContentAddressedStore.blobName(stat.getContentDigest()) : objectName;
+    }
+
+    private GetObjectResponse fetchObject(MinioMetadataDTO minioMetadata, String objectName, String etag, Long offset, Long length) throws Exception {
+        return metrics.minio("getObject", minioMetadata.getBucketName(), () -> minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(minioMetadata.getBucketName())
+                        .object(objectName)
+                        // ETags are reported without quotes, but If-Match takes them as entity tags
+                        .matchETag(etag != null ? "\"" + etag + "\"" : null)
+                        .offset(offset)
+                        .length(length)
+                        .build()
+        ));
+    }
+
+    private static long contentLength(GetObjectResponse response) {
+        String contentLength = response.headers().get("Content-Length");
+        try {
+            return contentLength != null ? Long.parseLong(contentLength) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     @Override
-    public void deleteFile(String fileName, MetadataDTO metadata) {
-        if (!fileExists(fileName, metadata)) {
-            throw new RuntimeException("File does not exist");
+    public PresignedUrlDTO presignDownload(String fileName, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
         }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+
+        String objectName = minioMetadata.objectName(fileName);
+        if (contentStore != null) {
+            ObjectStatDTO stat = statObject(minioMetadata.getBucketName(), objectName);
+            if (stat == null) {
+                throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+            }
+            objectName = sourceObject(objectName, stat);
+        }
+        return urlSigner.signDownload(minioMetadata.getBucketName(), objectName);
+    }
+
+    /**
+     * When the bucket's profile limits the upload size, the URL is a presigned POST whose policy carries
+     * a content-length-range condition, so the object store itself rejects larger bodies whatever size
+     * the client declared; the declared size is still checked first to fail early. Buckets without a
+     * limit get a plain presigned PUT.
+     */
+    @Override
+    public PresignedUrlDTO presignUpload(String fileName, long size, MetadataDTO metadata) {
         if (!(metadata instanceof MinioMetadataDTO)) {
             throw new IllegalArgumentException("Invalid metadata type.");
         }
+        if (contentStore != null) {
+            throw new UnsupportedOperationException("Presigned uploads bypass deduplication and are not available.");
+        }
         MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        long maxUploadBytes = minioMetadata.getProfile() != null ? minioMetadata.getProfile().getMaxUploadBytes() : -1;
+        if (size < 0) {
+            if (maxUploadBytes >= 0) {
+                throw new IllegalArgumentException("File size is required, '" + minioMetadata.getBucketName() + "' limits the upload size.");
+            }
+        } else {
+            minioMetadata.validateUploadSize(size);
+        }
         prepareStorage(minioMetadata);
 
-        String objectName = minioMetadata.getFolderName() + "/" + fileName;
+        // The declared size is only a hint, the limit itself is enforced by the object store
+        String objectName = minioMetadata.objectName(fileName);
+        PresignedUrlDTO url = urlSigner.signUpload(minioMetadata.getBucketName(), objectName, maxUploadBytes);
+        statCache.invalidate(HotObjectCache.key(minioMetadata.getBucketName(), objectName));
+        return url;
+    }
+
+    @Override
+    public ObjectStatDTO statFile(String fileName, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        ObjectStatDTO stat = statObject(minioMetadata.getBucketName(), minioMetadata.objectName(fileName));
+        if (stat == null) {
+            throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+        }
+        return stat;
+    }
+
+    @Override
+    public void deleteFile(String fileName, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        String objectName = minioMetadata.objectName(fileName);
+        ObjectStatDTO stat = statObject(minioMetadata.getBucketName(), objectName);
+        if (stat == null) {
+            throw new StorageFileNotFoundException("File '" + fileName + "' does not exist.");
+        }
         try {
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder()
-                            .bucket(minioMetadata.getBucketName())
-                            .object(objectName)
-                            .build()
-            );
-            log.info("File '{}' deleted from '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
+            changeContent(minioMetadata.getBucketName(), List.of(objectName), () -> {
+                String digest = contentDigest(minioMetadata.getBucketName(), objectName);
+                metrics.minio("removeObject", minioMetadata.getBucketName(), () -> {
+                    minioClient.removeObject(
+                            RemoveObjectArgs.builder()
+                                    .bucket(minioMetadata.getBucketName())
+                                    .object(objectName)
+                                    .build()
+                    );
+                    return null;
+                });
+                String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), objectName);
+                hotObjectCache.invalidate(cacheKey);
+                statCache.putMissing(cacheKey);
+                releaseContent(minioMetadata.getBucketName(), objectName, digest);
+                return null;
+            });
+            log.debug("File '{}' deleted from '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
         } catch (Exception e) {
+            evictStaleLayout(minioMetadata.getBucketName(), e);
             log.error("Error deleting file '{}': {}", fileName, e.getMessage());
             throw new RuntimeException("Error deleting file: " + e.getMessage(), e);
         }
@@ -203,26 +727,434 @@ public class MinioService implements IStorageService {
         MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
         prepareStorage(minioMetadata);
 
-        String objectName = minioMetadata.getFolderName() + "/" + fileName;
+        return objectExists(minioMetadata.getBucketName(), minioMetadata.objectName(fileName));
+    }
+
+    @Override
+    public Stream<FileEntryDTO> listFiles(String prefix, String startAfter, int limit, boolean details, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        String bucketName = minioMetadata.getBucketName();
+        String folderPrefix = minioMetadata.getFolderPrefix();
+        if (contentStore != null) {
+            ContentAddressedStore.validateObjectName(folderPrefix);
+        }
+        prepareStorage(minioMetadata);
+
+        // Pointers and compressed objects are listed with their stored size, the user metadata has the real one;
+        // it is only requested for listings with details, since MinIO then reads the metadata of every object
+        boolean storedAsUploaded = contentStore == null && !compressor.isEnabled();
+        boolean describedByMetadata = details && !storedAsUploaded;
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(folderPrefix + (prefix != null ? prefix : ""))
+                .recursive(true)
+                .maxKeys(Math.min(limit, MAX_LIST_PAGE_SIZE))
+                .includeUserMetadata(describedByMetadata);
+        if (startAfter != null && !startAfter.isEmpty()) {
+            args.startAfter(folderPrefix + startAfter);
+        }
+        Iterable<Result<Item>> results = minioClient.listObjects(args.build());
+
+        // Pages are requested while the stream is consumed, so the call is timed until the stream is closed
+        return metrics.minioStream("listObjects", bucketName, StreamSupport.stream(results.spliterator(), false)
+                .map(result -> {
+                    try {
+                        return result.get();
+                    } catch (Exception e) {
+                        evictStaleLayout(bucketName, e);
+                        log.error("Error listing folder '{}': {}", minioMetadata.getFolderName(), e.getMessage());
+                        throw new RuntimeException("Error listing files: " + e.getMessage(), e);
+                    }
+                })
+                .filter(item -> !item.isDir() && !item.objectName().endsWith("/"))
+                .map(item -> fileEntry(bucketName, folderPrefix, item, describedByMetadata, storedAsUploaded))
+                .filter(Objects::nonNull)
+                .limit(limit));
+    }
+
+    /**
+     * Builds a listing entry from an item of a MinIO listing. Servers that do not return user metadata
+     * in listings fall back to a (cached) stat call for the entries it is needed for.
+     *
+     * @return Listing entry, or null if the object disappeared while it was being listed.
+     */
+    private FileEntryDTO fileEntry(String bucketName, String folderPrefix, Item item, boolean describedByMetadata, boolean storedAsUploaded) {
+        String objectName = item.objectName();
+        String fileName = objectName.substring(folderPrefix.length());
+        Instant lastModified = item.lastModified() != null ? item.lastModified().toInstant() : null;
+        Map<String, String> itemMetadata = item.userMetadata();
+        if (describedByMetadata && itemMetadata == null) {
+            ObjectStatDTO stat = statObject(bucketName, objectName);
+            return stat != null
+                    ? new FileEntryDTO(fileName, stat.getSize(), stat.getEtag(), stat.getContentType(), stat.getLastModified())
+                    : null;
+        }
+
+        FileEntryDTO entry = new FileEntryDTO(fileName, item.size(), stripQuotes(item.etag()), null, lastModified);
+        if (itemMetadata == null) {
+            if (!describedByMetadata && !storedAsUploaded) {
+                // Listing without details: the stored size may not be the file size, nor the pointer ETag the file ETag
+                entry.setSize(null);
+                if (contentStore != null) {
+                    entry.setEtag(null);
+                }
+            }
+            return entry;
+        }
+        entry.setContentType(userMetadata(itemMetadata, "content-type"));
+        String digest = userMetadata(itemMetadata, ContentAddressedStore.DIGEST_METADATA);
+        String length = userMetadata(itemMetadata, ContentAddressedStore.LENGTH_METADATA);
+        String identityLength = userMetadata(itemMetadata, ContentCompressor.IDENTITY_LENGTH_METADATA);
+        if (contentStore != null && ContentAddressedStore.isDigest(digest) && length != null) {
+            entry.setSize(Long.parseLong(length));
+            entry.setEtag(digest);
+        } else if (identityLength != null) {
+            entry.setSize(Long.parseLong(identityLength));
+        }
+        return entry;
+    }
+
+    @Override
+    public List<BatchItemResult> uploadFiles(List<MultipartFile> files, List<String> fileNames, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        if (files.size() != fileNames.size()) {
+            throw new IllegalArgumentException("Each uploaded file needs exactly one file name.");
+        }
+        validateBatchSize(files);
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            indexes.add(i);
+        }
+        return runConcurrently(indexes, i -> {
+            MultipartFile file = files.get(i);
+            String fileName = fileNames.get(i);
+            try {
+                UploadFileResponse response = putFile(minioMetadata, fileName, file.getOriginalFilename(),
+                        file.getInputStream(), file.getSize(), file.getContentType());
+                return BatchItemResult.success(fileName, response.getFileUrl());
+            } catch (Exception e) {
+                return BatchItemResult.failure(fileName, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Deletes all files with one multi-object delete request.
+     * Files that do not exist are reported as deleted, following the S3 multi-object delete semantics.
+     */
+    @Override
+    public List<BatchItemResult> deleteFiles(List<String> fileNames, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        validateBatchSize(fileNames);
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        String folderPrefix = minioMetadata.getFolderPrefix();
+        List<String> objectNames = new ArrayList<>(fileNames.size());
+        List<DeleteObject> objects = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            objectNames.add(folderPrefix + fileName);
+            objects.add(new DeleteObject(folderPrefix + fileName));
+        }
+
+        Map<String, String> errors = new HashMap<>();
         try {
-            minioClient.statObject(
+            changeContent(minioMetadata.getBucketName(), objectNames, () -> {
+                // The blobs of deduplicated files are released once their pointers are gone
+                Map<String, String> digests = contentStore != null
+                        ? contentDigests(minioMetadata.getBucketName(), folderPrefix, fileNames)
+                        : new HashMap<>();
+                // The request is sent lazily while the results are iterated, so the iteration is timed as well
+                metrics.minio("removeObjects", minioMetadata.getBucketName(), () -> {
+                    Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                            RemoveObjectsArgs.builder()
+                                    .bucket(minioMetadata.getBucketName())
+                                    .objects(objects)
+                                    .build()
+                    );
+                    for (Result<DeleteError> result : results) {
+                        DeleteError error = result.get();
+                        errors.put(error.objectName(), error.message());
+                    }
+                    return null;
+                });
+                for (String fileName : fileNames) {
+                    String cacheKey = HotObjectCache.key(minioMetadata.getBucketName(), folderPrefix + fileName);
+                    hotObjectCache.invalidate(cacheKey);
+                    if (errors.containsKey(folderPrefix + fileName)) {
+                        statCache.invalidate(cacheKey);
+                    } else {
+                        statCache.putMissing(cacheKey);
+                        releaseContent(minioMetadata.getBucketName(), folderPrefix + fileName, digests.get(fileName));
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            evictStaleLayout(minioMetadata.getBucketName(), e);
+            log.error("Error deleting {} files from '{}/{}': {}", fileNames.size(), minioMetadata.getBucketName(), minioMetadata.getFolderName(), e.getMessage());
+            throw new RuntimeException("Error deleting files: " + e.getMessage(), e);
+        }
+        log.debug("Deleted {} of {} files from '{}/{}'.", fileNames.size() - errors.size(), fileNames.size(), minioMetadata.getBucketName(), minioMetadata.getFolderName());
+
+        List<BatchItemResult> response = new ArrayList<>(fileNames.size());
+        for (String fileName : fileNames) {
+            String error = errors.get(folderPrefix + fileName);
+            response.add(error == null ? BatchItemResult.success(fileName, "Deleted") : BatchItemResult.failure(fileName, error));
+        }
+        return response;
+    }
+
+    @Override
+    public List<BatchItemResult> filesExist(List<String> fileNames, MetadataDTO metadata) {
+        if (!(metadata instanceof MinioMetadataDTO)) {
+            throw new IllegalArgumentException("Invalid metadata type.");
+        }
+        validateBatchSize(fileNames);
+        MinioMetadataDTO minioMetadata = (MinioMetadataDTO) metadata;
+        prepareStorage(minioMetadata);
+
+        String folderPrefix = minioMetadata.getFolderPrefix();
+        return runConcurrently(fileNames, fileName -> {
+            try {
+                return BatchItemResult.exists(fileName, objectExists(minioMetadata.getBucketName(), folderPrefix + fileName));
+            } catch (Exception e) {
+                return BatchItemResult.failure(fileName, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Looks up concurrently the content digests of deduplicated files.
+     *
+     * @return Digest by file name, for the files that exist and are stored deduplicated.
+     */
+    private Map<String, String> contentDigests(String bucketName, String folderPrefix, List<String> fileNames) {
+        Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        for (String fileName : fileNames) {
+            futures.put(fileName, CompletableFuture.supplyAsync(() -> contentDigest(bucketName, folderPrefix + fileName), storageTaskExecutor));
+        }
+        Map<String, String> digests = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<String>> future : futures.entrySet()) {
+            String digest = future.getValue().join();
+            if (digest != null) {
+                digests.put(future.getKey(), digest);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Runs a change replacing or removing files, serialized with the other changes of these names
+     * while deduplication is enabled, see {@link ContentAddressedStore#changeNames}.
+     *
+     * @param bucketName  Name of the bucket.
+     * @param objectNames Full names of the objects within the bucket.
+     * @param change      The change; it reads the replaced content with {@link #contentDigest} and releases it
+     *                    with {@link #releaseContent}.
+     * @return Result of the change.
+     */
+    <T> T changeContent(String bucketName, Collection<String> objectNames, ContentAddressedStore.NameChange<T> change) throws Exception {
+        return contentStore != null ? contentStore.changeNames(bucketName, objectNames, change) : change.apply();
+    }
+
+    /**
+     * Returns the content digest of a file stored deduplicated, e.g. before the file is replaced.
+     * The metadata is read from MinIO, not from the stat cache, so call it within {@link #changeContent}.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @return Digest of the content, or null if the file does not exist, is a plain object
+     * or deduplication is disabled.
+     */
+    String contentDigest(String bucketName, String objectName) {
+        if (contentStore == null) {
+            return null;
+        }
+        statCache.invalidate(HotObjectCache.key(bucketName, objectName));
+        ObjectStatDTO stat = statObject(bucketName, objectName);
+        return stat != null ? stat.getContentDigest() : null;
+    }
+
+    /**
+     * Releases the content a file pointed at after the file was deleted or replaced.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @param digest     Digest returned by {@link #contentDigest} before the change, may be null.
+     */
+    void releaseContent(String bucketName, String objectName, String digest) {
+        if (contentStore != null && digest != null) {
+            contentStore.unlink(bucketName, objectName, digest);
+        }
+    }
+
+    private void validateBatchSize(List<?> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required.");
+        }
+        if (items.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxBatchSize + " files.");
+        }
+    }
+
+    /**
+     * Runs a task for every item on the storage executor and waits for all of them.
+     *
+     * @param items Items to process.
+     * @param task  Task producing the result of one item; it must not throw.
+     * @return Results in the same order as the items.
+     */
+    private <T> List<BatchItemResult> runConcurrently(List<T> items, Function<T, BatchItemResult> task) {
+        List<CompletableFuture<BatchItemResult>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> task.apply(item), storageTaskExecutor));
+        }
+        List<BatchItemResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<BatchItemResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Checks whether an object exists, assuming the storage has already been prepared.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @return True if the object exists, false otherwise.
+     */
+    private boolean objectExists(String bucketName, String objectName) {
+        return statObject(bucketName, objectName) != null;
+    }
+
+    /**
+     * Reads the metadata of an object, assuming the storage has already been prepared.
+     * Results are served from and stored in the stat cache, unless the object may currently
+     * be changed through a presigned upload URL. Pointer objects of deduplicated files are reported
+     * with the size and digest of their content.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @return Object metadata, or null if the object does not exist.
+     */
+    private ObjectStatDTO statObject(String bucketName, String objectName) {
+        String cacheKey = HotObjectCache.key(bucketName, objectName);
+        boolean cacheable = !hotObjectCache.isExternallyWritable(cacheKey);
+        if (cacheable) {
+            ObjectStatCache.Lookup cached = statCache.get(cacheKey);
+            if (cached != null) {
+                return cached.getStat();
+            }
+        }
+
+        long cacheVersion = statCache.version(cacheKey);
+        ObjectStatDTO stat;
+        try {
+            StatObjectResponse response = metrics.minio("statObject", bucketName, () -> minioClient.statObject(
                     StatObjectArgs.builder()
-                            .bucket(minioMetadata.getBucketName())
+                            .bucket(bucketName)
                             .object(objectName)
                             .build()
-            );
-            log.info("File '{}' exists in '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
-            return true;
+            ));
+            log.debug("File '{}' exists in bucket '{}'.", objectName, bucketName);
+            stat = contentStore != null ? ContentAddressedStore.pointerStat(response) : null;
+            if (stat == null) {
+                stat = ContentCompressor.objectStat(response);
+            }
         } catch (Exception e) {
-            if (e instanceof ErrorResponseException) {
-                ErrorResponseException error = (ErrorResponseException) e;
-                if ("NoSuchKey".equals(error.errorResponse().code())) {
-                    log.info("File '{}' does not exist in '{}/{}'.", fileName, minioMetadata.getBucketName(), minioMetadata.getFolderName());
-                    return false;
-                }
+            if (!isNoSuchKey(e)) {
+                evictStaleLayout(bucketName, e);
+                log.error("Error checking existence of file '{}': {}", objectName, e.getMessage());
+                throw new RuntimeException("Error checking file existence: " + e.getMessage(), e);
+            }
+            log.debug("File '{}' does not exist in bucket '{}'.", objectName, bucketName);
+            stat = null;
+        }
+        if (cacheable) {
+            statCache.putIfCurrent(cacheKey, cacheVersion, stat);
+        }
+        return stat;
+    }
+
+    /**
+     * Builds the metadata of an object just written, as MinIO would report it, so it needs no stat call.
+     * MinIO stores objects without a content type as application/octet-stream; the modification time
+     * is taken locally with the second precision of the HTTP headers.
+     */
+    static ObjectStatDTO writtenStat(ObjectWriteResponse written, long size, String contentType) {
+        return new ObjectStatDTO(
+                size,
+                written.etag(),
+                contentType != null && !contentType.isEmpty() ? contentType : "application/octet-stream",
+                Instant.now().truncatedTo(ChronoUnit.SECONDS)
+        );
+    }
+
+    /**
+     * Looks up user metadata of an object by name, ignoring the case the server returned it in.
+     *
+     * @param response Metadata of the object as returned by MinIO.
+     * @param name     Name of the user metadata without the x-amz-meta- prefix.
+     * @return Value of the user metadata, or null if it is not set.
+     */
+    static String userMetadata(StatObjectResponse response, String name) {
+        for (Map.Entry<String, String> entry : response.userMetadata().entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
             }
-            log.error("Error checking existence of file '{}': {}", fileName, e.getMessage());
-            throw new RuntimeException("Error checking file existence: " + e.getMessage(), e);
         }
+        return null;
+    }
+
+    /**
+     * Looks up user metadata of a listed object by name, ignoring case and the x-amz-meta- prefix
+     * that some servers keep in listings.
+     *
+     * @param metadata User metadata of the listed object.
+     * @param name     Name of the user metadata without the x-amz-meta- prefix.
+     * @return Value of the user metadata, or null if it is not set.
+     */
+    static String userMetadata(Map<String, String> metadata, String name) {
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            if (key.regionMatches(true, 0, USER_METADATA_PREFIX, 0, USER_METADATA_PREFIX.length())) {
+                key = key.substring(USER_METADATA_PREFIX.length());
+            }
+            if (key.equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String stripQuotes(String etag) {
+        if (etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
+
+    private static boolean isNoSuchKey(Exception e) {
+        return e instanceof ErrorResponseException
+                && "NoSuchKey".equals(((ErrorResponseException) e).errorResponse().code());
+    }
+
+    private static boolean isPreconditionFailed(Exception e) {
+        return e instanceof ErrorResponseException
+                && "PreconditionFailed".equals(((ErrorResponseException) e).errorResponse().code());
     }
 }
@@ -0,0 +1,170 @@
+package digital.paisley.storage.service.service;
+
+import digital.paisley.storage.service.cache.HotObjectCache;
+import digital.paisley.storage.service.cache.PresignedUrlCache;
+import digital.paisley.storage.service.dto.PresignedUrlDTO;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.http.Method;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs presigned object URLs for the endpoint clients use to reach MinIO.
+ * <p>
+ * Signing is done locally; the region is configured, so the client never asks MinIO for the bucket location.
+ * Download URLs are reused until half of their lifetime has passed, so repeated requests for the same
+ * object get the same URL and the content can be cached by the browser under it.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+@Slf4j
+public class MinioUrlSigner {
+
+    // Limit of the S3 signature version 4
+    private static final Duration MAX_EXPIRY = Duration.ofDays(7);
+
+    private final MinioClient signingClient;
+    private final String endpoint;
+    private final Duration downloadExpiry;
+    private final Duration uploadExpiry;
+    private final HotObjectCache hotObjectCache;
+    private final PresignedUrlCache urlCache;
+
+    /**
+     * Constructor for MinioUrlSigner.
+     *
+     * @param endpoint       Endpoint put into the URLs, as reachable by the clients.
+     * @param region         Region of the buckets.
+     * @param accessKey      Access key.
+     * @param secretKey      Secret key.
+     * @param downloadExpiry Lifetime of download URLs.
+     * @param uploadExpiry   Lifetime of upload URLs.
+     * @param hotObjectCache Cache whose versions decide whether a download URL may be reused.
+     * @param urlCache       Cache of issued download URLs.
+     */
+    public MinioUrlSigner(
+            @Value("${storage.presigned.endpoint:${minio.endpoint}}") String endpoint,
+            @Value("${storage.presigned.region:us-east-1}") String region,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey,
+            @Value("${storage.presigned.download-expiry:15m}") Duration downloadExpiry,
+            @Value("${storage.presigned.upload-expiry:15m}") Duration uploadExpiry,
+            HotObjectCache hotObjectCache,
+            PresignedUrlCache urlCache
+    ) {
+        validateExpiry("storage.presigned.download-expiry", downloadExpiry);
+        validateExpiry("storage.presigned.upload-expiry", uploadExpiry);
+        this.signingClient = MinioClient.builder()
+                .endpoint(endpoint)
+                .region(region)
+                .credentials(accessKey, secretKey)
+                .build();
+        this.endpoint = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+        this.downloadExpiry = downloadExpiry;
+        this.uploadExpiry = uploadExpiry;
+        this.hotObjectCache = hotObjectCache;
+        this.urlCache = urlCache;
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        signingClient.close();
+    }
+
+    /**
+     * Returns a GET URL of an object, reusing a previously issued one while it is fresh.
+     *
+     * @param bucketName Name of the bucket.
+     * @param objectName Full name of the object within the bucket.
+     * @return Presigned GET URL.
+     */
+    public PresignedUrlDTO signDownload(String bucketName, String objectName) {
+        String key = HotObjectCache.key(bucketName, objectName);
+        long version = hotObjectCache.version(key);
+        PresignedUrlDTO cached = urlCache.get(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        PresignedUrlDTO url = sign(Method.GET, bucketName, objectName, downloadExpiry);
+        // An object that may still be replaced through an upload URL must not be cached under a stable URL
+        if (!hotObjectCache.isExternallyWritable(key)) {
+            urlCache.put(key, version, url);
+        }
+        return url;
+    }
+
+    /**
+     * Returns a new upload URL of an object. The object is kept out of the hot object cache
+     * while the URL is valid, since its content may change at any time.
+     * <p>
+     * A PUT URL cannot limit the size of the uploaded content, so when the upload size is limited,
+     * a POST policy is signed instead, and the object store rejects larger uploads itself.
+     *
+     * @param bucketName     Name of the bucket.
+     * @param objectName     Full name of the object within the bucket.
+     * @param maxUploadBytes Maximum size of the content in bytes, or -1 for no limit.
+     * @return Presigned PUT URL, or POST URL with its form fields.
+     */
+    public PresignedUrlDTO signUpload(String bucketName, String objectName, long maxUploadBytes) {
+        hotObjectCache.invalidateFor(HotObjectCache.key(bucketName, objectName), uploadExpiry);
+        PresignedUrlDTO url = maxUploadBytes < 0
+                ? sign(Method.PUT, bucketName, objectName, uploadExpiry)
+                : signPost(bucketName, objectName, maxUploadBytes, uploadExpiry);
+        // Upload URLs are single use, so there is nothing to refresh
+        url.setRefreshAt(url.getExpiresAt());
+        return url;
+    }
+
+    private PresignedUrlDTO signPost(String bucketName, String objectName, long maxBytes, Duration expiry) {
+        Instant issuedAt = Instant.now();
+        try {
+            PostPolicy policy = new PostPolicy(bucketName, issuedAt.plus(expiry).atZone(ZoneOffset.UTC));
+            policy.addEqualsCondition("key", objectName);
+            policy.addContentLengthRangeCondition(0, maxBytes);
+            Map<String, String> formData = new HashMap<>(signingClient.getPresignedPostFormData(policy));
+            formData.put("key", objectName);
+            log.debug("Presigned POST policy issued for '{}/{}' up to {} bytes.", bucketName, objectName, maxBytes);
+            return new PresignedUrlDTO(Method.POST.name(), endpoint + "/" + bucketName, issuedAt.plus(expiry), issuedAt.plus(expiry.dividedBy(2)), formData);
+        } catch (Exception e) {
+            log.error("Error presigning POST policy for '{}/{}': {}", bucketName, objectName, e.getMessage());
+            throw new RuntimeException("Error creating presigned URL: " + e.getMessage(), e);
+        }
+    }
+
+    private PresignedUrlDTO sign(Method method, String bucketName, String objectName, Duration expiry) {
+        Instant issuedAt = Instant.now();
+        try {
+            String url = signingClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(method)
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .expiry((int) expiry.getSeconds(), TimeUnit.SECONDS)
+                            .build()
+            );
+            log.debug("Presigned {} URL issued for '{}/{}'.", method, bucketName, objectName);
+            return new PresignedUrlDTO(method.name(), url, issuedAt.plus(expiry), issuedAt.plus(expiry.dividedBy(2)), null);
+        } catch (Exception e) {
+            log.error("Error presigning {} URL for '{}/{}': {}", method, bucketName, objectName, e.getMessage());
+            throw new RuntimeException("Error creating presigned URL: " + e.getMessage(), e);
+        }
+    }
+
+    private static void validateExpiry(String property, Duration expiry) {
+        if (expiry.getSeconds() < 1 || expiry.compareTo(MAX_EXPIRY) > 0) {
+            throw new IllegalArgumentException(property + " must be between 1 second and 7 days.");
+        }
+    }
+}
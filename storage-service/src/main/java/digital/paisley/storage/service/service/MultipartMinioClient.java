@@ -0,0 +1,92 @@
+package digital.paisley.storage.service.service;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * MinIO client exposing the low-level S3 multipart upload calls,
+ * which the public MinIO API only uses internally.
+ */
+class MultipartMinioClient extends MinioAsyncClient {
+
+    private static final int MAX_PARTS_PER_PAGE = 1000;
+
+    MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * The HTTP client is shared with the client this one was created from, which closes it.
+     */
+    @Override
+    public void close() {
+    }
+
+    String createUpload(String bucketName, String objectName, String contentType) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null && !contentType.isEmpty()) {
+            headers.put("Content-Type", contentType);
+        }
+        return await(createMultipartUploadAsync(bucketName, null, objectName, headers, null))
+                .result()
+                .uploadId();
+    }
+
+    String uploadPart(String bucketName, String objectName, String uploadId, int partNumber,
+                      InputStream data, long size) throws Exception {
+        return await(uploadPartAsync(bucketName, null, objectName, data, size, uploadId, partNumber, null, null))
+                .etag();
+    }
+
+    /**
+     * Lists every part uploaded so far, following the pagination of the S3 API.
+     */
+    List<Part> listUploadedParts(String bucketName, String objectName, String uploadId) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        Integer marker = null;
+        while (true) {
+            ListPartsResult result = await(
+                    listPartsAsync(bucketName, null, objectName, MAX_PARTS_PER_PAGE, marker, uploadId, null, null)
+            ).result();
+            parts.addAll(result.partList());
+            if (!result.isTruncated()) {
+                return parts;
+            }
+            marker = result.nextPartNumberMarker();
+        }
+    }
+
+    String completeUpload(String bucketName, String objectName, String uploadId, Part[] parts) throws Exception {
+        return await(completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, null, null))
+                .etag();
+    }
+
+    void abortUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        await(abortMultipartUploadAsync(bucketName, null, objectName, uploadId, null, null));
+    }
+
+    /**
+     * Waits for an asynchronous call and rethrows the original failure,
+     * so callers can inspect MinIO error responses.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package digital.paisley.storage.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownloadCoalescerTest {
+
+    private static final String KEY = "bucket/object";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void concurrentDownloadsShareOneFetch() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofMegabytes(1));
+        byte[] content = content(300_000);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> downloads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                downloads.add(executor.submit(() -> {
+                    try (InputStream in = coalescer.open(KEY, 0, () -> {
+                        fetches.incrementAndGet();
+                        // Held open until every request had the chance to join
+                        release.await();
+                        return new DownloadCoalescer.Upstream(new ByteArrayInputStream(content), content.length);
+                    })) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<byte[]> download : downloads) {
+                assertThat(download.get(10, TimeUnit.SECONDS)).isEqualTo(content);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(registry.get("storage.download.coalesced").counter().count()).isEqualTo(7);
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    @Test
+    void joiningAndLeavingUnderLoadKeepsContentAndBudgetConsistent() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofMegabytes(1));
+        byte[] content = content(200_000);
+        AtomicInteger fetches = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> downloads = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                int request = i;
+                downloads.add(executor.submit(() -> {
+                    Random random = new Random(request);
+                    try (InputStream in = coalescer.open(KEY, 0, () -> {
+                        fetches.incrementAndGet();
+                        return new DownloadCoalescer.Upstream(new SlowInputStream(content), content.length);
+                    })) {
+                        if (random.nextInt(3) == 0) {
+                            // Leaves the shared download before its end
+                            in.readNBytes(random.nextInt(content.length));
+                            return null;
+                        }
+                        assertThat(in.readAllBytes()).isEqualTo(content);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> download : downloads) {
+                download.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(fetches.get()).isLessThan(2000);
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    @Test
+    void fetchFailureIsThrownToEveryRequestThatJoined() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofMegabytes(1));
+        CountDownLatch joined = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<InputStream> leader = executor.submit(() -> coalescer.open(KEY, 0, () -> {
+                joined.await();
+                throw new IOException("Storage unavailable.");
+            }));
+            Thread.sleep(100);
+            Future<InputStream> follower = executor.submit(() -> coalescer.open(KEY, 0, () -> {
+                throw new AssertionError("The failed fetch must not be repeated.");
+            }));
+            // The follower joins before the fetch fails, so it gets the same failure without fetching itself
+            Thread.sleep(100);
+            joined.countDown();
+            assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS)).hasRootCauseMessage("Storage unavailable.");
+            assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS)).hasRootCauseMessage("Storage unavailable.");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    @Test
+    void loneDownloadReleasesChunksItReadPast() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofMegabytes(4));
+        byte[] content = content(1_000_000);
+
+        try (InputStream in = coalescer.open(KEY, 0, () -> new DownloadCoalescer.Upstream(new ByteArrayInputStream(content), content.length))) {
+            byte[] head = in.readNBytes(300_000);
+            // Only the chunks ahead of the reader are still accounted for
+            assertThat(bufferedBytes()).isLessThan(content.length - 200_000);
+            byte[] rest = in.readAllBytes();
+            assertThat(head.length + rest.length).isEqualTo(content.length);
+            assertThat(rest[rest.length - 1]).isEqualTo(content[content.length - 1]);
+        }
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    @Test
+    void objectsAboveTheCapAreNotShared() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofKilobytes(1));
+        byte[] content = content(2048);
+
+        try (InputStream in = coalescer.open(KEY, 0, () -> new DownloadCoalescer.Upstream(new ByteArrayInputStream(content), content.length))) {
+            assertThat(in).isInstanceOf(ByteArrayInputStream.class);
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    @Test
+    void newVersionDoesNotJoinOlderFetch() throws Exception {
+        DownloadCoalescer coalescer = coalescer(DataSize.ofMegabytes(1));
+        byte[] before = content(1000);
+        byte[] after = content(1200);
+
+        InputStream stale = coalescer.open(KEY, 0, () -> new DownloadCoalescer.Upstream(new ByteArrayInputStream(before), before.length));
+        try (InputStream fresh = coalescer.open(KEY, 1, () -> new DownloadCoalescer.Upstream(new ByteArrayInputStream(after), after.length))) {
+            assertThat(fresh.readAllBytes()).isEqualTo(after);
+        }
+        try (InputStream in = stale) {
+            assertThat(in.readAllBytes()).isEqualTo(before);
+        }
+        assertThat(bufferedBytes()).isZero();
+    }
+
+    private DownloadCoalescer coalescer(DataSize maxObjectBytes) {
+        return new DownloadCoalescer(maxObjectBytes, DataSize.ofMegabytes(64), registry);
+    }
+
+    private double bufferedBytes() {
+        return registry.get("storage.download.coalescing.buffered").gauge().value();
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Returns few bytes per read, so readers join and leave while the fetch is in progress.
+     */
+    private static final class SlowInputStream extends ByteArrayInputStream {
+        private SlowInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] target, int offset, int length) {
+            Thread.yield();
+            return super.read(target, offset, Math.min(length, 4096));
+        }
+    }
+}